@@ -0,0 +1,74 @@
+package com.springmvcut.benchmark;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+import org.springframework.core.MethodParameter;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+import com.springmvcut.common.controller.RestErrorHandler;
+import com.springmvcut.controller.TodoRESTController;
+import com.springmvcut.dto.TodoDTO;
+import com.springmvcut.dto.ValidationErrorDTO;
+import com.springmvcut.model.Todo;
+
+/**
+ * Measures how the validation errors of a rejected to-do entry are resolved to localized
+ * messages. The message source is configured like the one of the application.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RestErrorHandlerBenchmark {
+
+    /**
+     * The locale of the request. The messages of the English locale are found in
+     * messages_en.properties, the others fall back to messages.properties.
+     */
+    @Param({"en", "fi"})
+    private String locale;
+
+    private RestErrorHandler errorHandler;
+    private MethodArgumentNotValidException exception;
+
+    @Setup
+    public void createException() throws Exception {
+        ReloadableResourceBundleMessageSource messageSource = new ReloadableResourceBundleMessageSource();
+        messageSource.setBasename("classpath:messages");
+        messageSource.setFallbackToSystemLocale(false);
+        errorHandler = new RestErrorHandler(messageSource);
+
+        TodoDTO dto = new TodoDTO(null, "", "description");
+        BeanPropertyBindingResult result = new BeanPropertyBindingResult(dto, "todoDTO");
+        result.rejectValue("title", "NotEmpty", null, "may not be empty");
+        result.rejectValue("description", "Length", new Object[] {"description", Todo.MAX_LENGTH_DESCRIPTION, 0},
+                "length must be between 0 and " + Todo.MAX_LENGTH_DESCRIPTION);
+
+        MethodParameter parameter = new MethodParameter(TodoRESTController.class.getMethod("add", TodoDTO.class), 0);
+        exception = new MethodArgumentNotValidException(parameter, result);
+
+        LocaleContextHolder.setLocale(new Locale(locale));
+    }
+
+    @Benchmark
+    public ValidationErrorDTO processValidationError() {
+        return errorHandler.processValidationError(exception);
+    }
+}
@@ -0,0 +1,108 @@
+package com.springmvcut.benchmark;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.springmvcut.common.web.AsyncRequestExecutor;
+
+/**
+ * Compares the platform and the virtual threads of the {@link AsyncRequestExecutor} when many
+ * clients send a request at the same time. A request blocks for <code>ioMillis</code> without
+ * a database connection, like a slow client or a call to another service, and then holds one
+ * of the connections of the pool for <code>queryMillis</code>.
+ * <p>
+ * The platform threads are as many as the default maximum of Tomcat, so the threads that wait
+ * for I/O limit the throughput. The virtual threads only wait for the connections, so the
+ * connection pool limits it. A measurement is the time until all clients have their response.
+ * <p>
+ * The virtual threads need Java 21 or later, see the virtual-threads profile of the pom. Run
+ * only the platform threads on older JVMs with <code>-Djmh.params="-p threadModel=platform"</code>.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThreadModelBenchmark {
+
+    private static final int PLATFORM_THREADS = 200;
+    private static final int POOL_CONNECTIONS = 20;
+    private static final long TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    @Param({"platform", "virtual"})
+    private String threadModel;
+
+    @Param({"1000", "10000", "50000"})
+    private int clients;
+
+    @Param({"50"})
+    private long ioMillis;
+
+    @Param({"1"})
+    private long queryMillis;
+
+    private AsyncRequestExecutor asyncExecutor;
+    private Semaphore connections;
+
+    @Setup
+    public void startAsyncExecutor() {
+        asyncExecutor = new AsyncRequestExecutor(PLATFORM_THREADS, clients, TIMEOUT_MILLIS, "virtual".equals(threadModel));
+        asyncExecutor.start();
+        connections = new Semaphore(POOL_CONNECTIONS, true);
+    }
+
+    @TearDown
+    public void stopAsyncExecutor() throws InterruptedException {
+        asyncExecutor.stop();
+    }
+
+    @Benchmark
+    public long serveAllClients() throws InterruptedException {
+        final CountDownLatch responses = new CountDownLatch(clients);
+        Callable<Long> request = new Callable<Long>() {
+            @Override
+            public Long call() throws InterruptedException {
+                Thread.sleep(ioMillis);
+                connections.acquire();
+                try {
+                    Thread.sleep(queryMillis);
+                }
+                finally {
+                    connections.release();
+                }
+                return System.nanoTime();
+            }
+        };
+        DeferredResult.DeferredResultHandler countResponse = new DeferredResult.DeferredResultHandler() {
+            @Override
+            public void handleResult(Object result) {
+                responses.countDown();
+            }
+        };
+
+        for (int client = 0; client < clients; client++) {
+            asyncExecutor.submit(request).setResultHandler(countResponse);
+        }
+        if (!responses.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException(responses.getCount() + " clients have no response");
+        }
+        return asyncExecutor.getCompletedCount();
+    }
+}
@@ -0,0 +1,71 @@
+package com.springmvcut.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.type.CollectionType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.springmvcut.dto.TodoDTO;
+
+/**
+ * Compares JSON with Smile for the to-do lists that the REST API returns, as the message
+ * converters encode and decode them. The encoded size of each list is printed when the
+ * benchmark starts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TodoEncodingBenchmark {
+
+    @Param({"json", "smile"})
+    private String format;
+
+    @Param({"10", "1000", "10000"})
+    private int size;
+
+    private ObjectWriter listWriter;
+    private ObjectReader listReader;
+    private List<TodoDTO> dtos;
+    private byte[] encoded;
+
+    @Setup
+    public void encodeDTOs() throws Exception {
+        ObjectMapper objectMapper = "smile".equals(format) ? new ObjectMapper(new SmileFactory()) : new ObjectMapper();
+        CollectionType listType = TypeFactory.defaultInstance().constructCollectionType(List.class, TodoDTO.class);
+        listWriter = objectMapper.writerWithType(listType);
+        listReader = objectMapper.reader(listType);
+
+        dtos = TodoJsonBenchmark.createDTOs(size);
+        encoded = listWriter.writeValueAsBytes(dtos);
+        System.out.printf("%n%d to-do entries are %d bytes in %s%n", size, encoded.length, format);
+    }
+
+    @Benchmark
+    public byte[] writeList() throws Exception {
+        return listWriter.writeValueAsBytes(dtos);
+    }
+
+    @Benchmark
+    public List<TodoDTO> readList() throws Exception {
+        return listReader.readValue(encoded);
+    }
+}
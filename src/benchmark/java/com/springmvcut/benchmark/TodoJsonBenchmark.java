@@ -0,0 +1,69 @@
+package com.springmvcut.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.springmvcut.dto.TodoDTO;
+
+/**
+ * Measures the Jackson serialization of the to-do lists that are returned by the REST API.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TodoJsonBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter listWriter;
+    private List<TodoDTO> dtos;
+
+    @Setup
+    public void createDTOs() {
+        objectMapper = new ObjectMapper();
+        listWriter = objectMapper.writerWithType(TypeFactory.defaultInstance().constructCollectionType(List.class, TodoDTO.class));
+        dtos = createDTOs(size);
+    }
+
+    @Benchmark
+    public byte[] writeList() throws Exception {
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+
+    @Benchmark
+    public byte[] writeListWithTypedWriter() throws Exception {
+        return listWriter.writeValueAsBytes(dtos);
+    }
+
+    static List<TodoDTO> createDTOs(int size) {
+        DateTime modificationTime = DateTime.now();
+        List<TodoDTO> dtos = new ArrayList<TodoDTO>(size);
+        for (int index = 0; index < size; index++) {
+            dtos.add(new TodoDTO(1000000L + index, "title " + index, "description of the to-do entry " + index,
+                    (long) index, modificationTime));
+        }
+        return dtos;
+    }
+}
@@ -0,0 +1,131 @@
+package com.springmvcut.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import com.springmvcut.common.web.AsyncRequestExecutor;
+import com.springmvcut.controller.TodoRESTController;
+import com.springmvcut.dto.TodoDTO;
+import com.springmvcut.dto.TodoListVersionDTO;
+import com.springmvcut.service.TodoService;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Measures the requests of the REST API through the Spring MVC dispatcher, from the handler
+ * mapping to the JSON response body. The service returns prepared DTOs, so the database is
+ * not measured.
+ * <p>
+ * The DTOs are created by the repository queries, so the controller no longer converts the
+ * entities itself; <code>findAll</code> covers what remains of that path.
+ * <p>
+ * The handler methods run on the {@link AsyncRequestExecutor}, so a request includes the
+ * hand-off to its thread and the dispatch of the result.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TodoRESTControllerBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    private int size;
+
+    private AsyncRequestExecutor asyncExecutor;
+    private MockMvc mockMvc;
+
+    @Setup
+    public void createMockMvc() {
+        asyncExecutor = new AsyncRequestExecutor(4, 1000, 10000);
+        asyncExecutor.start();
+        mockMvc = MockMvcBuilders.standaloneSetup(new TodoRESTController(createTodoService(size), asyncExecutor)).build();
+    }
+
+    @TearDown
+    public void stopAsyncExecutor() throws InterruptedException {
+        asyncExecutor.stop();
+    }
+
+    @Benchmark
+    public MvcResult findAll() throws Exception {
+        return perform(get("/api/todo").accept(MediaType.APPLICATION_JSON));
+    }
+
+    @Benchmark
+    public MvcResult findPage() throws Exception {
+        return perform(get("/api/todo").param("limit", String.valueOf(size)).accept(MediaType.APPLICATION_JSON));
+    }
+
+    @Benchmark
+    public MvcResult findById() throws Exception {
+        return perform(get("/api/todo/{id}", 1000000L).accept(MediaType.APPLICATION_JSON));
+    }
+
+    /**
+     * MockMvc does not wait for a result that is set by another thread, so it is waited for here.
+     */
+    private MvcResult perform(RequestBuilder requestBuilder) throws Exception {
+        MvcResult started = mockMvc.perform(requestBuilder).andReturn();
+
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(started.getRequest());
+        while (!asyncManager.hasConcurrentResult()) {
+            Thread.yield();
+        }
+
+        return mockMvc.perform(asyncDispatch(started)).andReturn();
+    }
+
+    /**
+     * Mockito records every invocation of a mock, which would fill the heap during a
+     * benchmark, so the service is a plain proxy.
+     */
+    private static TodoService createTodoService(int size) {
+        final List<TodoDTO> dtos = TodoJsonBenchmark.createDTOs(size);
+        final TodoListVersionDTO listVersion = new TodoListVersionDTO((long) size, DateTime.now());
+
+        return (TodoService) Proxy.newProxyInstance(TodoService.class.getClassLoader(), new Class<?>[] {TodoService.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if (name.equals("findAllDTOs") || name.equals("findAfter")) {
+                            return dtos;
+                        }
+                        if (name.equals("findDTOById")) {
+                            return dtos.get(0);
+                        }
+                        if (name.equals("findListVersion")) {
+                            return listVersion;
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+    }
+}
@@ -0,0 +1,153 @@
+package com.springmvcut.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import com.springmvcut.dto.TodoBatchDTO;
+import com.springmvcut.dto.TodoDTO;
+import com.springmvcut.model.Todo;
+import com.springmvcut.service.TodoService;
+
+/**
+ * Measures the CRUD operations of the service against the embedded HSQL database of the
+ * default profile, with the caches, the search index and the change feed in place. The table
+ * holds <code>size</code> to-do entries before every iteration.
+ * <p>
+ * <code>addAll</code> adds a full batch per invocation, but its score is per to-do entry, so it
+ * can be compared with <code>add</code> directly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TodoServiceBenchmark {
+
+    @Param({"1000", "10000"})
+    private int size;
+
+    private ClassPathXmlApplicationContext context;
+    private TodoService todoService;
+
+    private List<Long> seededIds;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final List<Long> addedIds = Collections.synchronizedList(new ArrayList<Long>());
+
+    private TodoDTO entry;
+    private List<TodoDTO> batch;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = new ClassPathXmlApplicationContext("applicationContext.xml");
+        todoService = context.getBean(TodoService.class);
+
+        entry = new TodoDTO(null, "title", "description");
+        batch = createEntries(TodoBatchDTO.MAX_SIZE);
+
+        seededIds = new ArrayList<Long>(size);
+        List<TodoDTO> seeded = createEntries(size);
+        for (int from = 0; from < size; from += TodoBatchDTO.MAX_SIZE) {
+            int to = Math.min(from + TodoBatchDTO.MAX_SIZE, size);
+            for (Todo added: todoService.addAll(seeded.subList(from, to))) {
+                seededIds.add(added.getId());
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteAdded() throws Exception {
+        for (Long id: addedIds) {
+            todoService.deleteById(id);
+        }
+        addedIds.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public Todo add() {
+        Todo added = todoService.add(entry);
+        addedIds.add(added.getId());
+        return added;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TodoBatchDTO.MAX_SIZE)
+    public List<Todo> addAll() {
+        List<Todo> added = todoService.addAll(batch);
+        for (Todo model: added) {
+            addedIds.add(model.getId());
+        }
+        return added;
+    }
+
+    @Benchmark
+    public TodoDTO findDTOById() throws Exception {
+        return todoService.findDTOById(nextSeededId());
+    }
+
+    @Benchmark
+    public List<TodoDTO> findAllDTOs() {
+        return todoService.findAllDTOs();
+    }
+
+    @Benchmark
+    public Todo update() throws Exception {
+        return todoService.update(new TodoDTO(nextSeededId(), "updated title", "updated description"));
+    }
+
+    @Benchmark
+    public Todo deleteById(DeletedEntry deleted) throws Exception {
+        return todoService.deleteById(deleted.id);
+    }
+
+    private Long nextSeededId() {
+        return seededIds.get((cursor.getAndIncrement() & Integer.MAX_VALUE) % seededIds.size());
+    }
+
+    private static List<TodoDTO> createEntries(int entryCount) {
+        List<TodoDTO> entries = new ArrayList<TodoDTO>(entryCount);
+        for (int index = 0; index < entryCount; index++) {
+            entries.add(new TodoDTO(null, "title " + index, "description " + index));
+        }
+        return entries;
+    }
+
+    /**
+     * Adds the to-do entry that is deleted by one invocation, so the deletions do not shrink
+     * the seeded table.
+     */
+    @State(Scope.Thread)
+    public static class DeletedEntry {
+
+        private Long id;
+
+        @Setup(Level.Invocation)
+        public void add(TodoServiceBenchmark benchmark) {
+            id = benchmark.todoService.add(benchmark.entry).getId();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.springmvcut.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.springmvcut.dto.TodoDTO;
+import com.springmvcut.model.Todo;
+
+/**
+ * Measures the string representations that are written to the debug log of every request.
+ * The reflective variant is the baseline that the hand-written methods replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TodoToStringBenchmark {
+
+    private Todo model;
+    private TodoDTO dto;
+
+    @Setup
+    public void createTodo() {
+        model = Todo.getBuilder("title of the to-do entry")
+                .description("description of the to-do entry")
+                .build();
+        model.prePersist();
+        dto = new TodoDTO(1000000L, "title of the to-do entry", "description of the to-do entry", 1L, DateTime.now());
+    }
+
+    @Benchmark
+    public String todo() {
+        return model.toString();
+    }
+
+    @Benchmark
+    public String todoDTO() {
+        return dto.toString();
+    }
+
+    @Benchmark
+    public String todoDTOReflection() {
+        return ToStringBuilder.reflectionToString(dto);
+    }
+}
@@ -0,0 +1,85 @@
+package com.springmvcut.build;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Writes a gzip copy of every static resource that has one of the given extensions, so that
+ * the web application sends the copies without compressing the resources on every request, see
+ * {@link com.springmvcut.common.web.PrecompressedResourceHttpRequestHandler}. The copies are
+ * compressed with the best compression, have the modification time of their resources, and are
+ * skipped if they are not smaller than the resources. The pom runs it when the war is packaged:
+ * <p>
+ * <code>PrecompressResources &lt;source directory&gt; &lt;target directory&gt; &lt;extensions&gt;</code>
+ */
+public final class PrecompressResources {
+
+    private PrecompressResources() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            throw new IllegalArgumentException("Usage: PrecompressResources <source directory> <target directory> <comma separated extensions>");
+        }
+        File targetDirectory = new File(args[1]);
+        Set<String> extensions = new HashSet<String>(Arrays.asList(args[2].split(",")));
+
+        int count = precompress(new File(args[0]), targetDirectory, extensions);
+        System.out.println("Precompressed " + count + " static resources into " + targetDirectory);
+    }
+
+    private static int precompress(File sourceDirectory, File targetDirectory, Set<String> extensions) throws IOException {
+        File[] files = sourceDirectory.listFiles();
+        if (files == null) {
+            throw new IOException("Not a directory: " + sourceDirectory);
+        }
+
+        int count = 0;
+        for (File file: files) {
+            if (file.isDirectory()) {
+                count += precompress(file, new File(targetDirectory, file.getName()), extensions);
+            }
+            else if (extensions.contains(extensionOf(file)) && gzip(file, new File(targetDirectory, file.getName() + ".gz"))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static String extensionOf(File file) {
+        String name = file.getName();
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    private static boolean gzip(File file, File gzipped) throws IOException {
+        byte[] content = FileCopyUtils.copyToByteArray(file);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length);
+        GZIPOutputStream out = new GZIPOutputStream(compressed) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        };
+        out.write(content);
+        out.close();
+
+        if (compressed.size() >= content.length) {
+            return false;
+        }
+        if (!gzipped.getParentFile().isDirectory() && !gzipped.getParentFile().mkdirs()) {
+            throw new IOException("Could not create directory: " + gzipped.getParentFile());
+        }
+        FileCopyUtils.copy(compressed.toByteArray(), gzipped);
+        if (!gzipped.setLastModified(file.lastModified())) {
+            throw new IOException("Could not set the modification time of: " + gzipped);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,108 @@
+package com.springmvcut.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+
+/**
+ * Sends the requests of the load test. The connections are kept alive by the JDK, which reuses
+ * a connection when the body of the previous response has been read completely. Cookies are
+ * only sent when they are given, so the page flows that need a session carry it themselves.
+ */
+class LoadClient {
+
+    static final String JSON = "application/json";
+    static final String FORM = "application/x-www-form-urlencoded";
+    static final String HTML = "text/html";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final int READ_TIMEOUT_MILLIS = 30000;
+
+    private final String baseUrl;
+
+    LoadClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    Response get(String path, String accept) throws IOException {
+        return send("GET", path, accept, null, null, null);
+    }
+
+    Response send(String method, String path, String accept, String contentType, String body) throws IOException {
+        return send(method, path, accept, contentType, body, null);
+    }
+
+    /**
+     * @param cookie    The value of the Cookie header, or <code>null</code>.
+     */
+    Response send(String method, String path, String accept, String contentType, String body, String cookie)
+            throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setInstanceFollowRedirects(false);
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        connection.setRequestProperty("Accept", accept);
+        if (cookie != null) {
+            connection.setRequestProperty("Cookie", cookie);
+        }
+
+        if (body != null) {
+            byte[] bytes = body.getBytes(UTF_8);
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", contentType + ";charset=UTF-8");
+            connection.setFixedLengthStreamingMode(bytes.length);
+            OutputStream out = connection.getOutputStream();
+            try {
+                out.write(bytes);
+            }
+            finally {
+                out.close();
+            }
+        }
+
+        int status = connection.getResponseCode();
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        String setCookie = connection.getHeaderField("Set-Cookie");
+        return new Response(status, read(in), connection.getHeaderField("Location"),
+                setCookie == null ? null : setCookie.split(";", 2)[0]);
+    }
+
+    private static String read(InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, count);
+            }
+            return new String(bytes.toByteArray(), UTF_8);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    static class Response {
+
+        final int status;
+        final String body;
+        final String location;
+        final String cookie;
+
+        Response(int status, String body, String location, String cookie) {
+            this.status = status;
+            this.body = body;
+            this.location = location;
+            this.cookie = cookie;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.springmvcut.loadtest;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.coyote.AbstractProtocol;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springmvcut.common.concurrent.VirtualThreads;
+import com.springmvcut.common.metrics.LatencyHistogram;
+import com.springmvcut.loadtest.LoadClient.Response;
+import com.springmvcut.loadtest.OpenLoopGenerator.OperationResult;
+import com.springmvcut.loadtest.OpenLoopGenerator.Result;
+
+/**
+ * Boots the web application in an embedded Tomcat and measures the throughput and the latency
+ * percentiles of a mix of REST requests and page flows, from the servlet filters to the
+ * database. The test is configured with system properties, see the load-test profile of the
+ * pom. The exit status is 1 if the results regressed against the stored baseline:
+ * <ul>
+ *     <li>the throughput is lower than the baseline by more than <code>loadtest.maxThroughputDrop</code>, or</li>
+ *     <li>the 99th percentile of an operation is higher than the baseline by more than <code>loadtest.maxP99Increase</code>.</li>
+ * </ul>
+ * Any failed operation fails the test as well. The baseline is only compared when it was
+ * recorded with the same rate and mix. It is overwritten with the results when
+ * <code>loadtest.updateBaseline</code> is true.
+ * <p>
+ * Tomcat runs the requests on virtual threads when <code>loadtest.virtualThreads</code> is
+ * true, which needs Java 21 or later. It then uses the NIO connector, because the blocking
+ * connector waits for the next request of a connection while it holds a monitor, and a virtual
+ * thread that blocks in a monitor keeps its carrier thread.
+ */
+public class LoadTest {
+
+    private static final String DEFAULT_MIX = "api-get:30,api-page:15,api-add:10,api-update:10,api-delete:15,"
+            + "html-list:5,html-view:10,html-add:5";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final double rate;
+    private final String mix;
+    private final int connections;
+
+    private LoadTest(double rate, String mix, int connections) {
+        this.rate = rate;
+        this.mix = mix;
+        this.connections = connections;
+    }
+
+    public static void main(String[] args) throws Exception {
+        double rate = Double.parseDouble(System.getProperty("loadtest.rate", "100"));
+        String mix = System.getProperty("loadtest.mix", DEFAULT_MIX);
+        int connections = Integer.getInteger("loadtest.connections", 64);
+
+        //The JDK keeps only 5 idle connections per server alive by default.
+        System.setProperty("http.maxConnections", String.valueOf(connections));
+
+        Tomcat tomcat = startServer(System.getProperty("loadtest.webapp", "src/main/webapp"), Integer.getInteger("loadtest.port", 0));
+        boolean regressed;
+        try {
+            regressed = new LoadTest(rate, mix, connections).run(
+                    new LoadClient("http://localhost:" + tomcat.getConnector().getLocalPort()),
+                    Integer.getInteger("loadtest.seed", 500),
+                    TimeUnit.SECONDS.toMillis(Integer.getInteger("loadtest.warmupSeconds", 30)),
+                    TimeUnit.SECONDS.toMillis(Integer.getInteger("loadtest.durationSeconds", 60)),
+                    new File(System.getProperty("loadtest.report", "target/load-test-report.json")),
+                    new File(System.getProperty("loadtest.baseline", "src/loadtest/resources/load-test-baseline.properties")));
+        }
+        finally {
+            tomcat.stop();
+        }
+
+        //The application leaves non-daemon threads behind.
+        System.exit(regressed ? 1 : 0);
+    }
+
+    private static Tomcat startServer(String webappDirectory, int port) throws Exception {
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(new File("target/load-test-tomcat").getAbsolutePath());
+        tomcat.setPort(port);
+        tomcat.addWebapp("", new File(webappDirectory).getAbsolutePath());
+        if (Boolean.getBoolean("loadtest.virtualThreads")) {
+            Connector connector = new Connector("org.apache.coyote.http11.Http11NioProtocol");
+            connector.setPort(port);
+            tomcat.getService().addConnector(connector);
+            tomcat.setConnector(connector);
+            ((AbstractProtocol) connector.getProtocolHandler()).setExecutor(VirtualThreads.newThreadPerTaskExecutor("http"));
+            System.out.println("Running the requests on virtual threads");
+        }
+        tomcat.start();
+        return tomcat;
+    }
+
+    /**
+     * @return  <code>true</code> if the results regressed against the baseline.
+     */
+    private boolean run(LoadClient client, int seedCount, long warmupMillis, long durationMillis, File reportFile, File baselineFile)
+            throws Exception {
+        TodoIdPool ids = seed(client, seedCount);
+        OpenLoopGenerator generator = new OpenLoopGenerator(client, ids, parseMix(mix), connections);
+
+        System.out.printf("Warming up for %d s at %.1f operations/s%n", TimeUnit.MILLISECONDS.toSeconds(warmupMillis), rate);
+        generator.run(rate, warmupMillis);
+
+        System.out.printf("Measuring for %d s at %.1f operations/s%n", TimeUnit.MILLISECONDS.toSeconds(durationMillis), rate);
+        Result result = generator.run(rate, durationMillis);
+
+        Map<String, Object> report = createReport(result);
+        printReport(report);
+        reportFile.getParentFile().mkdirs();
+        OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(reportFile, report);
+        System.out.println("Wrote the report to " + reportFile);
+
+        if (Boolean.getBoolean("loadtest.updateBaseline")) {
+            writeBaseline(report, baselineFile);
+            System.out.println("Wrote the baseline to " + baselineFile);
+            return false;
+        }
+
+        List<String> regressions = compareWithBaseline(report, baselineFile,
+                Double.parseDouble(System.getProperty("loadtest.maxThroughputDrop", "0.10")),
+                Double.parseDouble(System.getProperty("loadtest.maxP99Increase", "0.50")));
+        for (String regression: regressions) {
+            System.out.println("REGRESSION: " + regression);
+        }
+        return !regressions.isEmpty();
+    }
+
+    private static TodoIdPool seed(LoadClient client, int seedCount) throws IOException {
+        TodoIdPool ids = new TodoIdPool();
+        StringBuilder batch = new StringBuilder("[");
+        for (int index = 0; index < seedCount; index++) {
+            if (index > 0) {
+                batch.append(',');
+            }
+            batch.append("{\"title\":\"seed ").append(index).append("\",\"description\":\"seeded entry ").append(index).append("\"}");
+        }
+        batch.append(']');
+
+        if (seedCount > 0) {
+            Response response = client.send("POST", "/api/todo/batch", LoadClient.JSON, LoadClient.JSON, batch.toString());
+            if (response.status != 200) {
+                throw new IllegalStateException("Could not seed the to-do entries: " + response.status + " " + response.body);
+            }
+            for (JsonNode id: OBJECT_MAPPER.readTree(response.body)) {
+                ids.add(id.asLong());
+            }
+        }
+        return ids;
+    }
+
+    private static Map<TodoOperation, Integer> parseMix(String mix) {
+        Map<TodoOperation, Integer> weights = new LinkedHashMap<TodoOperation, Integer>();
+        for (String entry: mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            weights.put(TodoOperation.fromName(parts[0]), Integer.valueOf(parts[1]));
+        }
+        return weights;
+    }
+
+    private Map<String, Object> createReport(Result result) {
+        double elapsedSeconds = result.getElapsedNanos() / 1e9;
+
+        Map<String, Object> report = new LinkedHashMap<String, Object>();
+        report.put("rate", rate);
+        report.put("mix", mix);
+        report.put("connections", connections);
+        report.put("durationSeconds", TimeUnit.MILLISECONDS.toSeconds(result.getDurationMillis()));
+        report.put("total", createOperationReport(result.getTotal(), elapsedSeconds));
+
+        Map<String, Object> operations = new LinkedHashMap<String, Object>();
+        for (Map.Entry<TodoOperation, OperationResult> entry: result.getOperations().entrySet()) {
+            if (entry.getValue().getResponseMicros().getCount() > 0) {
+                operations.put(entry.getKey().getName(), createOperationReport(entry.getValue(), elapsedSeconds));
+            }
+        }
+        report.put("operations", operations);
+        return report;
+    }
+
+    private static Map<String, Object> createOperationReport(OperationResult result, double elapsedSeconds) {
+        LatencyHistogram response = result.getResponseMicros();
+        long count = response.getCount();
+
+        Map<String, Object> report = new LinkedHashMap<String, Object>();
+        report.put("count", count);
+        report.put("errors", result.getErrors());
+        report.put("throughput", (count - result.getErrors()) / elapsedSeconds);
+        report.put("p50Millis", millis(response.getValueAtPercentile(50.0)));
+        report.put("p90Millis", millis(response.getValueAtPercentile(90.0)));
+        report.put("p99Millis", millis(response.getValueAtPercentile(99.0)));
+        report.put("p999Millis", millis(response.getValueAtPercentile(99.9)));
+        report.put("maxMillis", millis(response.getMax()));
+        report.put("uncorrectedP99Millis", millis(result.getServiceMicros().getValueAtPercentile(99.0)));
+        return report;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printReport(Map<String, Object> report) {
+        System.out.printf("%-12s %8s %7s %10s %9s %9s %9s %9s %9s %14s%n",
+                "operation", "count", "errors", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "uncorr. p99 ms");
+        Map<String, Object> operations = (Map<String, Object>) report.get("operations");
+        for (Map.Entry<String, Object> entry: operations.entrySet()) {
+            printRow(entry.getKey(), (Map<String, Object>) entry.getValue());
+        }
+        printRow("total", (Map<String, Object>) report.get("total"));
+    }
+
+    private static void printRow(String name, Map<String, Object> row) {
+        System.out.printf("%-12s %8d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %14.2f%n", name,
+                row.get("count"), row.get("errors"), row.get("throughput"), row.get("p50Millis"), row.get("p90Millis"),
+                row.get("p99Millis"), row.get("p999Millis"), row.get("maxMillis"), row.get("uncorrectedP99Millis"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeBaseline(Map<String, Object> report, File baselineFile) throws IOException {
+        Properties baseline = new Properties();
+        baseline.setProperty("rate", String.valueOf(report.get("rate")));
+        baseline.setProperty("mix", String.valueOf(report.get("mix")));
+        baseline.setProperty("throughput", String.valueOf(((Map<String, Object>) report.get("total")).get("throughput")));
+
+        Map<String, Object> operations = (Map<String, Object>) report.get("operations");
+        for (Map.Entry<String, Object> entry: operations.entrySet()) {
+            baseline.setProperty(entry.getKey() + ".p99Millis", String.valueOf(((Map<String, Object>) entry.getValue()).get("p99Millis")));
+        }
+
+        OutputStream out = new FileOutputStream(baselineFile);
+        try {
+            baseline.store(out, "Load test baseline, written with -Dloadtest.updateBaseline=true");
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> compareWithBaseline(Map<String, Object> report, File baselineFile, double maxThroughputDrop,
+                                                    double maxP99Increase) throws IOException {
+        List<String> regressions = new ArrayList<String>();
+        long errors = (Long) ((Map<String, Object>) report.get("total")).get("errors");
+        if (errors > 0) {
+            regressions.add(errors + " operations failed");
+        }
+
+        if (!baselineFile.isFile()) {
+            System.out.println("No baseline found at " + baselineFile + ", skipping the comparison");
+            return regressions;
+        }
+
+        Properties baseline = new Properties();
+        InputStream in = new FileInputStream(baselineFile);
+        try {
+            baseline.load(in);
+        }
+        finally {
+            in.close();
+        }
+
+        if (Double.parseDouble(baseline.getProperty("rate")) != (Double) report.get("rate")
+                || !baseline.getProperty("mix").equals(report.get("mix"))) {
+            System.out.println("The baseline was recorded with another rate or mix, skipping the comparison");
+            return regressions;
+        }
+
+        double baselineThroughput = Double.parseDouble(baseline.getProperty("throughput"));
+        double throughput = (Double) ((Map<String, Object>) report.get("total")).get("throughput");
+        if (throughput < baselineThroughput * (1 - maxThroughputDrop)) {
+            regressions.add(String.format("throughput %.1f ops/s, baseline %.1f ops/s", throughput, baselineThroughput));
+        }
+
+        Map<String, Object> operations = (Map<String, Object>) report.get("operations");
+        for (Map.Entry<String, Object> entry: operations.entrySet()) {
+            String baselineP99 = baseline.getProperty(entry.getKey() + ".p99Millis");
+            if (baselineP99 == null) {
+                continue;
+            }
+            double p99 = (Double) ((Map<String, Object>) entry.getValue()).get("p99Millis");
+            if (p99 > Double.parseDouble(baselineP99) * (1 + maxP99Increase)) {
+                regressions.add(String.format("%s p99 %.2f ms, baseline %s ms", entry.getKey(), p99, baselineP99));
+            }
+        }
+        return regressions;
+    }
+}
@@ -0,0 +1,191 @@
+package com.springmvcut.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.springmvcut.common.metrics.LatencyHistogram;
+
+/**
+ * Starts the operations at a constant arrival rate, whether or not the earlier operations have
+ * completed, like the users of a public site do. The response time of an operation is measured
+ * from the moment it should have started, so the time an operation waits for a free connection
+ * behind a stalled server is counted. Measuring from the actual start would hide the stall,
+ * which is known as coordinated omission; that service time is recorded for comparison.
+ */
+class OpenLoopGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OpenLoopGenerator.class);
+
+    private final LoadClient client;
+    private final TodoIdPool ids;
+    private final TodoOperation[] operations;
+    private final int[] cumulativeWeights;
+    private final int connections;
+
+    /**
+     * @param weights       The relative frequencies of the operations.
+     * @param connections   The maximum number of concurrent requests.
+     */
+    OpenLoopGenerator(LoadClient client, TodoIdPool ids, Map<TodoOperation, Integer> weights, int connections) {
+        this.client = client;
+        this.ids = ids;
+        this.connections = connections;
+        this.operations = weights.keySet().toArray(new TodoOperation[weights.size()]);
+        this.cumulativeWeights = new int[operations.length];
+
+        int total = 0;
+        for (int index = 0; index < operations.length; index++) {
+            total += weights.get(operations[index]);
+            cumulativeWeights[index] = total;
+        }
+    }
+
+    /**
+     * Runs the operations for the given time and waits until the started operations have completed.
+     *
+     * @param ratePerSecond     The number of operations started per second.
+     */
+    Result run(double ratePerSecond, long durationMillis) throws InterruptedException {
+        Result result = new Result(durationMillis);
+        ExecutorService executor = Executors.newFixedThreadPool(connections);
+        Random random = new Random();
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+
+        for (long intendedStart = start; intendedStart < end; intendedStart += intervalNanos) {
+            long delay = intendedStart - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            executor.execute(new Execution(next(random), intendedStart, result));
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private TodoOperation next(Random random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = 0;
+        while (value >= cumulativeWeights[index]) {
+            index++;
+        }
+        return operations[index];
+    }
+
+    private class Execution implements Runnable {
+
+        private final TodoOperation operation;
+        private final long intendedStart;
+        private final Result result;
+
+        Execution(TodoOperation operation, long intendedStart, Result result) {
+            this.operation = operation;
+            this.intendedStart = intendedStart;
+            this.result = result;
+        }
+
+        @Override
+        public void run() {
+            long actualStart = System.nanoTime();
+            boolean succeeded;
+            try {
+                succeeded = operation.execute(client, ids);
+            }
+            catch (Exception ex) {
+                LOGGER.debug("Operation {} failed", operation.getName(), ex);
+                succeeded = false;
+            }
+            long completed = System.nanoTime();
+            result.record(operation, succeeded, completed - intendedStart, completed - actualStart);
+        }
+    }
+
+    /**
+     * The latencies of one run in microseconds.
+     */
+    static class Result {
+
+        private final long durationMillis;
+        private final Map<TodoOperation, OperationResult> operations = new EnumMap<TodoOperation, OperationResult>(TodoOperation.class);
+        private final OperationResult total = new OperationResult();
+        private volatile long elapsedNanos;
+
+        Result(long durationMillis) {
+            this.durationMillis = durationMillis;
+            for (TodoOperation operation: TodoOperation.values()) {
+                operations.put(operation, new OperationResult());
+            }
+        }
+
+        private void record(TodoOperation operation, boolean succeeded, long responseNanos, long serviceNanos) {
+            operations.get(operation).record(succeeded, responseNanos, serviceNanos);
+            total.record(succeeded, responseNanos, serviceNanos);
+        }
+
+        long getDurationMillis() {
+            return durationMillis;
+        }
+
+        /**
+         * @return  The time from the first scheduled operation until the last one completed.
+         */
+        long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        Map<TodoOperation, OperationResult> getOperations() {
+            return operations;
+        }
+
+        OperationResult getTotal() {
+            return total;
+        }
+    }
+
+    static class OperationResult {
+
+        private final LatencyHistogram responseMicros = new LatencyHistogram();
+        private final LatencyHistogram serviceMicros = new LatencyHistogram();
+        private final AtomicLong errors = new AtomicLong();
+
+        private void record(boolean succeeded, long responseNanos, long serviceNanos) {
+            if (!succeeded) {
+                errors.incrementAndGet();
+            }
+            responseMicros.record(TimeUnit.NANOSECONDS.toMicros(responseNanos));
+            serviceMicros.record(TimeUnit.NANOSECONDS.toMicros(serviceNanos));
+        }
+
+        /**
+         * @return  The times from the scheduled start to the completion, corrected for coordinated omission.
+         */
+        LatencyHistogram getResponseMicros() {
+            return responseMicros;
+        }
+
+        /**
+         * @return  The times from the actual start to the completion.
+         */
+        LatencyHistogram getServiceMicros() {
+            return serviceMicros;
+        }
+
+        long getErrors() {
+            return errors.get();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.springmvcut.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The ids of the to-do entries that exist on the server, so the operations can read, update
+ * and delete entries that were added by the seed or by other operations.
+ */
+class TodoIdPool {
+
+    private final List<Long> ids = new ArrayList<Long>();
+    private final Random random = new Random();
+
+    synchronized void add(Long id) {
+        ids.add(id);
+    }
+
+    /**
+     * @return  A random id, or <code>null</code> if the pool is empty.
+     */
+    synchronized Long pick() {
+        return ids.isEmpty() ? null : ids.get(random.nextInt(ids.size()));
+    }
+
+    /**
+     * Removes a random id, so no other operation deletes the same entry.
+     *
+     * @return  The removed id, or <code>null</code> if the pool is empty.
+     */
+    synchronized Long remove() {
+        if (ids.isEmpty()) {
+            return null;
+        }
+        int index = random.nextInt(ids.size());
+        Long last = ids.remove(ids.size() - 1);
+        return index == ids.size() ? last : ids.set(index, last);
+    }
+
+    synchronized int size() {
+        return ids.size();
+    }
+}
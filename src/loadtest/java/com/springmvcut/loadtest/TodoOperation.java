@@ -0,0 +1,138 @@
+package com.springmvcut.loadtest;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springmvcut.loadtest.LoadClient.Response;
+
+/**
+ * The requests and page flows that the load test mixes. An operation returns
+ * <code>false</code> if the server answered with an unexpected status. Reading, updating or
+ * viewing an entry that another operation deleted concurrently is not an error.
+ */
+enum TodoOperation {
+
+    API_GET("api-get") {
+        @Override
+        boolean execute(LoadClient client, TodoIdPool ids) throws IOException {
+            Long id = ids.pick();
+            return id != null && isOkOrNotFound(client.get("/api/todo/" + id, LoadClient.JSON));
+        }
+    },
+
+    API_PAGE("api-page") {
+        @Override
+        boolean execute(LoadClient client, TodoIdPool ids) throws IOException {
+            return client.get("/api/todo?limit=" + PAGE_SIZE, LoadClient.JSON).status == 200;
+        }
+    },
+
+    API_ADD("api-add") {
+        @Override
+        boolean execute(LoadClient client, TodoIdPool ids) throws IOException {
+            Response response = client.send("POST", "/api/todo", LoadClient.JSON, LoadClient.JSON, createJson(null));
+            if (response.status != 200) {
+                return false;
+            }
+            ids.add(OBJECT_MAPPER.readTree(response.body).get("id").asLong());
+            return true;
+        }
+    },
+
+    API_UPDATE("api-update") {
+        @Override
+        boolean execute(LoadClient client, TodoIdPool ids) throws IOException {
+            Long id = ids.pick();
+            return id != null && isOkOrNotFound(client.send("PUT", "/api/todo/" + id, LoadClient.JSON, LoadClient.JSON, createJson(id)));
+        }
+    },
+
+    API_DELETE("api-delete") {
+        @Override
+        boolean execute(LoadClient client, TodoIdPool ids) throws IOException {
+            Long id = ids.remove();
+            return id != null && client.send("DELETE", "/api/todo/" + id, LoadClient.JSON, null, null).status == 200;
+        }
+    },
+
+    HTML_LIST("html-list") {
+        @Override
+        boolean execute(LoadClient client, TodoIdPool ids) throws IOException {
+            return client.get("/", LoadClient.HTML).status == 200;
+        }
+    },
+
+    HTML_VIEW("html-view") {
+        @Override
+        boolean execute(LoadClient client, TodoIdPool ids) throws IOException {
+            Long id = ids.pick();
+            return id != null && isOkOrNotFound(client.get("/todo/" + id, LoadClient.HTML));
+        }
+    },
+
+    /**
+     * Opens the form, submits it and follows the redirect to the page of the new entry. The form
+     * object is kept in the session, so the session cookie of the form is sent back.
+     */
+    HTML_ADD("html-add") {
+        @Override
+        boolean execute(LoadClient client, TodoIdPool ids) throws IOException {
+            Response formPage = client.get("/todo/add", LoadClient.HTML);
+            if (formPage.status != 200) {
+                return false;
+            }
+
+            long sequence = SEQUENCE.incrementAndGet();
+            String form = "title=" + URLEncoder.encode("title " + sequence, "UTF-8")
+                    + "&description=" + URLEncoder.encode("description " + sequence, "UTF-8");
+            Response response = client.send("POST", "/todo/add", LoadClient.HTML, LoadClient.FORM, form, formPage.cookie);
+            if (response.status != 302 || response.location == null) {
+                return false;
+            }
+
+            String path = response.location.replaceFirst("^https?://[^/]+", "");
+            if (client.send("GET", path, LoadClient.HTML, null, null, formPage.cookie).status != 200) {
+                return false;
+            }
+            String viewPath = path.replaceFirst(";.*$", "");
+            ids.add(Long.valueOf(viewPath.substring(viewPath.lastIndexOf('/') + 1)));
+            return true;
+        }
+    };
+
+    private static final int PAGE_SIZE = 20;
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final String name;
+
+    private TodoOperation(String name) {
+        this.name = name;
+    }
+
+    abstract boolean execute(LoadClient client, TodoIdPool ids) throws IOException;
+
+    String getName() {
+        return name;
+    }
+
+    static TodoOperation fromName(String name) {
+        for (TodoOperation operation: values()) {
+            if (operation.name.equals(name)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation: " + name);
+    }
+
+    private static String createJson(Long id) {
+        long sequence = SEQUENCE.incrementAndGet();
+        return "{\"id\":" + id + ",\"title\":\"title " + sequence + "\",\"description\":\"description " + sequence + "\"}";
+    }
+
+    private static boolean isOkOrNotFound(Response response) {
+        return response.status == 200 || response.status == 404;
+    }
+}
@@ -0,0 +1,405 @@
+package com.springmvcut.common.batch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+
+/**
+ * Writes items that are submitted by concurrent threads in shared batches. A single writer thread
+ * takes the submitted items from a bounded queue and writes them with one call to
+ * {@link #write(List)} as soon as the batch is full or the oldest item has waited for the maximum
+ * delay. Because only the writer commits, the number of commits per second depends on how long
+ * a commit takes instead of on the number of submitting threads.
+ * <p>
+ * A submitting thread either waits until the batch of its item is written, or passes a
+ * {@link WriteListener} that the writer calls, so that no thread is parked per pending item and
+ * a batch can have more items than there are submitting threads. If the queue is full, the item
+ * is rejected so that the callers slow down instead of piling up. If a batch fails, its items are
+ * written one at a time so that a single bad item only fails its own caller. An item that is
+ * cancelled, or whose waiting thread times out, before the writer takes it is never written.
+ *
+ * @param <T>   The type of the submitted items.
+ * @param <R>   The type of the results of the written items.
+ */
+public abstract class GroupCommitQueue<T, R> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroupCommitQueue.class);
+
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final BlockingQueue<Pending> queue;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final long offerTimeoutMillis;
+    private final long awaitTimeoutMillis;
+
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong itemCount = new AtomicLong();
+    private final AtomicLong failedBatchCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong cancelledCount = new AtomicLong();
+
+    /**
+     * Items are offered under the read lock, so no item is queued after the writer is told to stop.
+     */
+    private final ReadWriteLock runningLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+    private Thread writer;
+
+    /**
+     * @param queueCapacity         The maximum number of items that wait to be written.
+     * @param maxBatchSize          The maximum number of items written in one batch.
+     * @param maxDelayMillis        How long the writer waits for more items after the first item of
+     *                              a batch. With 0 a batch contains the items that are queued when
+     *                              the previous batch is done.
+     * @param offerTimeoutMillis    How long a submitting thread waits for room in a full queue.
+     * @param awaitTimeoutMillis    How long a waiting submitting thread waits until its item is
+     *                              written.
+     */
+    protected GroupCommitQueue(int queueCapacity, int maxBatchSize, long maxDelayMillis, long offerTimeoutMillis,
+                               long awaitTimeoutMillis) {
+        this.queue = new ArrayBlockingQueue<Pending>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.awaitTimeoutMillis = awaitTimeoutMillis;
+    }
+
+    /**
+     * Writes the items in one transaction.
+     * @param batch The items.
+     * @return  The results of the items in the same order.
+     */
+    protected abstract List<R> write(List<T> batch);
+
+    public synchronized void start() {
+        if (writer != null) {
+            return;
+        }
+        running = true;
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeBatches();
+            }
+        }, getClass().getSimpleName() + "-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stops accepting items and waits until the queued items are written.
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        runningLock.writeLock().lock();
+        try {
+            running = false;
+        }
+        finally {
+            runningLock.writeLock().unlock();
+        }
+        writer.join();
+        writer = null;
+    }
+
+    /**
+     * Queues the item and waits until its batch is written.
+     * @param item  The item.
+     * @return  The result of the item.
+     * @throws RejectedExecutionException   If the queue is full, the queue is stopped or the item
+     *                                      is not written in time. An item that the writer has
+     *                                      already taken when the wait times out is still written.
+     */
+    public R submit(T item) {
+        AwaitingListener<R> listener = new AwaitingListener<R>();
+        Pending pending = new Pending(item, listener);
+        if (!offer(pending, offerTimeoutMillis)) {
+            rejectedCount.incrementAndGet();
+            throw new RejectedExecutionException("The write queue is full or stopped");
+        }
+        return listener.await(pending, awaitTimeoutMillis);
+    }
+
+    /**
+     * Queues the item without waiting. The writer calls the listener when the batch of the item
+     * has been written.
+     * @param item      The item.
+     * @param listener  Receives the result of the item.
+     * @return  The queued item, which can be cancelled until the writer takes it.
+     * @throws RejectedExecutionException   If the queue is full or the queue is stopped.
+     */
+    public PendingWrite submit(T item, WriteListener<R> listener) {
+        Pending pending = new Pending(item, listener);
+        if (!offer(pending, 0)) {
+            rejectedCount.incrementAndGet();
+            throw new RejectedExecutionException("The write queue is full or stopped");
+        }
+        return pending;
+    }
+
+    private boolean offer(Pending pending, long timeoutMillis) {
+        runningLock.readLock().lock();
+        try {
+            return running && queue.offer(pending, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        finally {
+            runningLock.readLock().unlock();
+        }
+    }
+
+    private void writeBatches() {
+        List<Pending> batch = new ArrayList<Pending>(maxBatchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                Pending first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                collectBatch(batch, System.nanoTime() + maxDelayNanos);
+                flush(batch);
+                batch.clear();
+            }
+        }
+        catch (InterruptedException ex) {
+            LOGGER.warn("The writer was interrupted");
+        }
+        finally {
+            //Nothing may wait forever for a writer that is gone. No item is queued after running
+            //is cleared, so the items that are left in the queue now are all failed here.
+            runningLock.writeLock().lock();
+            try {
+                running = false;
+            }
+            finally {
+                runningLock.writeLock().unlock();
+            }
+            batch.addAll(queue);
+            for (Pending pending: batch) {
+                pending.fail(new RejectedExecutionException("The write queue was stopped"));
+            }
+        }
+    }
+
+    private void collectBatch(List<Pending> batch, long deadline) throws InterruptedException {
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0) {
+                return;
+            }
+
+            Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        //The writer owns the items that are not cancelled, so they can no longer be cancelled.
+        for (int index = batch.size() - 1; index >= 0; index--) {
+            if (!batch.get(index).take()) {
+                batch.remove(index);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<T> items = new ArrayList<T>(batch.size());
+        for (Pending pending: batch) {
+            items.add(pending.item);
+        }
+
+        batchCount.incrementAndGet();
+        itemCount.addAndGet(items.size());
+        try {
+            List<R> results = write(items);
+            for (int index = 0; index < batch.size(); index++) {
+                batch.get(index).complete(results.get(index));
+            }
+            return;
+        }
+        catch (RuntimeException ex) {
+            failedBatchCount.incrementAndGet();
+            if (batch.size() == 1) {
+                batch.get(0).fail(ex);
+                return;
+            }
+            LOGGER.warn("Writing a batch of {} items failed, writing them one at a time", batch.size(), ex);
+        }
+
+        for (Pending pending: batch) {
+            try {
+                pending.complete(write(Collections.singletonList(pending.item)).get(0));
+            }
+            catch (RuntimeException ex) {
+                pending.fail(ex);
+            }
+        }
+    }
+
+    @ManagedAttribute(description = "Number of written batches")
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of written items")
+    public long getItemCount() {
+        return itemCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of batches that were written one item at a time after a failure")
+    public long getFailedBatchCount() {
+        return failedBatchCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of items that were rejected because the queue was full")
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of items that were cancelled before they were written")
+    public long getCancelledCount() {
+        return cancelledCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of items waiting to be written")
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private final class Pending implements PendingWrite {
+
+        private static final int QUEUED = 0;
+        private static final int TAKEN = 1;
+        private static final int DONE = 2;
+        private static final int CANCELLED = 3;
+
+        private final T item;
+        private final WriteListener<R> listener;
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        Pending(T item, WriteListener<R> listener) {
+            this.item = item;
+            this.listener = listener;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(QUEUED, CANCELLED)) {
+                return false;
+            }
+            queue.remove(this);
+            cancelledCount.incrementAndGet();
+            return true;
+        }
+
+        /**
+         * Called by the writer before it writes the item.
+         * @return  <code>false</code> if the item was cancelled.
+         */
+        boolean take() {
+            return state.compareAndSet(QUEUED, TAKEN);
+        }
+
+        void complete(R result) {
+            if (finish()) {
+                try {
+                    listener.onWritten(result);
+                }
+                catch (RuntimeException ex) {
+                    LOGGER.warn("The listener of a written item failed", ex);
+                }
+            }
+        }
+
+        void fail(RuntimeException failure) {
+            if (finish()) {
+                try {
+                    listener.onFailed(failure);
+                }
+                catch (RuntimeException ex) {
+                    LOGGER.warn("The listener of a failed item failed", ex);
+                }
+            }
+        }
+
+        private boolean finish() {
+            return state.compareAndSet(TAKEN, DONE) || state.compareAndSet(QUEUED, DONE);
+        }
+    }
+
+    private static class AwaitingListener<R> implements WriteListener<R> {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private R result;
+        private RuntimeException failure;
+
+        @Override
+        public void onWritten(R result) {
+            this.result = result;
+            done.countDown();
+        }
+
+        @Override
+        public void onFailed(RuntimeException failure) {
+            this.failure = failure;
+            done.countDown();
+        }
+
+        /**
+         * Waits even if the thread is interrupted, because the item is written anyway. If the
+         * wait times out, the item is cancelled unless the writer has already taken it.
+         */
+        R await(PendingWrite pending, long timeoutMillis) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            boolean interrupted = false;
+            boolean completed = false;
+            while (true) {
+                try {
+                    completed = done.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    break;
+                }
+                catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (!completed) {
+                pending.cancel();
+                throw new RejectedExecutionException("The item was not written in " + timeoutMillis + " ms");
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return result;
+        }
+    }
+}
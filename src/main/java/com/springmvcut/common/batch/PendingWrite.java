@@ -0,0 +1,15 @@
+package com.springmvcut.common.batch;
+
+/**
+ * An item that waits in a {@link GroupCommitQueue} for its batch.
+ */
+public interface PendingWrite {
+
+    /**
+     * Removes the item from its batch if the writer has not taken it yet. The listener of a
+     * cancelled item is not called.
+     * @return  <code>true</code> if the item will not be written, and <code>false</code> if it
+     *          is being written or has already been written.
+     */
+    public boolean cancel();
+}
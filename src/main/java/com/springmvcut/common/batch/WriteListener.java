@@ -0,0 +1,22 @@
+package com.springmvcut.common.batch;
+
+/**
+ * Receives the outcome of an item that was submitted to a {@link GroupCommitQueue} without
+ * waiting. The methods are called by the writer thread, so they must not block.
+ *
+ * @param <R>   The type of the result of the written item.
+ */
+public interface WriteListener<R> {
+
+    /**
+     * Called when the batch of the item has been committed.
+     * @param result    The result of the item.
+     */
+    public void onWritten(R result);
+
+    /**
+     * Called when the item could not be written or the queue was stopped before it was written.
+     * @param failure   The reason.
+     */
+    public void onFailed(RuntimeException failure);
+}
@@ -0,0 +1,367 @@
+package com.springmvcut.common.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded cache whose eviction policy is W-TinyLFU. New entries are added to a small
+ * LRU window. When an entry falls out of the window, it is admitted to the main space only
+ * if it has been accessed more often than the entry the main space would evict for it.
+ * The access frequencies are estimated with a {@link FrequencySketch}. The main space is
+ * a segmented LRU: entries that are accessed while they are on probation are promoted to
+ * the protected segment. This keeps the popular entries cached even when a scan over
+ * many entries that are read once goes through the cache.
+ * <p>
+ * Reads do not block. Hits are recorded only if the policy lock is free, so some accesses
+ * are lost when there is contention. This is acceptable because the frequencies and the
+ * recency order are only used as hints for eviction.
+ * <p>
+ * If an expiration time is given, an entry that was written longer ago than that is not
+ * returned anymore. The read that finds it expired removes it when the policy lock is free,
+ * and otherwise it is replaced by the next write or evicted.
+ */
+public class TinyLfuCache<K, V> {
+
+    private static final int WINDOW_PERCENTAGE = 1;
+    private static final int PROTECTED_PERCENTAGE = 80;
+    private static final int MAX_SKETCH_ENTRIES = 1 << 20;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<K, Node<K, V>>();
+    private final ReentrantLock policyLock = new ReentrantLock();
+
+    private final Weigher<? super K, ? super V> weigher;
+    private final FrequencySketch sketch;
+
+    private final long maximumWeight;
+    private final long maximumWindowWeight;
+    private final long maximumProtectedWeight;
+    private final long expireAfterWriteNanos;
+
+    private final Node<K, V> window = Node.sentinel();
+    private final Node<K, V> probation = Node.sentinel();
+    private final Node<K, V> protectedSegment = Node.sentinel();
+
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * @param maximumWeight     The maximum total weight of the cached entries.
+     * @param expectedEntries   The number of entries that fit in the cache when the entries
+     *                          have their typical weight. Used to size the frequency sketch.
+     * @param weigher           Calculates the weights of the entries.
+     */
+    public TinyLfuCache(long maximumWeight, int expectedEntries, Weigher<? super K, ? super V> weigher) {
+        this(maximumWeight, expectedEntries, 0, weigher);
+    }
+
+    /**
+     * @param maximumWeight             The maximum total weight of the cached entries.
+     * @param expectedEntries           The number of entries that fit in the cache when the
+     *                                  entries have their typical weight. Used to size the
+     *                                  frequency sketch.
+     * @param expireAfterWriteMillis    The time after which an entry expires when it has not
+     *                                  been written again. Zero means that the entries never
+     *                                  expire.
+     * @param weigher                   Calculates the weights of the entries.
+     */
+    public TinyLfuCache(long maximumWeight, int expectedEntries, long expireAfterWriteMillis,
+                        Weigher<? super K, ? super V> weigher) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("The maximum weight must be positive but was " + maximumWeight);
+        }
+        if (expireAfterWriteMillis < 0) {
+            throw new IllegalArgumentException("The expiration time must not be negative but was " + expireAfterWriteMillis);
+        }
+
+        this.maximumWeight = maximumWeight;
+        this.maximumWindowWeight = Math.max(1, maximumWeight * WINDOW_PERCENTAGE / 100);
+        this.maximumProtectedWeight = (maximumWeight - maximumWindowWeight) * PROTECTED_PERCENTAGE / 100;
+        this.expireAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(expireAfterWriteMillis);
+        this.weigher = weigher;
+        this.sketch = new FrequencySketch(Math.min(MAX_SKETCH_ENTRIES, expectedEntries));
+    }
+
+    /**
+     * @param key   The key of the wanted entry.
+     * @return  The cached value or <code>null</code> if the key is not cached or its entry
+     *          has expired.
+     */
+    public V get(K key) {
+        Node<K, V> node = data.get(key);
+        long now = expireAfterWriteNanos > 0 ? System.nanoTime() : 0;
+        boolean expired = node != null && isExpired(node, now);
+
+        if (node == null || expired) {
+            missCount.incrementAndGet();
+        }
+        else {
+            hitCount.incrementAndGet();
+        }
+
+        if (policyLock.tryLock()) {
+            try {
+                sketch.increment(key);
+                if (expired) {
+                    //The entry may have been written again or removed after it was read.
+                    if (data.get(key) == node && isExpired(node, now)) {
+                        remove(node);
+                    }
+                }
+                else if (node != null && node.queue != null) {
+                    onAccess(node);
+                }
+            }
+            finally {
+                policyLock.unlock();
+            }
+        }
+
+        return node == null || expired ? null : node.value;
+    }
+
+    /**
+     * Caches a value. If the key is already cached, its value is replaced.
+     * @param key   The key of the entry.
+     * @param value The cached value.
+     */
+    public void put(K key, V value) {
+        int weight = weigher.weigh(key, value);
+        long now = expireAfterWriteNanos > 0 ? System.nanoTime() : 0;
+
+        policyLock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node == null) {
+                node = new Node<K, V>(key, value, weight, now);
+                data.put(key, node);
+                sketch.increment(key);
+                link(window, node);
+                windowWeight += weight;
+            }
+            else {
+                adjustWeight(node, weight - node.weight);
+                node.weight = weight;
+                node.value = value;
+                node.writeTime = now;
+                onAccess(node);
+            }
+            evict();
+        }
+        finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Removes an entry from the cache.
+     * @param key   The key of the removed entry.
+     */
+    public void invalidate(K key) {
+        policyLock.lock();
+        try {
+            Node<K, V> node = data.remove(key);
+            if (node != null) {
+                adjustWeight(node, -node.weight);
+                unlink(node);
+            }
+        }
+        finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public void invalidateAll() {
+        policyLock.lock();
+        try {
+            data.clear();
+            window.prev = window.next = window;
+            probation.prev = probation.next = probation;
+            protectedSegment.prev = protectedSegment.next = protectedSegment;
+            windowWeight = probationWeight = protectedWeight = 0;
+        }
+        finally {
+            policyLock.unlock();
+        }
+    }
+
+    public void resetStatistics() {
+        hitCount.set(0);
+        missCount.set(0);
+        evictionCount.set(0);
+    }
+
+    public long size() {
+        return data.size();
+    }
+
+    public long weightedSize() {
+        policyLock.lock();
+        try {
+            return windowWeight + probationWeight + protectedWeight;
+        }
+        finally {
+            policyLock.unlock();
+        }
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public long hitCount() {
+        return hitCount.get();
+    }
+
+    public long missCount() {
+        return missCount.get();
+    }
+
+    public long evictionCount() {
+        return evictionCount.get();
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos;
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (node.queue == window) {
+            moveToTail(window, node);
+        }
+        else if (node.queue == probation) {
+            unlink(node);
+            probationWeight -= node.weight;
+            link(protectedSegment, node);
+            protectedWeight += node.weight;
+
+            while (protectedWeight > maximumProtectedWeight && protectedSegment.next != node) {
+                Node<K, V> demoted = protectedSegment.next;
+                unlink(demoted);
+                protectedWeight -= demoted.weight;
+                link(probation, demoted);
+                probationWeight += demoted.weight;
+            }
+        }
+        else if (node.queue == protectedSegment) {
+            moveToTail(protectedSegment, node);
+        }
+    }
+
+    private void evict() {
+        while (windowWeight > maximumWindowWeight && window.next != window) {
+            Node<K, V> candidate = window.next;
+            unlink(candidate);
+            windowWeight -= candidate.weight;
+            link(probation, candidate);
+            probationWeight += candidate.weight;
+        }
+
+        while (windowWeight + probationWeight + protectedWeight > maximumWeight) {
+            Node<K, V> victim = headOfMainSpace();
+            if (victim == null) {
+                remove(window.next);
+                continue;
+            }
+
+            //The tail of the probation segment is the entry that was admitted last.
+            Node<K, V> candidate = probation.prev;
+            if (candidate == probation || candidate == victim
+                    || sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                remove(victim);
+            }
+            else {
+                remove(candidate);
+            }
+        }
+    }
+
+    private Node<K, V> headOfMainSpace() {
+        if (probation.next != probation) {
+            return probation.next;
+        }
+        if (protectedSegment.next != protectedSegment) {
+            return protectedSegment.next;
+        }
+        return null;
+    }
+
+    private void remove(Node<K, V> node) {
+        data.remove(node.key, node);
+        adjustWeight(node, -node.weight);
+        unlink(node);
+        evictionCount.incrementAndGet();
+    }
+
+    private void adjustWeight(Node<K, V> node, int delta) {
+        if (node.queue == window) {
+            windowWeight += delta;
+        }
+        else if (node.queue == probation) {
+            probationWeight += delta;
+        }
+        else if (node.queue == protectedSegment) {
+            protectedWeight += delta;
+        }
+    }
+
+    private static <K, V> void link(Node<K, V> queue, Node<K, V> node) {
+        node.queue = queue;
+        node.prev = queue.prev;
+        node.next = queue;
+        queue.prev.next = node;
+        queue.prev = node;
+    }
+
+    private static <K, V> void unlink(Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        node.queue = null;
+    }
+
+    private static <K, V> void moveToTail(Node<K, V> queue, Node<K, V> node) {
+        unlink(node);
+        link(queue, node);
+    }
+
+    /**
+     * An entry of the cache and an element of the doubly linked list of its segment. The head
+     * of a segment is its least recently used entry.
+     */
+    private static final class Node<K, V> {
+
+        final K key;
+        volatile V value;
+        int weight;
+        volatile long writeTime;
+
+        Node<K, V> queue;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, int weight, long writeTime) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = writeTime;
+        }
+
+        static <K, V> Node<K, V> sentinel() {
+            Node<K, V> sentinel = new Node<K, V>(null, null, 0, 0);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.springmvcut.common.cache;
+
+/**
+ * Calculates the weight of a cache entry. The weights of the entries of a cache are
+ * compared against the maximum weight of the cache.
+ */
+public interface Weigher<K, V> {
+
+    /**
+     * @param key   The key of the entry.
+     * @param value The value of the entry.
+     * @return  The weight of the entry. Must be positive.
+     */
+    public int weigh(K key, V value);
+}
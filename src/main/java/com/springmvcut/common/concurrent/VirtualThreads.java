@@ -0,0 +1,68 @@
+package com.springmvcut.common.concurrent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates executors that run every task on a new virtual thread. Virtual threads need Java 21
+ * or later, while the application is compiled for older JVMs, so they are created through
+ * reflection.
+ * <p>
+ * A virtual thread that blocks in JDBC or in socket I/O releases its carrier thread, so a
+ * blocked request costs a small heap object instead of a platform thread and its stack. The
+ * number of concurrent requests is then limited by the connection pool and not by the number
+ * of threads.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return  <code>true</code> if the JVM supports virtual threads.
+     */
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        }
+        catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * @param namePrefix    The prefix of the thread names, which are numbered from 1.
+     * @return  An executor that starts a new virtual thread for every task.
+     * @throws IllegalStateException    If the JVM does not support virtual threads.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later, the JVM is "
+                    + System.getProperty("java.version"));
+        }
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix + "-", 1L);
+            ThreadFactory threadFactory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory);
+        }
+        catch (ClassNotFoundException ex) {
+            throw new IllegalStateException("Could not create a virtual thread executor", ex);
+        }
+        catch (NoSuchMethodException ex) {
+            throw new IllegalStateException("Could not create a virtual thread executor", ex);
+        }
+        catch (IllegalAccessException ex) {
+            throw new IllegalStateException("Could not create a virtual thread executor", ex);
+        }
+        catch (InvocationTargetException ex) {
+            throw new IllegalStateException("Could not create a virtual thread executor", ex.getCause());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.springmvcut.common.controller;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import com.springmvcut.dto.CacheStatisticsDTO;
+import com.springmvcut.service.CacheStatisticsService;
+
+@Controller
+public class CacheStatisticsController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheStatisticsController.class);
+
+    private final CacheStatisticsService cacheStatisticsService;
+
+    @Autowired
+    public CacheStatisticsController(CacheStatisticsService cacheStatisticsService) {
+        this.cacheStatisticsService = cacheStatisticsService;
+    }
+
+    @RequestMapping(value = "/api/cache/statistics", method = RequestMethod.GET)
+    @ResponseBody
+    public List<CacheStatisticsDTO> findAll() {
+        LOGGER.debug("Finding the statistics of all cache regions.");
+        return cacheStatisticsService.findAll();
+    }
+
+    @RequestMapping(value = "/api/cache/statistics", method = RequestMethod.DELETE)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void clear() {
+        LOGGER.debug("Clearing the statistics of all cache regions.");
+        cacheStatisticsService.clear();
+    }
+}
@@ -0,0 +1,162 @@
+package com.springmvcut.common.controller;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang.StringUtils;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Evaluates the validators of conditional GET requests. The validators are written to the
+ * response, and the status of the response is set to 304 (Not Modified) if the client already
+ * has the current representation. When <code>If-None-Match</code> is given, it takes precedence
+ * over <code>If-Modified-Since</code> as required by RFC 7232.
+ * <p>
+ * The responses are marked with <code>Cache-Control: no-cache</code> so that browsers revalidate
+ * them on every request instead of showing a representation they consider fresh.
+ * <p>
+ * Asynchronous handler methods must not write to the response from another thread. They read
+ * the {@link Preconditions} of the request on the request thread and return the response that
+ * {@link #createResponse(Preconditions, String, DateTime, Object)} creates.
+ */
+public final class ConditionalRequests {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConditionalRequests.class);
+
+    public static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    public static final String HEADER_ETAG = "ETag";
+    public static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+    public static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    public static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    public static final String HEADER_VARY = "Vary";
+
+    public static final String WEAK_PREFIX = "W/";
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * @param parts The values the tag is derived from.
+     * @return  A strong entity tag whose value is the given parts separated by dashes.
+     */
+    public static String entityTag(Object... parts) {
+        return "\"" + StringUtils.join(parts, '-') + "\"";
+    }
+
+    /**
+     * Writes the validators to the response and checks whether the client has the current
+     * representation.
+     * @param request       The request.
+     * @param response      The response.
+     * @param entityTag     The entity tag of the current representation.
+     * @param lastModified  The modification time of the current representation, or
+     *                      <code>null</code> if it is not known.
+     * @return  <code>true</code> if the status was set to 304 and no body must be written.
+     */
+    public static boolean checkNotModified(HttpServletRequest request,
+                                           HttpServletResponse response,
+                                           String entityTag,
+                                           DateTime lastModified) {
+        response.setHeader(HEADER_ETAG, entityTag);
+        response.setHeader(HEADER_CACHE_CONTROL, "no-cache");
+        if (lastModified != null) {
+            response.setDateHeader(HEADER_LAST_MODIFIED, lastModified.getMillis());
+        }
+
+        boolean notModified = Preconditions.of(request).isNotModified(entityTag, lastModified);
+        if (notModified) {
+            LOGGER.debug("Representation with entity tag: {} is not modified", entityTag);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+        return notModified;
+    }
+
+    /**
+     * Creates the response of a conditional GET request. The body is written in the media type
+     * that the client accepts, so the response varies by <code>Accept</code>.
+     * @param preconditions The preconditions of the request.
+     * @param entityTag     The entity tag of the current representation.
+     * @param lastModified  The modification time of the current representation, or
+     *                      <code>null</code> if it is not known.
+     * @param body          The current representation.
+     * @return  A response with the validators, whose status is 304 without a body if the client
+     *          has the current representation, and 200 with the body otherwise.
+     */
+    public static <T> ResponseEntity<T> createResponse(Preconditions preconditions,
+                                                       String entityTag,
+                                                       DateTime lastModified,
+                                                       T body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HEADER_ETAG, entityTag);
+        headers.set(HEADER_CACHE_CONTROL, "no-cache");
+        headers.set(HEADER_VARY, "Accept");
+        if (lastModified != null) {
+            headers.setLastModified(lastModified.getMillis());
+        }
+
+        if (preconditions.isNotModified(entityTag, lastModified)) {
+            LOGGER.debug("Representation with entity tag: {} is not modified", entityTag);
+            return new ResponseEntity<T>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        return new ResponseEntity<T>(body, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Compares the tags with the weak comparison function, which RFC 7232 requires for
+     * <code>If-None-Match</code>.
+     */
+    private static boolean matches(String ifNoneMatch, String entityTag) {
+        for (String candidate: ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith(WEAK_PREFIX)) {
+                tag = tag.substring(WEAK_PREFIX.length());
+            }
+            if (tag.equals(entityTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The <code>If-None-Match</code> and <code>If-Modified-Since</code> headers of a request.
+     */
+    public static final class Preconditions {
+
+        private final String ifNoneMatch;
+        private final long ifModifiedSince;
+
+        private Preconditions(String ifNoneMatch, long ifModifiedSince) {
+            this.ifNoneMatch = ifNoneMatch;
+            this.ifModifiedSince = ifModifiedSince;
+        }
+
+        public static Preconditions of(HttpServletRequest request) {
+            long ifModifiedSince;
+            try {
+                ifModifiedSince = request.getDateHeader(HEADER_IF_MODIFIED_SINCE);
+            }
+            catch (IllegalArgumentException ex) {
+                LOGGER.debug("Ignoring an invalid If-Modified-Since header", ex);
+                ifModifiedSince = -1;
+            }
+            return new Preconditions(request.getHeader(HEADER_IF_NONE_MATCH), ifModifiedSince);
+        }
+
+        boolean isNotModified(String entityTag, DateTime lastModified) {
+            if (ifNoneMatch != null) {
+                return matches(ifNoneMatch, entityTag);
+            }
+            //HTTP dates have a precision of one second.
+            return lastModified != null && ifModifiedSince >= 0 && lastModified.getMillis() / 1000 <= ifModifiedSince / 1000;
+        }
+    }
+}
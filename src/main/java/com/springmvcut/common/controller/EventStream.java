@@ -0,0 +1,136 @@
+package com.springmvcut.common.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Writes Server-Sent Events to an asynchronous response. The request thread returns as soon as
+ * the stream is started, and the events are written later by other threads. The response ends
+ * when the stream is completed, when it times out or when writing fails. Browsers reconnect
+ * automatically and send the id of the last event they received in the
+ * <code>Last-Event-ID</code> header.
+ */
+public class EventStream {
+
+    public static final String CONTENT_TYPE = "text/event-stream";
+    public static final String HEADER_LAST_EVENT_ID = "Last-Event-ID";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final AsyncContext asyncContext;
+    private final OutputStream out;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private EventStream(AsyncContext asyncContext, OutputStream out) {
+        this.asyncContext = asyncContext;
+        this.out = out;
+    }
+
+    /**
+     * Starts the asynchronous processing of the request and writes the headers of the stream.
+     * @param request           The request.
+     * @param response          The response.
+     * @param timeoutMillis     How long the stream stays open.
+     * @param retryMillis       How long the client waits before it reconnects.
+     * @param onClose           Called once when the stream is completed or fails.
+     * @return  The started stream.
+     */
+    public static EventStream start(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    long timeoutMillis,
+                                    long retryMillis,
+                                    final Runnable onClose) throws IOException {
+        response.setContentType(CONTENT_TYPE + ";charset=" + UTF_8.name());
+        response.setHeader(ConditionalRequests.HEADER_CACHE_CONTROL, "no-cache");
+
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(timeoutMillis);
+
+        final EventStream stream = new EventStream(asyncContext, response.getOutputStream());
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                stream.closed(onClose);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                stream.complete();
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                stream.complete();
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+
+        stream.write("retry: " + retryMillis + "\n\n");
+        return stream;
+    }
+
+    /**
+     * @param id    The id of the event, or <code>null</code> if the event has no id.
+     * @param event The name of the event, or <code>null</code> for a message event.
+     * @param data  The data of the event.
+     */
+    public void send(String id, String event, String data) throws IOException {
+        StringBuilder message = new StringBuilder(data.length() + 32);
+        if (id != null) {
+            message.append("id: ").append(id).append('\n');
+        }
+        if (event != null) {
+            message.append("event: ").append(event).append('\n');
+        }
+        for (String line: data.split("\r\n|\r|\n", -1)) {
+            message.append("data: ").append(line).append('\n');
+        }
+        message.append('\n');
+        write(message.toString());
+    }
+
+    /**
+     * Writes a comment that clients ignore, which keeps idle connections open and reveals
+     * clients that have gone away.
+     */
+    public void sendComment(String comment) throws IOException {
+        write(": " + comment + "\n\n");
+    }
+
+    private synchronized void write(String message) throws IOException {
+        if (closed.get()) {
+            throw new IOException("The event stream is closed");
+        }
+        out.write(message.getBytes(UTF_8));
+        out.flush();
+        asyncContext.getResponse().flushBuffer();
+    }
+
+    public void complete() {
+        if (!closed.get()) {
+            try {
+                asyncContext.complete();
+            }
+            catch (IllegalStateException ex) {
+                //The container has already completed the request.
+            }
+        }
+    }
+
+    private void closed(Runnable onClose) {
+        if (closed.compareAndSet(false, true)) {
+            onClose.run();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.springmvcut.common.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import com.springmvcut.dto.HibernateStatisticsDTO;
+import com.springmvcut.service.HibernateStatisticsService;
+
+@Controller
+public class HibernateStatisticsController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HibernateStatisticsController.class);
+
+    private final HibernateStatisticsService hibernateStatisticsService;
+
+    @Autowired
+    public HibernateStatisticsController(HibernateStatisticsService hibernateStatisticsService) {
+        this.hibernateStatisticsService = hibernateStatisticsService;
+    }
+
+    @RequestMapping(value = "/api/hibernate/statistics", method = RequestMethod.GET)
+    @ResponseBody
+    public HibernateStatisticsDTO find() {
+        LOGGER.debug("Finding the statistics of the session factory.");
+        return hibernateStatisticsService.find();
+    }
+
+    @RequestMapping(value = "/api/hibernate/statistics", method = RequestMethod.DELETE)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void clear() {
+        LOGGER.debug("Clearing the statistics of the session factory.");
+        hibernateStatisticsService.clear();
+    }
+}
@@ -0,0 +1,117 @@
+package com.springmvcut.common.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import com.springmvcut.common.metrics.HandlerLatencyRegistry;
+import com.springmvcut.common.metrics.LatencyHistogram;
+import com.springmvcut.dto.RequestLatencyDTO;
+
+/**
+ * Reports the request latencies of the handler methods as JSON, or in the Prometheus text
+ * format when the client accepts <code>text/plain</code>.
+ */
+@Controller
+public class MetricsController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsController.class);
+
+    protected static final String MEDIA_TYPE_JSON_UTF8 = "application/json;charset=UTF-8";
+    protected static final MediaType MEDIA_TYPE_PROMETHEUS = MediaType.parseMediaType("text/plain; version=0.0.4; charset=UTF-8");
+
+    private static final String METRIC_REQUEST_DURATION = "http_server_request_duration_seconds";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double MICROS_PER_SECOND = 1000000.0;
+
+    private final HandlerLatencyRegistry registry;
+
+    @Autowired
+    public MetricsController(HandlerLatencyRegistry registry) {
+        this.registry = registry;
+    }
+
+    @RequestMapping(value = "/metrics", method = RequestMethod.GET, produces = MEDIA_TYPE_JSON_UTF8)
+    @ResponseBody
+    public List<RequestLatencyDTO> findAll() {
+        LOGGER.debug("Finding the request latencies.");
+
+        double elapsedSeconds = Math.max(1, System.currentTimeMillis() - registry.getStartMillis()) / 1000.0;
+        List<HandlerLatencyRegistry.Entry> entries = registry.getEntries();
+
+        List<RequestLatencyDTO> dtos = new ArrayList<RequestLatencyDTO>(entries.size());
+        for (HandlerLatencyRegistry.Entry entry: entries) {
+            LatencyHistogram histogram = entry.getHistogram();
+            dtos.add(new RequestLatencyDTO(entry.getHandler(),
+                    entry.getStatusClass(),
+                    histogram.getCount(),
+                    histogram.getCount() / elapsedSeconds,
+                    histogram.getMean(),
+                    histogram.getValueAtPercentile(50.0),
+                    histogram.getValueAtPercentile(90.0),
+                    histogram.getValueAtPercentile(99.0),
+                    histogram.getValueAtPercentile(99.9),
+                    histogram.getMax()));
+        }
+        return dtos;
+    }
+
+    /**
+     * The latencies are reported in seconds as a summary, and their maximums as a gauge.
+     */
+    @RequestMapping(value = "/metrics", method = RequestMethod.GET, produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<String> findAllAsPrometheusText() {
+        LOGGER.debug("Finding the request latencies in the Prometheus text format.");
+
+        List<HandlerLatencyRegistry.Entry> entries = registry.getEntries();
+        StringBuilder text = new StringBuilder(256 + entries.size() * 1024);
+
+        text.append("# HELP ").append(METRIC_REQUEST_DURATION).append(" Latency of the requests handled by a controller method.\n");
+        text.append("# TYPE ").append(METRIC_REQUEST_DURATION).append(" summary\n");
+        for (HandlerLatencyRegistry.Entry entry: entries) {
+            LatencyHistogram histogram = entry.getHistogram();
+            for (double quantile: QUANTILES) {
+                appendSample(text, METRIC_REQUEST_DURATION, entry, ",quantile=\"" + quantile + "\"",
+                        histogram.getValueAtPercentile(quantile * 100.0) / MICROS_PER_SECOND);
+            }
+            appendSample(text, METRIC_REQUEST_DURATION + "_sum", entry, "", histogram.getSum() / MICROS_PER_SECOND);
+            appendSample(text, METRIC_REQUEST_DURATION + "_count", entry, "", histogram.getCount());
+        }
+
+        text.append("# HELP ").append(METRIC_REQUEST_DURATION).append("_max Longest request handled by a controller method.\n");
+        text.append("# TYPE ").append(METRIC_REQUEST_DURATION).append("_max gauge\n");
+        for (HandlerLatencyRegistry.Entry entry: entries) {
+            appendSample(text, METRIC_REQUEST_DURATION + "_max", entry, "", entry.getHistogram().getMax() / MICROS_PER_SECOND);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MEDIA_TYPE_PROMETHEUS);
+        return new ResponseEntity<String>(text.toString(), headers, HttpStatus.OK);
+    }
+
+    private static void appendSample(StringBuilder text, String name, HandlerLatencyRegistry.Entry entry, String labels, Number value) {
+        text.append(name)
+                .append("{handler=\"").append(entry.getHandler())
+                .append("\",status=\"").append(entry.getStatusClass()).append('"')
+                .append(labels)
+                .append("} ").append(value).append('\n');
+    }
+
+    @RequestMapping(value = "/metrics", method = RequestMethod.DELETE)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void reset() {
+        LOGGER.debug("Resetting the request latencies.");
+        registry.reset();
+    }
+}
@@ -2,6 +2,10 @@ package com.springmvcut.common.controller;
 
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,6 +23,7 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 
 import com.springmvcut.dto.ValidationErrorDTO;
 import com.springmvcut.exception.TodoNotFoundException;
+import com.springmvcut.exception.TodoVersionConflictException;
 
 /**
  * @author Petri Kainulainen
@@ -28,6 +33,9 @@ public class RestErrorHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RestErrorHandler.class);
 
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
+    private static final String RETRY_AFTER_SECONDS = "1";
+
     private MessageSource messageSource;
 
     @Autowired
@@ -76,5 +84,25 @@ public class RestErrorHandler {
         LOGGER.debug("handling 404 error on a todo entry");
     }
 
+    @ExceptionHandler(TodoVersionConflictException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public void handleTodoVersionConflictException(TodoVersionConflictException ex) {
+        LOGGER.debug("handling 412 error on a todo entry");
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public void handleRejectedExecutionException(RejectedExecutionException ex, HttpServletResponse response) {
+        LOGGER.debug("handling 503 error: {}", ex.getMessage());
+        response.setHeader(HEADER_RETRY_AFTER, RETRY_AFTER_SECONDS);
+    }
+
+    @ExceptionHandler(TimeoutException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public void handleTimeoutException(TimeoutException ex, HttpServletResponse response) {
+        LOGGER.debug("handling 503 error: {}", ex.getMessage());
+        response.setHeader(HEADER_RETRY_AFTER, RETRY_AFTER_SECONDS);
+    }
+
 
 }
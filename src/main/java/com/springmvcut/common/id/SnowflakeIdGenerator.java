@@ -0,0 +1,105 @@
+package com.springmvcut.common.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates unique 64-bit ids without a database round trip. Like Twitter's Snowflake, an id
+ * consists of
+ * <ul>
+ *     <li>41 bits of milliseconds since {@link #EPOCH_MILLIS}, which lasts until 2083,</li>
+ *     <li>10 bits of node id, which must be different for every JVM that generates ids for the
+ *     same table, and</li>
+ *     <li>12 bits of sequence number within the millisecond.</li>
+ * </ul>
+ * The ids of a node increase monotonically, and the ids of all nodes are roughly ordered by
+ * time, so new rows are appended to the end of the primary key index.
+ * <p>
+ * Generating an id is lock-free. If the 4096 ids of a millisecond are used up, the generator
+ * waits for the next millisecond. If the clock moves backwards, the generator keeps counting
+ * in the last millisecond it has seen, so it never hands out an id twice while it is running.
+ * The ids of a restarted node may collide with ids it generated before the restart if the
+ * clock was moved back by more than the restart took.
+ */
+public class SnowflakeIdGenerator {
+
+    /**
+     * 2014-01-01T00:00:00Z
+     */
+    public static final long EPOCH_MILLIS = 1388534400000L;
+
+    static final int NODE_ID_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int TIMESTAMP_BITS = 63 - NODE_ID_BITS - SEQUENCE_BITS;
+
+    public static final int MAX_NODE_ID = (1 << NODE_ID_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long MAX_TIMESTAMP = (1L << TIMESTAMP_BITS) - 1;
+
+    private final int nodeId;
+
+    /**
+     * The timestamp and the sequence number of the last id, which is the id without the node id.
+     */
+    private final AtomicLong last = new AtomicLong();
+
+    /**
+     * @param nodeId    The node id between 0 and {@link #MAX_NODE_ID}.
+     */
+    public SnowflakeIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + " but was: " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public long nextId() {
+        while (true) {
+            long current = last.get();
+            long now = timestamp() << SEQUENCE_BITS;
+            long next = Math.max(now, current + 1);
+
+            if (next > now && (next >>> SEQUENCE_BITS) != (current >>> SEQUENCE_BITS)) {
+                //The sequence of the current millisecond is exhausted.
+                Thread.yield();
+                continue;
+            }
+            if (last.compareAndSet(current, next)) {
+                return (next >>> SEQUENCE_BITS) << (NODE_ID_BITS + SEQUENCE_BITS)
+                        | (long) nodeId << SEQUENCE_BITS
+                        | next & SEQUENCE_MASK;
+            }
+        }
+    }
+
+    private long timestamp() {
+        long timestamp = currentTimeMillis() - EPOCH_MILLIS;
+        if (timestamp < 0 || timestamp > MAX_TIMESTAMP) {
+            throw new IllegalStateException("Cannot generate ids at time: " + currentTimeMillis());
+        }
+        return timestamp;
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * @return  The time in milliseconds since the Unix epoch when the given id was generated.
+     */
+    public static long timeMillisOf(long id) {
+        return (id >>> (NODE_ID_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    public static int nodeIdOf(long id) {
+        return (int) (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+
+    public static int sequenceOf(long id) {
+        return (int) (id & SEQUENCE_MASK);
+    }
+}
@@ -0,0 +1,48 @@
+package com.springmvcut.common.id;
+
+import java.io.Serializable;
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hibernate identifier generator that assigns the ids of a {@link SnowflakeIdGenerator}. Because
+ * the ids are generated in memory, inserts need no round trip for the id and can be batched.
+ * <p>
+ * The node id is read from the <code>todo.id.nodeId</code> system property, because it must be
+ * different for every JVM that shares the database. If the property is not set, the
+ * <code>nodeId</code> parameter of the generator is used, and the default is 0.
+ */
+public class SnowflakeIdentifierGenerator implements IdentifierGenerator, Configurable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnowflakeIdentifierGenerator.class);
+
+    public static final String PARAMETER_NODE_ID = "nodeId";
+    public static final String SYSTEM_PROPERTY_NODE_ID = "todo.id.nodeId";
+
+    private SnowflakeIdGenerator generator;
+
+    @Override
+    public void configure(Type type, Properties params, Dialect dialect) throws MappingException {
+        String nodeId = System.getProperty(SYSTEM_PROPERTY_NODE_ID, params.getProperty(PARAMETER_NODE_ID, "0"));
+        try {
+            generator = new SnowflakeIdGenerator(Integer.parseInt(nodeId.trim()));
+        }
+        catch (IllegalArgumentException ex) {
+            throw new MappingException("Invalid node id: " + nodeId, ex);
+        }
+        LOGGER.info("Generating ids of {} with node id: {}", params.getProperty(ENTITY_NAME), generator.getNodeId());
+    }
+
+    @Override
+    public Serializable generate(SessionImplementor session, Object object) {
+        return generator.nextId();
+    }
+}
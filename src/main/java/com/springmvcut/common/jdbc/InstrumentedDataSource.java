@@ -0,0 +1,145 @@
+package com.springmvcut.common.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.apache.tomcat.jdbc.pool.DataSourceProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import com.springmvcut.common.metrics.LatencyHistogram;
+
+/**
+ * Measures how long it takes to acquire a connection from the target data source, and counts
+ * the acquisitions that fail, for example because the pool did not hand out a connection
+ * before the acquire timeout. A long acquire time means that requests are queuing for
+ * connections.
+ * <p>
+ * If the target is a Tomcat JDBC connection pool, the number of active, idle and waiting
+ * connections is reported as well. The statistics are exposed as JMX attributes.
+ */
+@ManagedResource(description = "Connection acquire statistics of the data source")
+public class InstrumentedDataSource extends DelegatingDataSource {
+
+    private final LatencyHistogram acquireMicros = new LatencyHistogram();
+    private final AtomicLong acquireFailures = new AtomicLong();
+
+    public InstrumentedDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection connection = super.getConnection();
+            recordAcquire(start);
+            return connection;
+        }
+        catch (SQLException ex) {
+            acquireFailures.incrementAndGet();
+            throw ex;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection connection = super.getConnection(username, password);
+            recordAcquire(start);
+            return connection;
+        }
+        catch (SQLException ex) {
+            acquireFailures.incrementAndGet();
+            throw ex;
+        }
+    }
+
+    private void recordAcquire(long start) {
+        acquireMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+
+    @ManagedAttribute(description = "Number of acquired connections")
+    public long getAcquireCount() {
+        return acquireMicros.getCount();
+    }
+
+    @ManagedAttribute(description = "Number of failed connection acquisitions")
+    public long getAcquireFailures() {
+        return acquireFailures.get();
+    }
+
+    @ManagedAttribute(description = "Mean connection acquire time in microseconds")
+    public double getAcquireTimeMean() {
+        return acquireMicros.getMean();
+    }
+
+    @ManagedAttribute(description = "Median connection acquire time in microseconds")
+    public long getAcquireTime50thPercentile() {
+        return acquireMicros.getValueAtPercentile(50.0);
+    }
+
+    @ManagedAttribute(description = "99th percentile of the connection acquire time in microseconds")
+    public long getAcquireTime99thPercentile() {
+        return acquireMicros.getValueAtPercentile(99.0);
+    }
+
+    @ManagedAttribute(description = "99.9th percentile of the connection acquire time in microseconds")
+    public long getAcquireTime999thPercentile() {
+        return acquireMicros.getValueAtPercentile(99.9);
+    }
+
+    @ManagedAttribute(description = "Maximum connection acquire time in microseconds")
+    public long getAcquireTimeMax() {
+        return acquireMicros.getMax();
+    }
+
+    @ManagedAttribute(description = "Number of connections in use, or -1 if the target is not a pool")
+    public int getActiveConnections() {
+        DataSourceProxy pool = getPool();
+        return pool == null ? -1 : pool.getActive();
+    }
+
+    @ManagedAttribute(description = "Number of idle connections, or -1 if the target is not a pool")
+    public int getIdleConnections() {
+        DataSourceProxy pool = getPool();
+        return pool == null ? -1 : pool.getIdle();
+    }
+
+    @ManagedAttribute(description = "Number of threads waiting for a connection, or -1 if the target is not a pool")
+    public int getPendingConnections() {
+        DataSourceProxy pool = getPool();
+        return pool == null ? -1 : pool.getWaitCount();
+    }
+
+    @ManagedAttribute(description = "Maximum number of connections, or -1 if the target is not a pool")
+    public int getMaxConnections() {
+        DataSourceProxy pool = getPool();
+        return pool == null ? -1 : pool.getMaxActive();
+    }
+
+    /**
+     * @return  The latency histogram of the connection acquisitions in microseconds.
+     */
+    public LatencyHistogram getAcquireMicros() {
+        return acquireMicros;
+    }
+
+    @ManagedOperation(description = "Resets the connection acquire statistics")
+    public void resetStatistics() {
+        acquireMicros.reset();
+        acquireFailures.set(0);
+    }
+
+    private DataSourceProxy getPool() {
+        DataSource target = getTargetDataSource();
+        return target instanceof DataSourceProxy ? (DataSourceProxy) target : null;
+    }
+}
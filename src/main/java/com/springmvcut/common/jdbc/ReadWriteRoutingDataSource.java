@@ -0,0 +1,205 @@
+package com.springmvcut.common.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends the connections of read-only transactions to the replica databases and all other
+ * connections to the primary database. The primary is used for reads as well if there are
+ * no replicas, if {@link RoutingContextHolder} requires it, or if a replica does not hand out
+ * a connection.
+ * <p>
+ * The transaction managers obtain the connection before they mark the transaction as read-only,
+ * so this data source must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} which obtains the
+ * connection when the first statement is executed.
+ */
+@ManagedResource(description = "Routes read-only transactions to the replica databases")
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    /**
+     * How a replica is chosen for a read-only transaction.
+     */
+    public enum ReplicaSelection {
+        /** The replicas are used in turn. */
+        ROUND_ROBIN,
+        /** The replica with the fewest open connections of this data source is used. */
+        LEAST_CONNECTIONS
+    }
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final AtomicIntegerArray openConnections;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private final AtomicLong primaryConnectionCount = new AtomicLong();
+    private final AtomicLong replicaConnectionCount = new AtomicLong();
+    private final AtomicLong replicaFailures = new AtomicLong();
+
+    private ReplicaSelection replicaSelection = ReplicaSelection.ROUND_ROBIN;
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+        this.primary = primary;
+        this.replicas = new ArrayList<DataSource>(replicas);
+        this.openConnections = new AtomicIntegerArray(replicas.size());
+    }
+
+    public void setReplicaSelection(ReplicaSelection replicaSelection) {
+        this.replicaSelection = replicaSelection;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null, null, false);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection(username, password, true);
+    }
+
+    private Connection getConnection(String username, String password, boolean withCredentials) throws SQLException {
+        if (isReplicaAllowed()) {
+            int replica = selectReplica();
+            openConnections.incrementAndGet(replica);
+            try {
+                Connection connection = getConnection(replicas.get(replica), username, password, withCredentials);
+                replicaConnectionCount.incrementAndGet();
+                return trackClose(connection, replica);
+            }
+            catch (SQLException ex) {
+                openConnections.decrementAndGet(replica);
+                replicaFailures.incrementAndGet();
+                LOGGER.warn("Could not get a connection from replica: {}, using the primary database", replica, ex);
+            }
+        }
+
+        primaryConnectionCount.incrementAndGet();
+        return getConnection(primary, username, password, withCredentials);
+    }
+
+    private boolean isReplicaAllowed() {
+        return !replicas.isEmpty()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !RoutingContextHolder.isPrimaryRequired();
+    }
+
+    private int selectReplica() {
+        int start = (nextReplica.getAndIncrement() & Integer.MAX_VALUE) % replicas.size();
+        if (replicaSelection == ReplicaSelection.ROUND_ROBIN) {
+            return start;
+        }
+
+        //Starting from a rotating position spreads the connections among equally loaded replicas.
+        int selected = start;
+        for (int offset = 1; offset < replicas.size(); offset++) {
+            int candidate = (start + offset) % replicas.size();
+            if (openConnections.get(candidate) < openConnections.get(selected)) {
+                selected = candidate;
+            }
+        }
+        return selected;
+    }
+
+    private static Connection getConnection(DataSource dataSource,
+                                            String username,
+                                            String password,
+                                            boolean withCredentials) throws SQLException {
+        return withCredentials ? dataSource.getConnection(username, password) : dataSource.getConnection();
+    }
+
+    private Connection trackClose(Connection connection, int replica) {
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[] {ConnectionProxy.class},
+                new ReplicaConnectionInvocationHandler(connection, replica));
+    }
+
+    /**
+     * @return  The number of open connections of the given replica that were obtained from
+     *          this data source.
+     */
+    public int getOpenConnections(int replica) {
+        return openConnections.get(replica);
+    }
+
+    @ManagedAttribute(description = "Number of replica databases")
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    @ManagedAttribute(description = "Number of connections obtained from the primary database")
+    public long getPrimaryConnectionCount() {
+        return primaryConnectionCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of connections obtained from the replica databases")
+    public long getReplicaConnectionCount() {
+        return replicaConnectionCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of reads that used the primary database because a replica failed")
+    public long getReplicaFailures() {
+        return replicaFailures.get();
+    }
+
+    /**
+     * Releases the open connection count of the replica when the connection is closed.
+     */
+    private class ReplicaConnectionInvocationHandler implements InvocationHandler {
+
+        private final Connection target;
+        private final int replica;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        ReplicaConnectionInvocationHandler(Connection target, int replica) {
+            this.target = target;
+            this.replica = replica;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("getTargetConnection")) {
+                return target;
+            }
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            if (name.equals("close") && closed.compareAndSet(false, true)) {
+                openConnections.decrementAndGet(replica);
+            }
+
+            try {
+                return method.invoke(target, args);
+            }
+            catch (InvocationTargetException ex) {
+                throw ex.getTargetException();
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.springmvcut.common.jdbc;
+
+/**
+ * Associates the current thread with the requirement to read from the primary database. It
+ * is set when a client must see its own recent writes, which may not have reached the
+ * replicas yet.
+ *
+ * @see ReadWriteRoutingDataSource
+ */
+public final class RoutingContextHolder {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<Boolean>();
+
+    private RoutingContextHolder() {
+    }
+
+    public static void setPrimaryRequired(boolean primaryRequired) {
+        if (primaryRequired) {
+            PRIMARY_REQUIRED.set(Boolean.TRUE);
+        }
+        else {
+            PRIMARY_REQUIRED.remove();
+        }
+    }
+
+    public static boolean isPrimaryRequired() {
+        return PRIMARY_REQUIRED.get() != null;
+    }
+
+    public static void reset() {
+        PRIMARY_REQUIRED.remove();
+    }
+}
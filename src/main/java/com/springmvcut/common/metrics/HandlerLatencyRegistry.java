@@ -0,0 +1,162 @@
+package com.springmvcut.common.metrics;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps a latency histogram for every handler method and status class (2xx, 4xx and so on).
+ * <p>
+ * Recording a request looks up the histograms of the handler method in a concurrent map and
+ * records the latency in a {@link LatencyHistogram}, so it takes no locks and allocates
+ * nothing once the handler method has handled its first request with the status class.
+ */
+@Component
+public class HandlerLatencyRegistry {
+
+    private static final int STATUS_CLASSES = 5;
+
+    private static final Comparator<HandlerLatencies> BY_HANDLER = new Comparator<HandlerLatencies>() {
+        @Override
+        public int compare(HandlerLatencies first, HandlerLatencies second) {
+            return first.handler.compareTo(second.handler);
+        }
+    };
+
+    private final ConcurrentMap<Method, HandlerLatencies> latenciesByMethod = new ConcurrentHashMap<Method, HandlerLatencies>();
+    private final ConcurrentMap<String, HandlerLatencies> latenciesByHandler = new ConcurrentHashMap<String, HandlerLatencies>();
+
+    private volatile long startMillis = System.currentTimeMillis();
+
+    /**
+     * @param method        The handler method.
+     * @param status        The status code of the response.
+     * @param latencyMicros The latency of the request in microseconds.
+     */
+    public void record(Method method, int status, long latencyMicros) {
+        HandlerLatencies latencies = latenciesByMethod.get(method);
+        if (latencies == null) {
+            latencies = register(method);
+        }
+        latencies.getOrCreate(statusClassOf(status)).record(latencyMicros);
+    }
+
+    /**
+     * Overloaded handler methods share their histograms, because they have the same name.
+     */
+    private HandlerLatencies register(Method method) {
+        String handler = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        HandlerLatencies latencies = new HandlerLatencies(handler);
+        HandlerLatencies existing = latenciesByHandler.putIfAbsent(handler, latencies);
+        if (existing != null) {
+            latencies = existing;
+        }
+        latenciesByMethod.put(method, latencies);
+        return latencies;
+    }
+
+    private static int statusClassOf(int status) {
+        return Math.max(1, Math.min(STATUS_CLASSES, status / 100)) - 1;
+    }
+
+    /**
+     * @return  The histograms that have recorded requests, ordered by handler and status class.
+     */
+    public List<Entry> getEntries() {
+        List<HandlerLatencies> handlers = new ArrayList<HandlerLatencies>(latenciesByHandler.values());
+        Collections.sort(handlers, BY_HANDLER);
+
+        List<Entry> entries = new ArrayList<Entry>();
+        for (HandlerLatencies latencies: handlers) {
+            for (int statusClass = 0; statusClass < STATUS_CLASSES; statusClass++) {
+                LatencyHistogram histogram = latencies.histograms.get(statusClass);
+                if (histogram != null && histogram.getCount() > 0) {
+                    entries.add(new Entry(latencies.handler, (statusClass + 1) + "xx", histogram));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return  The time in milliseconds since the epoch when the recording started or was last reset.
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * Forgets the recorded requests. Requests that are recorded concurrently may be partially lost.
+     */
+    public void reset() {
+        for (HandlerLatencies latencies: latenciesByHandler.values()) {
+            for (int statusClass = 0; statusClass < STATUS_CLASSES; statusClass++) {
+                LatencyHistogram histogram = latencies.histograms.get(statusClass);
+                if (histogram != null) {
+                    histogram.reset();
+                }
+            }
+        }
+        startMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * The latency histogram of a handler and status class.
+     */
+    public static class Entry {
+
+        private final String handler;
+        private final String statusClass;
+        private final LatencyHistogram histogram;
+
+        Entry(String handler, String statusClass, LatencyHistogram histogram) {
+            this.handler = handler;
+            this.statusClass = statusClass;
+            this.histogram = histogram;
+        }
+
+        /**
+         * @return  The simple name of the controller class and the name of the handler method.
+         */
+        public String getHandler() {
+            return handler;
+        }
+
+        public String getStatusClass() {
+            return statusClass;
+        }
+
+        /**
+         * @return  The latencies in microseconds.
+         */
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+    }
+
+    private static class HandlerLatencies {
+
+        private final String handler;
+        private final AtomicReferenceArray<LatencyHistogram> histograms = new AtomicReferenceArray<LatencyHistogram>(STATUS_CLASSES);
+
+        HandlerLatencies(String handler) {
+            this.handler = handler;
+        }
+
+        LatencyHistogram getOrCreate(int statusClass) {
+            LatencyHistogram histogram = histograms.get(statusClass);
+            if (histogram == null) {
+                histograms.compareAndSet(statusClass, null, new LatencyHistogram());
+                histogram = histograms.get(statusClass);
+            }
+            return histogram;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.springmvcut.common.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values, such as latencies in microseconds. Values are counted in
+ * log-linear buckets: every power of two is split into 16 buckets, so a reported percentile is
+ * at most 6.25% larger than the recorded value. Values below 16 have their own buckets.
+ * <p>
+ * Recording a value is lock-free and takes a few atomic increments, so the histogram can be
+ * updated on hot paths by many threads. The percentiles are read without stopping the writers,
+ * so they may miss values that are recorded while they are computed.
+ * <p>
+ * The count, the sum and the maximum are updated by every recording, so they are striped:
+ * a thread updates the cells of the stripe that its id hashes to, and the stripes are merged
+ * when the values are read. The cells of a stripe fill a cache line of their own, so threads
+ * that update different stripes do not contend.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 62;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private static final int MAX_STRIPES = 64;
+    private static final int STRIPES = stripesFor(Runtime.getRuntime().availableProcessors());
+    //A stripe takes 64 bytes, the size of a cache line, so that two stripes never share a line.
+    private static final int STRIPE_LENGTH = 8;
+    private static final int COUNT = 0;
+    private static final int SUM = 1;
+    private static final int MAX = 2;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray stripes = new AtomicLongArray(STRIPES * STRIPE_LENGTH);
+
+    /**
+     * @param value The recorded value. Negative values are recorded as zero.
+     */
+    public void record(long value) {
+        long recorded = Math.max(0, value);
+
+        counts.incrementAndGet(bucketOf(recorded));
+
+        int stripe = stripeOf(Thread.currentThread()) * STRIPE_LENGTH;
+        stripes.incrementAndGet(stripe + COUNT);
+        stripes.addAndGet(stripe + SUM, recorded);
+
+        long currentMax = stripes.get(stripe + MAX);
+        while (recorded > currentMax && !stripes.compareAndSet(stripe + MAX, currentMax, recorded)) {
+            currentMax = stripes.get(stripe + MAX);
+        }
+    }
+
+    public long getCount() {
+        return total(COUNT);
+    }
+
+    public long getMax() {
+        long merged = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            merged = Math.max(merged, stripes.get(stripe * STRIPE_LENGTH + MAX));
+        }
+        return merged;
+    }
+
+    public long getSum() {
+        return total(SUM);
+    }
+
+    public double getMean() {
+        long recorded = getCount();
+        return recorded == 0 ? 0.0 : (double) getSum() / recorded;
+    }
+
+    /**
+     * @param percentile    The percentile between 0 and 100.
+     * @return  The smallest value that is greater than or equal to the given percentage of the
+     *          recorded values, rounded up to the upper bound of its bucket but never greater
+     *          than the maximum. Zero if no values are recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            snapshot[bucket] = counts.get(bucket);
+            total += snapshot[bucket];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+        long max = getMax();
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += snapshot[bucket];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(bucket), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Forgets the recorded values. Values that are recorded concurrently may be partially lost.
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts.set(bucket, 0);
+        }
+        for (int cell = 0; cell < STRIPES * STRIPE_LENGTH; cell++) {
+            stripes.set(cell, 0);
+        }
+    }
+
+    private long total(int field) {
+        long total = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            total += stripes.get(stripe * STRIPE_LENGTH + field);
+        }
+        return total;
+    }
+
+    static int stripesFor(int processors) {
+        //The smallest power of two that is at least the number of processors.
+        int stripes = 1 << (32 - Integer.numberOfLeadingZeros(Math.max(1, processors) - 1));
+        return Math.min(MAX_STRIPES, stripes);
+    }
+
+    private static int stripeOf(Thread thread) {
+        //Spreads consecutive thread ids over the stripes.
+        long hash = thread.getId() * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (STRIPES - 1);
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long lowerBound = (1L << exponent) + (subBucket << (exponent - SUB_BUCKET_BITS));
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
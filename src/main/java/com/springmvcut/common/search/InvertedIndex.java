@@ -0,0 +1,451 @@
+package com.springmvcut.common.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory inverted index of documents that are identified by long ids. Every document
+ * consists of text fields, and each field has a weight that multiplies the frequencies of its
+ * tokens.
+ * <p>
+ * A document is stored under an internal document number that grows with every indexed
+ * document. The posting list of a token is a single <code>long[]</code> whose elements contain
+ * the document number in the upper half and the weighted frequency in the lower half. Because
+ * new documents get the largest number, the posting lists stay sorted when documents are
+ * appended to them. Removed documents are only marked as deleted, and the index is compacted
+ * when the deleted documents outnumber a quarter of the live ones.
+ * <p>
+ * A search returns the documents that contain every token of the query, ranked by TF-IDF. The
+ * cost of a search depends on the length of the shortest posting list of the query, not on the
+ * size of the index.
+ * <p>
+ * Searches can run concurrently, and changes are serialized with a read-write lock.
+ */
+public class InvertedIndex {
+
+    private static final long[] NO_IDS = new long[0];
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int INITIAL_POSTINGS = 4;
+    private static final int MIN_DELETED_FOR_COMPACTION = 1024;
+
+    private final Tokenizer tokenizer;
+    private final int[] fieldWeights;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, PostingList> postings = new HashMap<String, PostingList>();
+    private LongIntHashMap documentsById = new LongIntHashMap(INITIAL_CAPACITY);
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private BitSet deleted = new BitSet();
+    private int documentCount;
+    private int deletedCount;
+
+    /**
+     * @param tokenizer     Splits the fields and the queries into tokens.
+     * @param fieldWeights  The weights of the fields, in the order the fields are given to
+     *                      {@link #index(long, String...)}.
+     */
+    public InvertedIndex(Tokenizer tokenizer, int... fieldWeights) {
+        this.tokenizer = tokenizer;
+        this.fieldWeights = fieldWeights.clone();
+    }
+
+    /**
+     * Adds a document to the index. If a document with the same id is indexed already, it is
+     * replaced.
+     * @param id        The id of the document.
+     * @param fields    The fields of the document. A field can be <code>null</code>.
+     */
+    public void index(long id, String... fields) {
+        Map<String, Integer> frequencies = new HashMap<String, Integer>();
+        int length = 0;
+        for (int field = 0; field < fields.length && field < fieldWeights.length; field++) {
+            for (String token: tokenizer.tokenize(fields[field])) {
+                Integer frequency = frequencies.get(token);
+                frequencies.put(token, (frequency == null ? 0 : frequency) + fieldWeights[field]);
+                length += fieldWeights[field];
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+
+            int document = documentCount++;
+            ensureCapacity(documentCount);
+            ids[document] = id;
+            lengths[document] = length;
+            documentsById.put(id, document);
+
+            for (Map.Entry<String, Integer> frequency: frequencies.entrySet()) {
+                PostingList list = postings.get(frequency.getKey());
+                if (list == null) {
+                    list = new PostingList();
+                    postings.put(frequency.getKey(), list);
+                }
+                list.add(document, frequency.getValue());
+            }
+
+            compactIfNeeded();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a document from the index. Nothing happens if the document is not indexed.
+     * @param id    The id of the removed document.
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+            compactIfNeeded();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all documents from the index.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documentsById = new LongIntHashMap(INITIAL_CAPACITY);
+            ids = new long[INITIAL_CAPACITY];
+            lengths = new int[INITIAL_CAPACITY];
+            deleted = new BitSet();
+            documentCount = 0;
+            deletedCount = 0;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return  The number of indexed documents.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentCount - deletedCount;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the documents that contain every token of the query.
+     * @param query The query.
+     * @param limit The maximum number of returned ids.
+     * @return  The ids of the found documents, the best match first.
+     */
+    public long[] search(String query, int limit) {
+        Set<String> tokens = new LinkedHashSet<String>(tokenizer.tokenize(query));
+        if (tokens.isEmpty() || limit <= 0) {
+            return NO_IDS;
+        }
+
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = new PostingList[tokens.size()];
+            int index = 0;
+            for (String token: tokens) {
+                PostingList list = postings.get(token);
+                if (list == null) {
+                    return NO_IDS;
+                }
+                lists[index++] = list;
+            }
+            Arrays.sort(lists);
+
+            return rank(lists, limit);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Walks the shortest posting list and looks up its documents from the other lists. The
+     * lists are sorted, so every lookup continues from where the previous one ended.
+     */
+    private long[] rank(PostingList[] lists, int limit) {
+        int liveDocuments = documentCount - deletedCount;
+        double[] idfs = new double[lists.length];
+        for (int list = 0; list < lists.length; list++) {
+            idfs[list] = Math.log(1.0 + (double) liveDocuments / lists[list].size);
+        }
+
+        TopDocuments top = new TopDocuments(limit);
+        int[] cursors = new int[lists.length];
+        PostingList shortest = lists[0];
+
+        candidates:
+        for (int position = 0; position < shortest.size; position++) {
+            int document = documentOf(shortest.entries[position]);
+            if (deleted.get(document)) {
+                continue;
+            }
+
+            double score = idfs[0] * frequencyOf(shortest.entries[position]);
+            for (int list = 1; list < lists.length; list++) {
+                int found = lists[list].find(document, cursors[list]);
+                if (found < 0) {
+                    cursors[list] = -found - 1;
+                    if (cursors[list] >= lists[list].size) {
+                        break candidates;
+                    }
+                    continue candidates;
+                }
+                cursors[list] = found;
+                score += idfs[list] * frequencyOf(lists[list].entries[found]);
+            }
+
+            top.offer(document, score / Math.sqrt(Math.max(1, lengths[document])));
+        }
+
+        int[] documents = top.sortedDocuments();
+        long[] result = new long[documents.length];
+        for (int rank = 0; rank < documents.length; rank++) {
+            result[rank] = ids[documents[rank]];
+        }
+        return result;
+    }
+
+    private void removeDocument(long id) {
+        int document = documentsById.remove(id);
+        if (document != LongIntHashMap.NO_VALUE) {
+            deleted.set(document);
+            deletedCount++;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int newCapacity = Math.max(capacity, ids.length * 2);
+            ids = Arrays.copyOf(ids, newCapacity);
+            lengths = Arrays.copyOf(lengths, newCapacity);
+        }
+    }
+
+    /**
+     * Drops the deleted documents from the posting lists and renumbers the live documents.
+     * The numbering keeps the order of the documents, so the posting lists stay sorted.
+     */
+    private void compactIfNeeded() {
+        int liveDocuments = documentCount - deletedCount;
+        if (deletedCount < MIN_DELETED_FOR_COMPACTION || deletedCount * 4 < liveDocuments) {
+            return;
+        }
+
+        int[] renumbered = new int[documentCount];
+        long[] newIds = new long[Math.max(INITIAL_CAPACITY, liveDocuments)];
+        int[] newLengths = new int[newIds.length];
+        LongIntHashMap newDocumentsById = new LongIntHashMap(liveDocuments);
+
+        int next = 0;
+        for (int document = 0; document < documentCount; document++) {
+            if (deleted.get(document)) {
+                renumbered[document] = -1;
+            }
+            else {
+                renumbered[document] = next;
+                newIds[next] = ids[document];
+                newLengths[next] = lengths[document];
+                newDocumentsById.put(ids[document], next);
+                next++;
+            }
+        }
+
+        Iterator<PostingList> lists = postings.values().iterator();
+        while (lists.hasNext()) {
+            PostingList list = lists.next();
+            list.renumber(renumbered);
+            if (list.size == 0) {
+                lists.remove();
+            }
+        }
+
+        ids = newIds;
+        lengths = newLengths;
+        documentsById = newDocumentsById;
+        deleted = new BitSet();
+        documentCount = next;
+        deletedCount = 0;
+    }
+
+    private static long entry(int document, int frequency) {
+        return ((long) document << 32) | (frequency & 0xffffffffL);
+    }
+
+    private static int documentOf(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    private static int frequencyOf(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * The documents that contain a token, sorted by document number. The size includes
+     * deleted documents until the index is compacted.
+     */
+    private static final class PostingList implements Comparable<PostingList> {
+
+        private long[] entries = new long[INITIAL_POSTINGS];
+        private int size;
+
+        private void add(int document, int frequency) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size + (size >> 1) + 1);
+            }
+            entries[size++] = entry(document, frequency);
+        }
+
+        /**
+         * Finds a document with an exponential search that starts from the given position.
+         * @return  The position of the document, or <code>-(insertion point) - 1</code> if the
+         *          list does not contain it.
+         */
+        private int find(int document, int from) {
+            long key = entry(document, 0);
+            int low = from;
+            int step = 1;
+            int high = from;
+            while (high < size && entries[high] < key) {
+                low = high + 1;
+                high = from + step;
+                step <<= 1;
+            }
+            high = Math.min(high, size - 1);
+
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int found = documentOf(entries[middle]);
+                if (found < document) {
+                    low = middle + 1;
+                }
+                else if (found > document) {
+                    high = middle - 1;
+                }
+                else {
+                    return middle;
+                }
+            }
+            return -low - 1;
+        }
+
+        private void renumber(int[] renumbered) {
+            int kept = 0;
+            for (int position = 0; position < size; position++) {
+                int document = renumbered[documentOf(entries[position])];
+                if (document >= 0) {
+                    entries[kept++] = entry(document, frequencyOf(entries[position]));
+                }
+            }
+            size = kept;
+            entries = Arrays.copyOf(entries, Math.max(INITIAL_POSTINGS, kept));
+        }
+
+        @Override
+        public int compareTo(PostingList other) {
+            return size < other.size ? -1 : (size == other.size ? 0 : 1);
+        }
+    }
+
+    /**
+     * Keeps the best scoring documents in a min-heap whose root is the worst of them.
+     */
+    private static final class TopDocuments {
+
+        private final int[] documents;
+        private final double[] scores;
+        private int size;
+
+        private TopDocuments(int limit) {
+            documents = new int[limit];
+            scores = new double[limit];
+        }
+
+        private void offer(int document, double score) {
+            if (size < documents.length) {
+                documents[size] = document;
+                scores[size] = score;
+                siftUp(size++);
+            }
+            else if (score > scores[0]) {
+                documents[0] = document;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        private int[] sortedDocuments() {
+            int[] sorted = new int[size];
+            for (int rank = size - 1; rank >= 0; rank--) {
+                sorted[rank] = documents[0];
+                size--;
+                documents[0] = documents[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+            return sorted;
+        }
+
+        private void siftUp(int position) {
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (scores[parent] <= scores[position]) {
+                    return;
+                }
+                swap(parent, position);
+                position = parent;
+            }
+        }
+
+        private void siftDown(int position) {
+            while (true) {
+                int smallest = position;
+                int left = 2 * position + 1;
+                int right = left + 1;
+                if (left < size && scores[left] < scores[smallest]) {
+                    smallest = left;
+                }
+                if (right < size && scores[right] < scores[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == position) {
+                    return;
+                }
+                swap(position, smallest);
+                position = smallest;
+            }
+        }
+
+        private void swap(int first, int second) {
+            int document = documents[first];
+            documents[first] = documents[second];
+            documents[second] = document;
+
+            double score = scores[first];
+            scores[first] = scores[second];
+            scores[second] = score;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.springmvcut.common.search;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from long keys to non-negative int values that stores its entries in primitive
+ * arrays. Collisions are resolved with linear probing, and removed entries are filled by
+ * shifting the following entries back, so the map needs no tombstones.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class LongIntHashMap {
+
+    static final int NO_VALUE = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return  The value of the key or {@link #NO_VALUE} if the key is not found.
+     */
+    int get(long key) {
+        for (int slot = slotOf(key); values[slot] != NO_VALUE; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return NO_VALUE;
+    }
+
+    void put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("The value must not be negative but was " + value);
+        }
+
+        int slot = slotOf(key);
+        while (values[slot] != NO_VALUE) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > values.length) {
+            resize(values.length * 2);
+        }
+    }
+
+    /**
+     * @return  The removed value or {@link #NO_VALUE} if the key was not found.
+     */
+    int remove(long key) {
+        int slot = slotOf(key);
+        while (values[slot] != NO_VALUE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        int removed = values[slot];
+        if (removed == NO_VALUE) {
+            return NO_VALUE;
+        }
+
+        //Shifts back the entries whose probe sequence passes through the emptied slot.
+        int empty = slot;
+        for (int next = (empty + 1) & mask; values[next] != NO_VALUE; next = (next + 1) & mask) {
+            int home = slotOf(keys[next]);
+            if (((next - home) & mask) >= ((next - empty) & mask)) {
+                keys[empty] = keys[next];
+                values[empty] = values[next];
+                empty = next;
+            }
+        }
+        values[empty] = NO_VALUE;
+        size--;
+
+        return removed;
+    }
+
+    private int slotOf(long key) {
+        long hash = key * 0x9e3779b97f4a7c15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+
+        allocate(capacity);
+        for (int slot = 0; slot < oldValues.length; slot++) {
+            if (oldValues[slot] != NO_VALUE) {
+                put(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.springmvcut.common.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into normalized tokens. The text is split at every character that is not a
+ * letter or a digit, diacritics are removed and the tokens are converted to lower case, so
+ * that "Caf&eacute;" and "cafe" produce the same token. Tokens that are shorter than two characters
+ * are dropped, and long tokens are truncated.
+ */
+public class Tokenizer {
+
+    static final int MIN_TOKEN_LENGTH = 2;
+    static final int MAX_TOKEN_LENGTH = 64;
+
+    /**
+     * @param text  The tokenized text. Can be <code>null</code>.
+     * @return  The tokens in the order they appear in the text.
+     */
+    public List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<String>();
+        if (text == null) {
+            return tokens;
+        }
+
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder token = new StringBuilder();
+
+        for (int index = 0; index < normalized.length(); index++) {
+            char character = normalized.charAt(index);
+            if (Character.getType(character) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+
+            if (Character.isLetterOrDigit(character)) {
+                if (token.length() < MAX_TOKEN_LENGTH) {
+                    token.append(character);
+                }
+            }
+            else {
+                addToken(tokens, token);
+            }
+        }
+        addToken(tokens, token);
+
+        return tokens;
+    }
+
+    private void addToken(List<String> tokens, StringBuilder token) {
+        if (token.length() >= MIN_TOKEN_LENGTH) {
+            tokens.add(token.toString().toLowerCase(Locale.ENGLISH));
+        }
+        token.setLength(0);
+    }
+}
@@ -0,0 +1,296 @@
+package com.springmvcut.common.web;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.springmvcut.common.concurrent.VirtualThreads;
+import com.springmvcut.common.jdbc.RoutingContextHolder;
+import com.springmvcut.common.metrics.LatencyHistogram;
+
+/**
+ * Runs the work of asynchronous handler methods on a bounded pool of threads, so a request
+ * that waits for the database does not hold a container thread. The pool is sized for the
+ * database instead of for the number of open connections.
+ * <p>
+ * A task is rejected with {@link RejectedExecutionException} when the queue is full. The
+ * rejection is thrown by {@link #submit(Callable)} before the request is put into asynchronous
+ * mode, so it is answered with 503 (Service Unavailable) like the other overload rejections.
+ * A request whose task has not completed within the timeout fails with {@link TimeoutException},
+ * and its task is removed from the queue if it has not started yet.
+ * <p>
+ * The tasks run with the routing context of the request thread, so a client that must read
+ * from the primary database still does.
+ * <p>
+ * On Java 21 or later the tasks can run on virtual threads instead, one new thread per task.
+ * A task that waits for a database connection or for a query then does not hold a platform
+ * thread, so the connection pool limits how many requests reach the database. The number of
+ * tasks in progress is still limited to the number of threads plus the queue capacity, and
+ * the tasks over that limit are rejected in the same way.
+ */
+@ManagedResource(description = "Runs the asynchronous requests of the REST API")
+public class AsyncRequestExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncRequestExecutor.class);
+
+    private final int threads;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+    private final boolean virtualThreads;
+    private final Semaphore permits;
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final LatencyHistogram queueWaitMicros = new LatencyHistogram();
+
+    private volatile ExecutorService executor;
+
+    /**
+     * @param threads       The number of threads that run the tasks.
+     * @param queueCapacity The maximum number of tasks that wait for a free thread.
+     * @param timeoutMillis How long a request waits for its task to complete.
+     */
+    public AsyncRequestExecutor(int threads, int queueCapacity, long timeoutMillis) {
+        this(threads, queueCapacity, timeoutMillis, false);
+    }
+
+    /**
+     * @param threads           The number of threads that run the tasks.
+     * @param queueCapacity     The maximum number of tasks that wait for a free thread.
+     * @param timeoutMillis     How long a request waits for its task to complete.
+     * @param virtualThreads    <code>true</code> if every task runs on a new virtual thread.
+     *                          The threads and the queue capacity then only limit the number of
+     *                          tasks in progress.
+     */
+    public AsyncRequestExecutor(int threads, int queueCapacity, long timeoutMillis, boolean virtualThreads) {
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeoutMillis;
+        this.virtualThreads = virtualThreads;
+        this.permits = virtualThreads ? new Semaphore(threads + queueCapacity) : null;
+    }
+
+    /**
+     * @throws IllegalStateException    If virtual threads are enabled and the JVM does not support them.
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        if (virtualThreads) {
+            executor = VirtualThreads.newThreadPerTaskExecutor("todo-async-request");
+            LOGGER.info("Running the asynchronous requests on virtual threads");
+            return;
+        }
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity),
+                new DaemonThreadFactory("todo-async-request"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Stops accepting tasks and waits until the started tasks have completed.
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            LOGGER.warn("{} asynchronous requests did not complete before the shutdown", activeCount.get());
+        }
+        executor = null;
+    }
+
+    /**
+     * Queues the task and returns the result that the handler method returns.
+     * @param task  The work of the request.
+     * @return  The result, which is set when the task completes, fails or times out.
+     * @throws RejectedExecutionException   If the queue is full or the executor is stopped.
+     */
+    public <T> DeferredResult<T> submit(final Callable<T> task) {
+        final DeferredResult<T> result = new DeferredResult<T>(timeoutMillis);
+        final boolean primaryRequired = RoutingContextHolder.isPrimaryRequired();
+        final long queuedNanos = System.nanoTime();
+
+        final ExecutorService current = executor;
+        if (current == null) {
+            rejectedCount.incrementAndGet();
+            throw new RejectedExecutionException("The asynchronous request executor is stopped");
+        }
+        if (permits != null && !permits.tryAcquire()) {
+            rejectedCount.incrementAndGet();
+            throw new RejectedExecutionException("Too many asynchronous requests are in progress");
+        }
+
+        // The task holds its permit until it finishes. Whoever claims the task first, the thread
+        // that runs it or the timeout that cancels it before it starts, releases the permit.
+        final AtomicBoolean claimed = new AtomicBoolean();
+        final FutureTask<Void> future = new FutureTask<Void>(new Runnable() {
+            @Override
+            public void run() {
+                if (!claimed.compareAndSet(false, true)) {
+                    return;
+                }
+                queueWaitMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - queuedNanos));
+                activeCount.incrementAndGet();
+                RoutingContextHolder.setPrimaryRequired(primaryRequired);
+                try {
+                    result.setResult(task.call());
+                }
+                catch (Exception ex) {
+                    result.setErrorResult(ex);
+                }
+                finally {
+                    RoutingContextHolder.reset();
+                    activeCount.decrementAndGet();
+                    releasePermit();
+                    completedCount.incrementAndGet();
+                }
+            }
+        }, null);
+
+        try {
+            current.execute(future);
+        }
+        catch (RejectedExecutionException ex) {
+            claimed.set(true);
+            releasePermit();
+            rejectedCount.incrementAndGet();
+            throw new RejectedExecutionException("The asynchronous request queue is full", ex);
+        }
+
+        result.onTimeout(new Runnable() {
+            @Override
+            public void run() {
+                timeoutCount.incrementAndGet();
+                if (claimed.compareAndSet(false, true)) {
+                    future.cancel(false);
+                    if (current instanceof ThreadPoolExecutor) {
+                        ((ThreadPoolExecutor) current).remove(future);
+                    }
+                    releasePermit();
+                }
+                result.setErrorResult(new TimeoutException("The request did not complete in " + timeoutMillis + " ms"));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns a result that is set by another thread, for example the writer of a queue, without
+     * holding a thread of this executor. The result times out like the results of the tasks.
+     * @param onTimeout Called when the request times out before the result is set.
+     * @return  The result that the handler method returns.
+     */
+    public <T> DeferredResult<T> defer(final Runnable onTimeout) {
+        final DeferredResult<T> result = new DeferredResult<T>(timeoutMillis);
+        result.onTimeout(new Runnable() {
+            @Override
+            public void run() {
+                timeoutCount.incrementAndGet();
+                onTimeout.run();
+                result.setErrorResult(new TimeoutException("The request did not complete in " + timeoutMillis + " ms"));
+            }
+        });
+        return result;
+    }
+
+    private void releasePermit() {
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    @ManagedAttribute(description = "Number of tasks waiting for a free thread")
+    public int getQueueSize() {
+        ExecutorService current = executor;
+        return current instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) current).getQueue().size() : 0;
+    }
+
+    @ManagedAttribute(description = "Maximum number of tasks waiting for a free thread")
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @ManagedAttribute(description = "Number of threads running a task")
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of threads in the pool, or of virtual threads running a task")
+    public int getPoolSize() {
+        ExecutorService current = executor;
+        return current instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) current).getPoolSize() : activeCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of completed tasks")
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    @ManagedAttribute(description = "True if the tasks run on virtual threads")
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    @ManagedAttribute(description = "Number of tasks that were rejected because the queue was full")
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @ManagedAttribute(description = "Number of requests that timed out")
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    @ManagedAttribute(description = "Median time a task waited in the queue in microseconds")
+    public long getQueueWaitMedianMicros() {
+        return queueWaitMicros.getValueAtPercentile(50.0);
+    }
+
+    @ManagedAttribute(description = "99th percentile of the time a task waited in the queue in microseconds")
+    public long getQueueWait99thPercentileMicros() {
+        return queueWaitMicros.getValueAtPercentile(99.0);
+    }
+
+    @ManagedAttribute(description = "Longest time a task waited in the queue in microseconds")
+    public long getQueueWaitMaxMicros() {
+        return queueWaitMicros.getMax();
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final String namePrefix;
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        DaemonThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
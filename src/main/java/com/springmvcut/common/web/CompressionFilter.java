@@ -0,0 +1,488 @@
+package com.springmvcut.common.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.springmvcut.common.controller.ConditionalRequests;
+
+/**
+ * Compresses the responses with gzip or deflate, whichever the client prefers in its
+ * <code>Accept-Encoding</code> header.
+ * <p>
+ * The first <code>minSize</code> bytes of a body are buffered. A body that ends or is flushed
+ * before it reaches that size is sent as is, because compressing it costs more CPU than it saves
+ * on the wire. A larger body is compressed while it is written, so only the buffers of the
+ * deflater are held in memory. The excluded content types, like images that are compressed
+ * already and event streams whose events must not wait in the deflater, are written through
+ * without buffering. So are the responses that already have a <code>Content-Encoding</code>,
+ * like the precompressed static resources.
+ * <p>
+ * A compressed body is a different representation, so a strong entity tag is sent as a weak one.
+ * <p>
+ * An asynchronous response is finished when the asynchronous dispatch returns, which requires
+ * the filter to be mapped to the ASYNC dispatcher. A response that is completed with
+ * {@link javax.servlet.AsyncContext#complete()} is not dispatched again, so its content type
+ * must be excluded.
+ */
+public class CompressionFilter extends OncePerRequestFilter {
+
+    public static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    public static final String HEADER_CONTENT_LENGTH = "Content-Length";
+
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    private static final String RESPONSE_ATTRIBUTE = CompressionFilter.class.getName() + ".RESPONSE";
+    private static final int DEFLATER_BUFFER_SIZE = 8192;
+
+    private int minSize = 1024;
+
+    private String[] excludedContentTypes = {
+            "image/", "audio/", "video/", "application/zip", "application/gzip", "application/x-gzip", "text/event-stream"
+    };
+
+    /**
+     * @param minSize   The number of bytes below which a body is not compressed.
+     */
+    public void setMinSize(int minSize) {
+        this.minSize = minSize;
+    }
+
+    /**
+     * @param excludedContentTypes  The comma separated content types that are not compressed. A
+     *                              content type is excluded if it starts with one of them, so
+     *                              <code>image/</code> excludes all images.
+     */
+    public void setExcludedContentTypes(String excludedContentTypes) {
+        this.excludedContentTypes = StringUtils.tokenizeToStringArray(excludedContentTypes.toLowerCase(), ",");
+    }
+
+    /**
+     * @param acceptEncoding    The <code>Accept-Encoding</code> header, or <code>null</code>.
+     * @return  The content coding the response is compressed with, or <code>null</code> if the
+     *          client accepts neither gzip nor deflate.
+     */
+    static String negotiate(String acceptEncoding) {
+        double gzip = quality(acceptEncoding, GZIP);
+        double deflate = quality(acceptEncoding, DEFLATE);
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+
+    /**
+     * @param acceptEncoding    The <code>Accept-Encoding</code> header, or <code>null</code>.
+     * @param contentCoding     The content coding.
+     * @return  The quality value the header gives the content coding, which is 0 if the client
+     *          does not accept it.
+     */
+    static double quality(String acceptEncoding, String contentCoding) {
+        if (acceptEncoding == null) {
+            return 0;
+        }
+        double wildcard = 0;
+        for (String element: acceptEncoding.split(",")) {
+            String[] parameters = element.split(";");
+            double quality = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    quality = parseQuality(parameter.substring(2));
+                }
+            }
+
+            String coding = parameters[0].trim();
+            if (coding.equalsIgnoreCase(contentCoding)) {
+                return quality;
+            }
+            if (coding.equals("*")) {
+                wildcard = quality;
+            }
+        }
+        return wildcard;
+    }
+
+    private static double parseQuality(String quality) {
+        try {
+            return Double.parseDouble(quality);
+        }
+        catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        //The asynchronous dispatch continues the response of the first dispatch.
+        CompressingResponse compressingResponse = (CompressingResponse) request.getAttribute(RESPONSE_ATTRIBUTE);
+        if (compressingResponse == null) {
+            compressingResponse = new CompressingResponse(response, negotiate(request.getHeader(HEADER_ACCEPT_ENCODING)));
+            request.setAttribute(RESPONSE_ATTRIBUTE, compressingResponse);
+        }
+
+        filterChain.doFilter(request, compressingResponse);
+
+        if (!request.isAsyncStarted()) {
+            request.removeAttribute(RESPONSE_ATTRIBUTE);
+            compressingResponse.finish();
+        }
+    }
+
+    private boolean isExcluded(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase();
+        for (String excludedContentType: excludedContentTypes) {
+            if (type.startsWith(excludedContentType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final class CompressingResponse extends HttpServletResponseWrapper {
+
+        private final String contentCoding;
+        private final CompressingOutputStream outputStream = new CompressingOutputStream();
+        private PrintWriter writer;
+        private boolean outputStreamUsed;
+        private long contentLength = -1;
+
+        private CompressingResponse(HttpServletResponse response, String contentCoding) {
+            super(response);
+            this.contentCoding = contentCoding;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called for this response");
+            }
+            outputStreamUsed = true;
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (outputStreamUsed) {
+                throw new IllegalStateException("getOutputStream() has already been called for this response");
+            }
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            setContentLengthLong(len);
+        }
+
+        /**
+         * Overrides the method of Servlet 3.1 containers. The length of a body that is
+         * compressed is not known in advance.
+         */
+        public void setContentLengthLong(long len) {
+            if (outputStream.isCompressing()) {
+                return;
+            }
+            if (outputStream.isStarted()) {
+                super.setHeader(HEADER_CONTENT_LENGTH, Long.toString(len));
+            }
+            else {
+                contentLength = len;
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HEADER_CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            }
+            else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HEADER_CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            }
+            else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            if (HEADER_CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(value);
+            }
+            else {
+                super.setIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            if (HEADER_CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(value);
+            }
+            else {
+                super.addIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            else {
+                outputStream.flush();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            outputStream.resetBuffer();
+            super.resetBuffer();
+        }
+
+        @Override
+        public void reset() {
+            outputStream.resetBuffer();
+            contentLength = -1;
+            super.reset();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            outputStream.discard();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            outputStream.discard();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            outputStream.discard();
+            super.sendRedirect(location);
+        }
+
+        private void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            outputStream.finish();
+        }
+
+        /**
+         * Buffers the body until it is known whether it is compressed, and then writes it to
+         * the target stream, which compresses it or is the output stream of the response.
+         */
+        private final class CompressingOutputStream extends ServletOutputStream {
+
+            private byte[] buffer;
+            private int count;
+            private OutputStream target;
+            private Deflater deflater;
+            private boolean compressing;
+            private boolean closed;
+            private boolean discarded;
+
+            boolean isStarted() {
+                return target != null;
+            }
+
+            boolean isCompressing() {
+                return compressing;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                if (canBuffer(1)) {
+                    buffer[count++] = (byte) b;
+                }
+                else if (!discarded) {
+                    target.write(b);
+                }
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (canBuffer(len)) {
+                    System.arraycopy(b, off, buffer, count, len);
+                    count += len;
+                }
+                else if (!discarded) {
+                    target.write(b, off, len);
+                }
+            }
+
+            /**
+             * @return  <code>true</code> if the bytes fit into the buffer, and <code>false</code>
+             *          if they are written to the target stream, which is started if necessary.
+             */
+            private boolean canBuffer(int len) throws IOException {
+                if (closed) {
+                    throw new IOException("The response has been closed");
+                }
+                if (target != null || discarded) {
+                    return false;
+                }
+                if (buffer == null) {
+                    if (!isCompressible()) {
+                        start(false);
+                        return false;
+                    }
+                    buffer = new byte[minSize];
+                }
+                if (count + len <= buffer.length) {
+                    return true;
+                }
+                start(true);
+                return false;
+            }
+
+            private boolean isCompressible() {
+                return contentCoding != null
+                        && getHeader(HEADER_CONTENT_ENCODING) == null
+                        && !isExcluded(getContentType())
+                        && (contentLength < 0 || contentLength >= minSize);
+            }
+
+            private void start(boolean compress) throws IOException {
+                HttpServletResponse response = (HttpServletResponse) getResponse();
+                if (getHeader(HEADER_CONTENT_ENCODING) == null && !isExcluded(getContentType())) {
+                    response.addHeader(ConditionalRequests.HEADER_VARY, HEADER_ACCEPT_ENCODING);
+                }
+
+                if (compress) {
+                    response.setHeader(HEADER_CONTENT_ENCODING, contentCoding);
+                    String entityTag = response.getHeader(ConditionalRequests.HEADER_ETAG);
+                    if (entityTag != null && !entityTag.startsWith(ConditionalRequests.WEAK_PREFIX)) {
+                        response.setHeader(ConditionalRequests.HEADER_ETAG, ConditionalRequests.WEAK_PREFIX + entityTag);
+                    }
+
+                    if (GZIP.equals(contentCoding)) {
+                        target = new GZIPOutputStream(response.getOutputStream(), DEFLATER_BUFFER_SIZE);
+                    }
+                    else {
+                        deflater = new Deflater();
+                        target = new DeflaterOutputStream(response.getOutputStream(), deflater, DEFLATER_BUFFER_SIZE);
+                    }
+                    compressing = true;
+                }
+                else {
+                    applyContentLength();
+                    target = response.getOutputStream();
+                }
+
+                if (count > 0) {
+                    target.write(buffer, 0, count);
+                }
+                buffer = null;
+                count = 0;
+            }
+
+            private void applyContentLength() {
+                if (contentLength >= 0) {
+                    ((HttpServletResponse) getResponse()).setHeader(HEADER_CONTENT_LENGTH, Long.toString(contentLength));
+                }
+            }
+
+            /**
+             * A flush sends the body that has been buffered, compressed only if it has reached
+             * the minimum size.
+             */
+            @Override
+            public void flush() throws IOException {
+                if (closed || discarded) {
+                    return;
+                }
+                if (target == null) {
+                    start(buffer != null && (count >= minSize || contentLength >= minSize));
+                }
+                target.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed || discarded) {
+                    return;
+                }
+                if (target == null) {
+                    start(buffer != null && count >= minSize);
+                }
+                closed = true;
+                try {
+                    target.close();
+                }
+                finally {
+                    if (deflater != null) {
+                        deflater.end();
+                    }
+                }
+            }
+
+            /**
+             * Ends the body. A response without a body is left uncommitted, so that the
+             * container can still send its error page.
+             */
+            void finish() throws IOException {
+                if (closed || discarded) {
+                    return;
+                }
+                if (target == null && count == 0) {
+                    applyContentLength();
+                    return;
+                }
+                close();
+            }
+
+            void resetBuffer() {
+                if (compressing) {
+                    throw new IllegalStateException("Cannot reset the buffer of a response that is being compressed");
+                }
+                count = 0;
+            }
+
+            void discard() {
+                discarded = true;
+                buffer = null;
+                count = 0;
+            }
+        }
+    }
+}
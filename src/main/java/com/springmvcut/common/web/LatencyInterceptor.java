@@ -0,0 +1,73 @@
+package com.springmvcut.common.web;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import com.springmvcut.common.metrics.HandlerLatencyRegistry;
+
+/**
+ * Records the latency of every request that is handled by a controller method, from the
+ * start of the handling until the response has been rendered. A request that is handled
+ * asynchronously is recorded when its asynchronous dispatch completes. A request whose
+ * handler threw an exception that was not resolved is recorded as a server error.
+ * <p>
+ * The start time is kept in a holder that every thread reuses, so a request that is handled
+ * synchronously does not allocate anything. When the asynchronous handling of a request starts,
+ * the start time is moved to a request attribute, because the request is dispatched again on
+ * another thread.
+ */
+public class LatencyInterceptor extends HandlerInterceptorAdapter {
+
+    static final String ATTRIBUTE_START_NANOS = LatencyInterceptor.class.getName() + ".startNanos";
+
+    private static final ThreadLocal<StartTime> START_TIME = new ThreadLocal<StartTime>() {
+        @Override
+        protected StartTime initialValue() {
+            return new StartTime();
+        }
+    };
+
+    private final HandlerLatencyRegistry registry;
+
+    public LatencyInterceptor(HandlerLatencyRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            //The asynchronous dispatch of a request keeps the start time of its first dispatch.
+            Object asyncStartNanos = request.getAttribute(ATTRIBUTE_START_NANOS);
+            START_TIME.get().nanos = asyncStartNanos == null ? System.nanoTime() : (Long) asyncStartNanos;
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            request.setAttribute(ATTRIBUTE_START_NANOS, START_TIME.get().nanos);
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (!(handler instanceof HandlerMethod)) {
+            return;
+        }
+
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - START_TIME.get().nanos);
+        int status = ex != null && response.getStatus() < 400 ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+        registry.record(((HandlerMethod) handler).getMethod(), status, latencyMicros);
+    }
+
+    private static final class StartTime {
+
+        private long nanos;
+    }
+}
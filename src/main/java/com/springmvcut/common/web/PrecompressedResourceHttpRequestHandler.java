@@ -0,0 +1,138 @@
+package com.springmvcut.common.web;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+
+import com.springmvcut.common.controller.ConditionalRequests;
+
+/**
+ * Serves the static resources like {@link ResourceHttpRequestHandler}, but sends the gzip copy
+ * of a resource as is when the client accepts gzip. The copies are written next to the
+ * resources when the war is built, so the same file is not compressed again on every request.
+ * A resource without a copy is sent uncompressed, and the {@link CompressionFilter} compresses
+ * it if it is large enough.
+ */
+public class PrecompressedResourceHttpRequestHandler extends ResourceHttpRequestHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrecompressedResourceHttpRequestHandler.class);
+
+    public static final String GZIP_EXTENSION = ".gz";
+
+    @Override
+    protected Resource getResource(HttpServletRequest request) {
+        Resource resource = resolveResource(request);
+        if (resource == null
+                || CompressionFilter.quality(request.getHeader(CompressionFilter.HEADER_ACCEPT_ENCODING), CompressionFilter.GZIP) <= 0) {
+            return resource;
+        }
+
+        try {
+            Resource gzipped = resource.createRelative(resource.getFilename() + GZIP_EXTENSION);
+            if (gzipped.exists() && gzipped.isReadable()) {
+                LOGGER.debug("Serving the gzip copy of {}", resource);
+                return new GzippedResource(resource, gzipped);
+            }
+        }
+        catch (IOException ex) {
+            LOGGER.debug("Could not resolve the gzip copy of {}", resource, ex);
+        }
+        return resource;
+    }
+
+    /**
+     * Spring 4.1 and later, see the virtual-threads profile of the pom, declare that resolving
+     * the resource throws an <code>IOException</code>.
+     */
+    private Resource resolveResource(HttpServletRequest request) {
+        try {
+            return super.getResource(request);
+        }
+        catch (RuntimeException ex) {
+            throw ex;
+        }
+        catch (Exception ex) {
+            throw new IllegalStateException("Could not resolve the resource of: " + request.getRequestURI(), ex);
+        }
+    }
+
+    @Override
+    protected void setHeaders(HttpServletResponse response, Resource resource, MediaType mediaType) throws IOException {
+        super.setHeaders(response, resource, mediaType);
+        if (resource instanceof GzippedResource) {
+            response.setHeader(CompressionFilter.HEADER_CONTENT_ENCODING, CompressionFilter.GZIP);
+            response.addHeader(ConditionalRequests.HEADER_VARY, CompressionFilter.HEADER_ACCEPT_ENCODING);
+        }
+    }
+
+    /**
+     * The gzip copy of a resource, which has the file name of the resource, so that it is sent
+     * with the media type of the resource.
+     */
+    private static final class GzippedResource extends AbstractResource {
+
+        private final Resource resource;
+        private final Resource gzipped;
+
+        private GzippedResource(Resource resource, Resource gzipped) {
+            this.resource = resource;
+            this.gzipped = gzipped;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return gzipped.getInputStream();
+        }
+
+        @Override
+        public boolean exists() {
+            return gzipped.exists();
+        }
+
+        @Override
+        public URL getURL() throws IOException {
+            return gzipped.getURL();
+        }
+
+        @Override
+        public File getFile() throws IOException {
+            return gzipped.getFile();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return gzipped.contentLength();
+        }
+
+        @Override
+        public long lastModified() throws IOException {
+            return gzipped.lastModified();
+        }
+
+        @Override
+        public Resource createRelative(String relativePath) throws IOException {
+            return resource.createRelative(relativePath);
+        }
+
+        @Override
+        public String getFilename() {
+            return resource.getFilename();
+        }
+
+        @Override
+        public String getDescription() {
+            return gzipped.getDescription();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.springmvcut.common.web;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import com.springmvcut.common.jdbc.RoutingContextHolder;
+
+/**
+ * Sends the reads of a client to the primary database for a while after the client has
+ * modified data, so that it sees its own writes even if the replicas lag behind. A request
+ * whose method is not GET, HEAD or OPTIONS is considered a write. The end of the window is
+ * stored in a cookie, so it survives redirects and works with clients that are not pinned to
+ * a single application server.
+ */
+public class ReadYourWritesInterceptor extends HandlerInterceptorAdapter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadYourWritesInterceptor.class);
+
+    static final String COOKIE_PRIMARY_UNTIL = "primaryUntil";
+
+    private final long windowMillis;
+
+    /**
+     * @param windowMillis  How long after a write the reads of the client use the primary database.
+     */
+    public ReadYourWritesInterceptor(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        long now = System.currentTimeMillis();
+        if (isWrite(request)) {
+            Cookie cookie = new Cookie(COOKIE_PRIMARY_UNTIL, Long.toString(now + windowMillis));
+            cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+            cookie.setMaxAge((int) Math.max(1, (windowMillis + 999) / 1000));
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+            RoutingContextHolder.setPrimaryRequired(true);
+        }
+        else if (getPrimaryUntil(request) > now) {
+            LOGGER.debug("Reading from the primary database after a recent write of the client");
+            RoutingContextHolder.setPrimaryRequired(true);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RoutingContextHolder.reset();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RoutingContextHolder.reset();
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !"GET".equals(method) && !"HEAD".equals(method) && !"OPTIONS".equals(method);
+    }
+
+    private static long getPrimaryUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie: cookies) {
+            if (COOKIE_PRIMARY_UNTIL.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                }
+                catch (NumberFormatException ex) {
+                    LOGGER.debug("Ignoring an invalid {} cookie", COOKIE_PRIMARY_UNTIL, ex);
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -1,11 +1,16 @@
 package com.springmvcut.controller;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
+import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,8 +25,11 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.SessionAttributes;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.springframework.web.servlet.support.RequestContextUtils;
 
+import com.springmvcut.common.controller.ConditionalRequests;
 import com.springmvcut.dto.TodoDTO;
+import com.springmvcut.dto.TodoListVersionDTO;
 import com.springmvcut.exception.TodoNotFoundException;
 import com.springmvcut.model.Todo;
 import com.springmvcut.service.TodoService;
@@ -100,29 +108,65 @@ public class TodoController {
     }
 
     @RequestMapping(value = REQUEST_MAPPING_TODO_LIST, method = RequestMethod.GET)
-    public String findAll(Model model) {
+    public String findAll(Model model, HttpServletRequest request, HttpServletResponse response) {
         LOGGER.debug("Rendering to-do list.");
 
-        List<Todo> models = todoService.findAll();
-        LOGGER.debug("Found {} to-do entries.", models.size());
+        TodoListVersionDTO listVersion = todoService.findListVersion();
+        long lastModificationTime = 0;
+        if (listVersion.getLastModificationTime() != null) {
+            lastModificationTime = listVersion.getLastModificationTime().getMillis();
+        }
+
+        if (checkNotModified(request, response, null, listVersion.getCount(), lastModificationTime)) {
+            return null;
+        }
 
-        model.addAttribute(MODEL_ATTRIBUTE_TODO_LIST, models);
+        List<TodoDTO> summaries = todoService.findAllSummaries();
+        LOGGER.debug("Found {} to-do entries.", summaries.size());
+
+        model.addAttribute(MODEL_ATTRIBUTE_TODO_LIST, summaries);
 
         return VIEW_TODO_LIST;
     }
 
     @RequestMapping(value = REQUEST_MAPPING_TODO_VIEW, method = RequestMethod.GET)
-    public String findById(@PathVariable("id") Long id, Model model) throws TodoNotFoundException {
+    public String findById(@PathVariable("id") Long id, Model model, HttpServletRequest request, HttpServletResponse response)
+            throws TodoNotFoundException {
         LOGGER.debug("Rendering to-do page for to-do entry with id: {}", id);
 
-        Todo found = todoService.findById(id);
+        TodoDTO found = todoService.findDTOById(id);
         LOGGER.debug("Found to-do entry with information: {}", found);
 
+        if (checkNotModified(request, response, found.getModificationTime(), found.getId(), found.getVersion())) {
+            return null;
+        }
+
         model.addAttribute(MODEL_ATTRIBUTE_TODO, found);
 
         return VIEW_TODO_VIEW;
     }
 
+    /**
+     * Checks whether the client has the current version of a page. The rendered page depends on
+     * the locale, so the locale is part of the entity tag. A feedback message is shown only once,
+     * so a page that shows one is always rendered.
+     * @param lastModified  The modification time of the shown information, or <code>null</code>.
+     * @param parts         The values that identify the version of the shown information.
+     * @return  <code>true</code> if the page must not be rendered.
+     */
+    private boolean checkNotModified(HttpServletRequest request, HttpServletResponse response, DateTime lastModified, Object... parts) {
+        Map<String, ?> flashAttributes = RequestContextUtils.getInputFlashMap(request);
+        if (flashAttributes != null && flashAttributes.containsKey(FLASH_MESSAGE_KEY_FEEDBACK)) {
+            return false;
+        }
+
+        Object[] partsWithLocale = Arrays.copyOf(parts, parts.length + 1);
+        partsWithLocale[parts.length] = LocaleContextHolder.getLocale();
+
+        response.setHeader(ConditionalRequests.HEADER_VARY, "Accept-Language");
+        return ConditionalRequests.checkNotModified(request, response, ConditionalRequests.entityTag(partsWithLocale), lastModified);
+    }
+
     @RequestMapping(value = "/todo/update/{id}", method = RequestMethod.GET)
     public String showUpdateTodoForm(@PathVariable("id") Long id, Model model) throws TodoNotFoundException {
         LOGGER.debug("Rendering update to-do entry form for to-do entry with id: {}", id);
@@ -1,33 +1,71 @@
 package com.springmvcut.controller;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
+import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
 import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.SessionAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.springmvcut.common.batch.GroupCommitQueue;
+import com.springmvcut.common.batch.PendingWrite;
+import com.springmvcut.common.batch.WriteListener;
+import com.springmvcut.common.controller.ConditionalRequests;
+import com.springmvcut.common.controller.EventStream;
+import com.springmvcut.common.web.AsyncRequestExecutor;
+import com.springmvcut.common.web.SmileHttpMessageConverter;
+import com.springmvcut.dto.TodoChangeDTO;
+import com.springmvcut.dto.TodoBatchDTO;
 import com.springmvcut.dto.TodoDTO;
+import com.springmvcut.dto.TodoDeltaDTO;
+import com.springmvcut.dto.TodoListVersionDTO;
+import com.springmvcut.dto.TodoPageDTO;
 import com.springmvcut.exception.TodoNotFoundException;
+import com.springmvcut.exception.TodoVersionConflictException;
 import com.springmvcut.model.Todo;
+import com.springmvcut.repository.TodoCallback;
+import com.springmvcut.service.TodoChangeListener;
 import com.springmvcut.service.TodoService;
 
+/**
+ * The REST API of the to-do entries. The handler methods that use the database run on the
+ * {@link AsyncRequestExecutor}, so the container threads are not held while they wait for it.
+ * The export and the change stream write to the response themselves and are not run on it.
+ */
 @Controller
 @SessionAttributes("todo")
 public class TodoRESTController {
@@ -41,7 +79,27 @@ public class TodoRESTController {
     protected static final String MODEL_ATTRIBUTE_TODO = "todo";
     protected static final String MODEL_ATTRIBUTE_TODO_LIST = "todos";
 
+    protected static final String HEADER_IF_MATCH = "If-Match";
+
     protected static final String PARAMETER_TODO_ID = "id";
+    protected static final String PARAMETER_PAGE_AFTER = "after";
+    protected static final String PARAMETER_PAGE_LIMIT = "limit";
+    protected static final String PARAMETER_SEARCH_QUERY = "q";
+    protected static final String PARAMETER_MODIFIED_SINCE = "modifiedSince";
+
+    protected static final int MAX_PAGE_SIZE = 1000;
+    protected static final String DEFAULT_SEARCH_LIMIT = "20";
+    protected static final int MAX_SEARCH_LIMIT = 100;
+
+    protected static final MediaType MEDIA_TYPE_NDJSON = new MediaType("application", "x-ndjson");
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final SmileFactory SMILE_FACTORY = new SmileFactory();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    protected static final long CHANGE_STREAM_TIMEOUT_MILLIS = 5 * 60 * 1000;
+    protected static final long CHANGE_STREAM_RETRY_MILLIS = 2000;
+    protected static final String EVENT_RESET = "reset";
 
     protected static final String REQUEST_MAPPING_TODO_LIST = "/";
     protected static final String REQUEST_MAPPING_TODO_VIEW = "/todo/{id}";
@@ -53,74 +111,440 @@ public class TodoRESTController {
 
     private final TodoService todoService;
 
+    private final AsyncRequestExecutor asyncExecutor;
+
+    private GroupCommitQueue<TodoDTO, Todo> groupCommitQueue;
+
     @Autowired
-    public TodoRESTController(TodoService todoService) {
+    public TodoRESTController(TodoService todoService, AsyncRequestExecutor asyncExecutor) {
         this.todoService = todoService;
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    /**
+     * @param groupCommitQueue  Adds the new to-do entries of concurrent requests in shared
+     *                          transactions. Only present when group commit is enabled.
+     */
+    @Autowired(required = false)
+    public void setGroupCommitQueue(GroupCommitQueue<TodoDTO, Todo> groupCommitQueue) {
+        this.groupCommitQueue = groupCommitQueue;
     }
     
     @RequestMapping(value = "/api/todo", method = RequestMethod.POST)
     @ResponseBody
-    public TodoDTO add(@Valid @RequestBody TodoDTO dto) {
-        LOGGER.debug("Adding a new to-do entry with information: {}", dto);
+    public DeferredResult<TodoDTO> add(@Valid @RequestBody final TodoDTO dto) {
+        if (groupCommitQueue != null) {
+            return addInGroupCommit(dto);
+        }
+
+        return asyncExecutor.submit(new Callable<TodoDTO>() {
+            @Override
+            public TodoDTO call() {
+                LOGGER.debug("Adding a new to-do entry with information: {}", dto);
 
-        Todo added = todoService.add(dto);
-        LOGGER.debug("Added a to-do entry with information: {}", added);
+                Todo added = todoService.add(dto);
+                LOGGER.debug("Added a to-do entry with information: {}", added);
 
-       return createDTO(added);
+                return createDTO(added);
+            }
+        });
     }
 
-    @RequestMapping(value = "/api/todo/{id}", method = RequestMethod.DELETE)
+    /**
+     * The writer of the group commit queue sets the result, so a pending to-do entry does not
+     * hold a thread and a batch can have more entries than the executor has threads. An entry
+     * that is still queued when its request times out is not added, because the client gets
+     * 503 and may send it again.
+     */
+    private DeferredResult<TodoDTO> addInGroupCommit(final TodoDTO dto) {
+        LOGGER.debug("Queueing a new to-do entry with information: {}", dto);
+
+        final AtomicReference<PendingWrite> pending = new AtomicReference<PendingWrite>();
+        final DeferredResult<TodoDTO> result = asyncExecutor.defer(new Runnable() {
+            @Override
+            public void run() {
+                if (!pending.get().cancel()) {
+                    LOGGER.warn("The request timed out while its to-do entry was written: {}", dto);
+                }
+            }
+        });
+
+        pending.set(groupCommitQueue.submit(dto, new WriteListener<Todo>() {
+            @Override
+            public void onWritten(Todo added) {
+                LOGGER.debug("Added a to-do entry with information: {}", added);
+                result.setResult(createDTO(added));
+            }
+
+            @Override
+            public void onFailed(RuntimeException failure) {
+                result.setErrorResult(failure);
+            }
+        }));
+        return result;
+    }
+
+    @RequestMapping(value = "/api/todo/batch", method = RequestMethod.POST)
     @ResponseBody
-    public TodoDTO deleteById(@PathVariable("id") Long id) throws TodoNotFoundException {
-        LOGGER.debug("Deleting a to-do entry with id: {}", id);
+    public DeferredResult<List<Long>> addAll(@Valid @RequestBody final TodoBatchDTO batch) {
+        return asyncExecutor.submit(new Callable<List<Long>>() {
+            @Override
+            public List<Long> call() {
+                LOGGER.debug("Adding {} new to-do entries.", batch.getTodos().size());
+
+                List<Todo> added = todoService.addAll(batch.getTodos());
+                LOGGER.debug("Added {} to-do entries.", added.size());
+
+                List<Long> ids = new ArrayList<Long>(added.size());
+                for (Todo model: added) {
+                    ids.add(model.getId());
+                }
+
+                return ids;
+            }
+        });
+    }
 
-        Todo deleted = todoService.deleteById(id);
-        LOGGER.debug("Deleted to-do entry with information: {}", deleted);
+    @RequestMapping(value = "/api/todo/{id}", method = RequestMethod.DELETE)
+    @ResponseBody
+    public DeferredResult<TodoDTO> deleteById(@PathVariable("id") final Long id) {
+        return asyncExecutor.submit(new Callable<TodoDTO>() {
+            @Override
+            public TodoDTO call() throws TodoNotFoundException {
+                LOGGER.debug("Deleting a to-do entry with id: {}", id);
+
+                Todo deleted = todoService.deleteById(id);
+                LOGGER.debug("Deleted to-do entry with information: {}", deleted);
+
+                return createDTO(deleted);
+            }
+        });
+    }
 
-        return createDTO(deleted);
+    @RequestMapping(value = "/api/todo/{id}", method = RequestMethod.DELETE, headers = HEADER_IF_MATCH)
+    public DeferredResult<ResponseEntity<Void>> deleteByIdIfMatch(@PathVariable("id") final Long id,
+                                                                  @RequestHeader(HEADER_IF_MATCH) final String ifMatch) {
+        return asyncExecutor.submit(new Callable<ResponseEntity<Void>>() {
+            @Override
+            public ResponseEntity<Void> call() throws TodoNotFoundException, TodoVersionConflictException {
+                LOGGER.debug("Deleting a to-do entry with id: {} if it matches: {}", id, ifMatch);
+
+                if (isWildcard(ifMatch)) {
+                    todoService.deleteById(id);
+                }
+                else {
+                    todoService.deleteById(id, parseVersion(ifMatch, id));
+                }
+                LOGGER.debug("Deleted to-do entry with id: {}", id);
+
+                return new ResponseEntity<Void>(HttpStatus.NO_CONTENT);
+            }
+        });
     }
 
+    /**
+     * The list is not sent if the client has it already. Its entity tag is derived from the
+     * version of the list. No Last-Modified header is sent, because deleting a to-do entry
+     * does not change the latest modification time.
+     */
     @RequestMapping(value = "/api/todo", method = RequestMethod.GET)
+    public DeferredResult<ResponseEntity<List<TodoDTO>>> findAll(HttpServletRequest request) {
+        final ConditionalRequests.Preconditions preconditions = ConditionalRequests.Preconditions.of(request);
+        return asyncExecutor.submit(new Callable<ResponseEntity<List<TodoDTO>>>() {
+            @Override
+            public ResponseEntity<List<TodoDTO>> call() {
+                LOGGER.debug("Finding all todo entries.");
+
+                TodoListVersionDTO listVersion = todoService.findListVersion();
+                ResponseEntity<List<TodoDTO>> response = ConditionalRequests.createResponse(preconditions,
+                        createListEntityTag(listVersion), null, null);
+                if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                    return response;
+                }
+
+                List<TodoDTO> dtos = todoService.findAllDTOs();
+                LOGGER.debug("Found {} to-do entries.", dtos.size());
+
+                return new ResponseEntity<List<TodoDTO>>(dtos, response.getHeaders(), HttpStatus.OK);
+            }
+        });
+    }
+
+    @RequestMapping(value = "/api/todo", method = RequestMethod.GET, params = PARAMETER_PAGE_LIMIT)
     @ResponseBody
-    public List<TodoDTO> findAll() {
-        LOGGER.debug("Finding all todo entries.");
+    public DeferredResult<TodoPageDTO> findPage(@RequestParam(value = PARAMETER_PAGE_AFTER, required = false) final Long after,
+                                                @RequestParam(PARAMETER_PAGE_LIMIT) int limit) {
+        final int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return asyncExecutor.submit(new Callable<TodoPageDTO>() {
+            @Override
+            public TodoPageDTO call() {
+                LOGGER.debug("Finding {} to-do entries after id: {}", pageSize, after);
+
+                List<TodoDTO> dtos = todoService.findAfter(after, pageSize);
+                LOGGER.debug("Found {} to-do entries.", dtos.size());
+
+                Long next = null;
+                if (dtos.size() == pageSize) {
+                    next = dtos.get(dtos.size() - 1).getId();
+                }
+
+                return new TodoPageDTO(dtos, next);
+            }
+        });
+    }
 
-        List<Todo> models = todoService.findAll();
-        LOGGER.debug("Found {} to-do entries.", models.size());
+    /**
+     * Returns the to-do entries that were added, modified or deleted after the watermark of
+     * the previous synchronization, so a client that synchronizes its offline copy does not
+     * have to load the whole list. The watermark is given in milliseconds since the epoch.
+     */
+    @RequestMapping(value = "/api/todo", method = RequestMethod.GET, params = {PARAMETER_MODIFIED_SINCE, "!" + PARAMETER_PAGE_LIMIT})
+    @ResponseBody
+    public DeferredResult<TodoDeltaDTO> findChangedSince(@RequestParam(PARAMETER_MODIFIED_SINCE) final long modifiedSince) {
+        return asyncExecutor.submit(new Callable<TodoDeltaDTO>() {
+            @Override
+            public TodoDeltaDTO call() {
+                LOGGER.debug("Finding the to-do entries changed since: {}", modifiedSince);
+
+                TodoDeltaDTO delta = todoService.findChangedSince(new DateTime(modifiedSince));
+                LOGGER.debug("Found {} changed and {} deleted to-do entries.", delta.getTodos().size(), delta.getDeleted().size());
+
+                return delta;
+            }
+        });
+    }
 
-        return createDTOs(models);
+    @RequestMapping(value = "/api/todo/search", method = RequestMethod.GET)
+    @ResponseBody
+    public DeferredResult<List<TodoDTO>> search(@RequestParam(PARAMETER_SEARCH_QUERY) final String query,
+                                                @RequestParam(value = PARAMETER_PAGE_LIMIT, defaultValue = DEFAULT_SEARCH_LIMIT) int limit) {
+        final int searchLimit = Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+        return asyncExecutor.submit(new Callable<List<TodoDTO>>() {
+            @Override
+            public List<TodoDTO> call() {
+                LOGGER.debug("Searching {} to-do entries with query: {}", searchLimit, query);
+
+                List<TodoDTO> dtos = todoService.search(query, searchLimit);
+                LOGGER.debug("Found {} to-do entries.", dtos.size());
+
+                return dtos;
+            }
+        });
     }
 
-    private List<TodoDTO> createDTOs(List<Todo> models) {
-        List<TodoDTO> dtos = new ArrayList<TodoDTO>();
+    /**
+     * Streams the committed changes of the to-do entries as Server-Sent Events. A client that
+     * reconnects with the <code>Last-Event-ID</code> header receives the changes it missed, or
+     * a <code>reset</code> event if they are no longer known and it must reload the list.
+     */
+    @RequestMapping(value = "/api/todo/changes", method = RequestMethod.GET)
+    public void changes(@RequestHeader(value = EventStream.HEADER_LAST_EVENT_ID, required = false) String lastEventId,
+                        HttpServletRequest request,
+                        HttpServletResponse response) throws IOException {
+        LOGGER.debug("Streaming the changes of the to-do entries after event id: {}", lastEventId);
+
+        final ChangeStreamListener listener = new ChangeStreamListener();
+        listener.stream = EventStream.start(request, response, CHANGE_STREAM_TIMEOUT_MILLIS, CHANGE_STREAM_RETRY_MILLIS,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        todoService.unsubscribeFromChanges(listener);
+                    }
+                });
+        todoService.subscribeToChanges(parseEventId(lastEventId), listener);
+    }
 
-        for (Todo model: models) {
-            dtos.add(createDTO(model));
+    private Long parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(lastEventId.trim());
+        }
+        catch (NumberFormatException ex) {
+            //An unknown event id is older than every change that can be replayed.
+            LOGGER.debug("Invalid event id: {}", lastEventId);
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Streams all to-do entries as a JSON array, as one JSON object per line, or as a Smile
+     * array, depending on the media type the client prefers.
+     */
+    @RequestMapping(value = "/api/todo/export", method = RequestMethod.GET)
+    public void exportAll(@RequestHeader(value = "Accept", required = false) String accept,
+                          HttpServletResponse response) throws IOException {
+        MediaType exportType = selectExportType(accept);
+        final boolean ndjson = exportType.equals(MEDIA_TYPE_NDJSON);
+        LOGGER.debug("Exporting all to-do entries as {}.", exportType);
+
+        final JsonGenerator generator;
+        if (exportType.equals(SmileHttpMessageConverter.MEDIA_TYPE_SMILE)) {
+            response.setContentType(SmileHttpMessageConverter.MEDIA_TYPE_SMILE_VALUE);
+            generator = SMILE_FACTORY.createGenerator(response.getOutputStream());
+        }
+        else {
+            response.setContentType(exportType.toString());
+            response.setCharacterEncoding("UTF-8");
+            generator = JSON_FACTORY.createGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+            generator.setRootValueSeparator(null);
+        }
+
+        if (!ndjson) {
+            generator.writeStartArray();
         }
 
-        return dtos;
+        todoService.exportAll(new TodoCallback() {
+            @Override
+            public void processTodo(TodoDTO todo) {
+                try {
+                    writeTodo(generator, todo);
+                    if (ndjson) {
+                        generator.writeRaw('\n');
+                    }
+                }
+                catch (IOException ex) {
+                    throw new IllegalStateException("Could not write to-do entry: " + todo.getId(), ex);
+                }
+            }
+        });
+
+        if (!ndjson) {
+            generator.writeEndArray();
+        }
+        generator.close();
     }
 
-    @RequestMapping(value = "/api/todo/{id}", method = RequestMethod.GET)
-    @ResponseBody
-    public TodoDTO findById(@PathVariable("id") Long id) throws TodoNotFoundException {
-        LOGGER.debug("Finding to-do entry with id: {}", id);
+    private MediaType selectExportType(String accept) {
+        if (accept == null) {
+            return MediaType.APPLICATION_JSON;
+        }
 
-        Todo found = todoService.findById(id);
-        LOGGER.debug("Found to-do entry with information: {}", found);
+        List<MediaType> acceptedTypes = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(acceptedTypes);
+
+        for (MediaType acceptedType: acceptedTypes) {
+            if (acceptedType.includes(MediaType.APPLICATION_JSON)) {
+                return MediaType.APPLICATION_JSON;
+            }
+            if (acceptedType.includes(MEDIA_TYPE_NDJSON)) {
+                return MEDIA_TYPE_NDJSON;
+            }
+            if (acceptedType.includes(SmileHttpMessageConverter.MEDIA_TYPE_SMILE)) {
+                return SmileHttpMessageConverter.MEDIA_TYPE_SMILE;
+            }
+        }
 
-        return createDTO(found);
+        return MediaType.APPLICATION_JSON;
+    }
+
+    private void writeTodo(JsonGenerator generator, TodoDTO todo) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", todo.getId());
+        generator.writeStringField("idString", todo.getIdString());
+        generator.writeStringField("description", todo.getDescription());
+        generator.writeStringField("title", todo.getTitle());
+        generator.writeEndObject();
+    }
+
+    @RequestMapping(value = "/api/todo/{id}", method = RequestMethod.GET)
+    public DeferredResult<ResponseEntity<TodoDTO>> findById(@PathVariable("id") final Long id, HttpServletRequest request) {
+        final ConditionalRequests.Preconditions preconditions = ConditionalRequests.Preconditions.of(request);
+        return asyncExecutor.submit(new Callable<ResponseEntity<TodoDTO>>() {
+            @Override
+            public ResponseEntity<TodoDTO> call() throws TodoNotFoundException {
+                LOGGER.debug("Finding to-do entry with id: {}", id);
+
+                TodoDTO found = todoService.findDTOById(id);
+                LOGGER.debug("Found to-do entry with information: {}", found);
+
+                String entityTag = ConditionalRequests.entityTag(found.getId(), found.getVersion());
+                return ConditionalRequests.createResponse(preconditions, entityTag, found.getModificationTime(), found);
+            }
+        });
+    }
+
+    private String createListEntityTag(TodoListVersionDTO listVersion) {
+        long lastModificationTime = 0;
+        if (listVersion.getLastModificationTime() != null) {
+            lastModificationTime = listVersion.getLastModificationTime().getMillis();
+        }
+        return ConditionalRequests.entityTag(listVersion.getCount(), lastModificationTime);
     }
 
     @RequestMapping(value = "/api/todo/{id}", method = RequestMethod.PUT)
-    @ResponseBody
-    public TodoDTO update(@Valid @RequestBody TodoDTO dto, @PathVariable("id") Long todoId) throws TodoNotFoundException {
-        LOGGER.debug("Updating a to-do entry with information: {}", dto);
+    public DeferredResult<ResponseEntity<TodoDTO>> update(@Valid @RequestBody final TodoDTO dto,
+                                                          @PathVariable("id") Long todoId,
+                                                          @RequestHeader(value = HEADER_IF_MATCH, required = false) final String ifMatch) {
+        return asyncExecutor.submit(new Callable<ResponseEntity<TodoDTO>>() {
+            @Override
+            public ResponseEntity<TodoDTO> call() throws TodoNotFoundException, TodoVersionConflictException {
+                LOGGER.debug("Updating a to-do entry with information: {}", dto);
+
+                Long expectedVersion = dto.getVersion();
+                if (ifMatch != null && !isWildcard(ifMatch)) {
+                    expectedVersion = parseVersion(ifMatch, dto.getId());
+                }
+
+                if (expectedVersion == null) {
+                    Todo updated = todoService.update(dto);
+                    LOGGER.debug("Updated the information of a to-entry to: {}", updated);
+
+                    return new ResponseEntity<TodoDTO>(createDTO(updated), HttpStatus.OK);
+                }
+
+                long version = todoService.update(dto, expectedVersion);
+                LOGGER.debug("Updated the information of a to-entry to: {} with version: {}", dto, version);
+
+                HttpHeaders headers = new HttpHeaders();
+                headers.set(ConditionalRequests.HEADER_ETAG, ConditionalRequests.entityTag(dto.getId(), version));
+                return new ResponseEntity<TodoDTO>(new TodoDTO(dto.getId(), dto.getTitle(), dto.getDescription(), version),
+                        headers, HttpStatus.OK);
+            }
+        });
+    }
 
-        Todo updated = todoService.update(dto);
-        LOGGER.debug("Updated the information of a to-entry to: {}", updated);
+    private boolean isWildcard(String ifMatch) {
+        return "*".equals(ifMatch.trim());
+    }
 
-        return createDTO(updated);
+    /**
+     * Parses the version of a to-do entry from an entity tag. The tag is either the version
+     * or the tag that is returned by {@link #findById(Long, HttpServletRequest)},
+     * which contains the id and the version. A tag that is not a version of the given to-do
+     * entry can never match, so it is parsed to a version that no to-do entry has.
+     * <p>
+     * <code>If-Match</code> uses the strong comparison of RFC 7232, so a weak tag, like the
+     * one of a compressed response, never matches either. A client that wants to update an
+     * entry it read compressed must send the tag without the weak prefix or the version.
+     */
+    private long parseVersion(String entityTag, Long id) {
+        String version = entityTag.trim();
+        if (version.startsWith(ConditionalRequests.WEAK_PREFIX)) {
+            LOGGER.debug("Weak entity tag: {} never matches a version of a to-do entry", entityTag);
+            return -1L;
+        }
+        if (version.length() > 1 && version.startsWith("\"") && version.endsWith("\"")) {
+            version = version.substring(1, version.length() - 1);
+        }
+
+        int separator = version.lastIndexOf('-');
+        if (separator > 0) {
+            if (!version.substring(0, separator).equals(String.valueOf(id))) {
+                LOGGER.debug("Entity tag: {} is not a tag of the to-do entry with id: {}", entityTag, id);
+                return -1L;
+            }
+            version = version.substring(separator + 1);
+        }
+
+        try {
+            return Long.parseLong(version);
+        }
+        catch (NumberFormatException ex) {
+            LOGGER.debug("Entity tag: {} is not a version of a to-do entry", entityTag);
+            return -1L;
+        }
     }
 
     private TodoDTO createDTO(Todo model) {
@@ -129,8 +553,37 @@ public class TodoRESTController {
         dto.setId(model.getId());
         dto.setDescription(model.getDescription());
         dto.setTitle(model.getTitle());
+        dto.setVersion(model.getVersion());
 
         return dto;
     }
  
+
+    /**
+     * Writes the changes to an event stream.
+     */
+    private static class ChangeStreamListener implements TodoChangeListener {
+
+        private EventStream stream;
+
+        @Override
+        public void onChange(TodoChangeDTO change) throws IOException {
+            stream.send(Long.toString(change.getEventId()), null, OBJECT_MAPPER.writeValueAsString(change));
+        }
+
+        @Override
+        public void onMissedChanges() throws IOException {
+            stream.send(null, EVENT_RESET, "{}");
+        }
+
+        @Override
+        public void onHeartbeat() throws IOException {
+            stream.sendComment("heartbeat");
+        }
+
+        @Override
+        public void onClose() {
+            stream.complete();
+        }
+    }
 }
@@ -0,0 +1,60 @@
+package com.springmvcut.dto;
+
+/**
+ * The statistics of a single cache region.
+ */
+public class CacheStatisticsDTO {
+
+    private String region;
+
+    private long size;
+
+    private long maxSize;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    public CacheStatisticsDTO(String region, long size, long maxSize, long hits, long misses, long evictions) {
+        this.region = region;
+        this.size = size;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public double getHitRatio() {
+        long requests = hits + misses;
+        if (requests == 0) {
+            return 0.0;
+        }
+        return (double) hits / requests;
+    }
+}
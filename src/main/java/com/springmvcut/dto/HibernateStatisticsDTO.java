@@ -0,0 +1,206 @@
+package com.springmvcut.dto;
+
+import java.util.List;
+
+/**
+ * The statistics of the Hibernate session factory since it was started or since its statistics
+ * were cleared. The times are in milliseconds.
+ */
+public class HibernateStatisticsDTO {
+
+    private long sessionOpenCount;
+
+    private long sessionCloseCount;
+
+    private long transactionCount;
+
+    private long successfulTransactionCount;
+
+    private long optimisticFailureCount;
+
+    private long flushCount;
+
+    private long connectCount;
+
+    private long prepareStatementCount;
+
+    private long entityLoadCount;
+
+    private long entityFetchCount;
+
+    private long entityInsertCount;
+
+    private long entityUpdateCount;
+
+    private long entityDeleteCount;
+
+    private long collectionLoadCount;
+
+    private long collectionFetchCount;
+
+    private long queryExecutionCount;
+
+    private long queryExecutionMaxTime;
+
+    private String queryExecutionMaxTimeQuery;
+
+    private List<QueryStatisticsDTO> queries;
+
+    public long getSessionOpenCount() {
+        return sessionOpenCount;
+    }
+
+    public long getSessionCloseCount() {
+        return sessionCloseCount;
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public long getSuccessfulTransactionCount() {
+        return successfulTransactionCount;
+    }
+
+    public long getOptimisticFailureCount() {
+        return optimisticFailureCount;
+    }
+
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    public long getConnectCount() {
+        return connectCount;
+    }
+
+    public long getPrepareStatementCount() {
+        return prepareStatementCount;
+    }
+
+    public long getEntityLoadCount() {
+        return entityLoadCount;
+    }
+
+    public long getEntityFetchCount() {
+        return entityFetchCount;
+    }
+
+    public long getEntityInsertCount() {
+        return entityInsertCount;
+    }
+
+    public long getEntityUpdateCount() {
+        return entityUpdateCount;
+    }
+
+    public long getEntityDeleteCount() {
+        return entityDeleteCount;
+    }
+
+    public long getCollectionLoadCount() {
+        return collectionLoadCount;
+    }
+
+    public long getCollectionFetchCount() {
+        return collectionFetchCount;
+    }
+
+    public long getQueryExecutionCount() {
+        return queryExecutionCount;
+    }
+
+    public long getQueryExecutionMaxTime() {
+        return queryExecutionMaxTime;
+    }
+
+    /**
+     * @return  The query whose execution took the longest time.
+     */
+    public String getQueryExecutionMaxTimeQuery() {
+        return queryExecutionMaxTimeQuery;
+    }
+
+    /**
+     * @return  The statistics of the executed queries, the query that took the most time first.
+     */
+    public List<QueryStatisticsDTO> getQueries() {
+        return queries;
+    }
+
+    public void setSessionOpenCount(long sessionOpenCount) {
+        this.sessionOpenCount = sessionOpenCount;
+    }
+
+    public void setSessionCloseCount(long sessionCloseCount) {
+        this.sessionCloseCount = sessionCloseCount;
+    }
+
+    public void setTransactionCount(long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    public void setSuccessfulTransactionCount(long successfulTransactionCount) {
+        this.successfulTransactionCount = successfulTransactionCount;
+    }
+
+    public void setOptimisticFailureCount(long optimisticFailureCount) {
+        this.optimisticFailureCount = optimisticFailureCount;
+    }
+
+    public void setFlushCount(long flushCount) {
+        this.flushCount = flushCount;
+    }
+
+    public void setConnectCount(long connectCount) {
+        this.connectCount = connectCount;
+    }
+
+    public void setPrepareStatementCount(long prepareStatementCount) {
+        this.prepareStatementCount = prepareStatementCount;
+    }
+
+    public void setEntityLoadCount(long entityLoadCount) {
+        this.entityLoadCount = entityLoadCount;
+    }
+
+    public void setEntityFetchCount(long entityFetchCount) {
+        this.entityFetchCount = entityFetchCount;
+    }
+
+    public void setEntityInsertCount(long entityInsertCount) {
+        this.entityInsertCount = entityInsertCount;
+    }
+
+    public void setEntityUpdateCount(long entityUpdateCount) {
+        this.entityUpdateCount = entityUpdateCount;
+    }
+
+    public void setEntityDeleteCount(long entityDeleteCount) {
+        this.entityDeleteCount = entityDeleteCount;
+    }
+
+    public void setCollectionLoadCount(long collectionLoadCount) {
+        this.collectionLoadCount = collectionLoadCount;
+    }
+
+    public void setCollectionFetchCount(long collectionFetchCount) {
+        this.collectionFetchCount = collectionFetchCount;
+    }
+
+    public void setQueryExecutionCount(long queryExecutionCount) {
+        this.queryExecutionCount = queryExecutionCount;
+    }
+
+    public void setQueryExecutionMaxTime(long queryExecutionMaxTime) {
+        this.queryExecutionMaxTime = queryExecutionMaxTime;
+    }
+
+    public void setQueryExecutionMaxTimeQuery(String queryExecutionMaxTimeQuery) {
+        this.queryExecutionMaxTimeQuery = queryExecutionMaxTimeQuery;
+    }
+
+    public void setQueries(List<QueryStatisticsDTO> queries) {
+        this.queries = queries;
+    }
+}
@@ -0,0 +1,64 @@
+package com.springmvcut.dto;
+
+/**
+ * The execution statistics of a single query. The times are in milliseconds.
+ */
+public class QueryStatisticsDTO {
+
+    private String query;
+
+    private long executionCount;
+
+    private long executionRowCount;
+
+    private long executionAvgTime;
+
+    private long executionMinTime;
+
+    private long executionMaxTime;
+
+    public QueryStatisticsDTO(String query,
+                              long executionCount,
+                              long executionRowCount,
+                              long executionAvgTime,
+                              long executionMinTime,
+                              long executionMaxTime) {
+        this.query = query;
+        this.executionCount = executionCount;
+        this.executionRowCount = executionRowCount;
+        this.executionAvgTime = executionAvgTime;
+        this.executionMinTime = executionMinTime;
+        this.executionMaxTime = executionMaxTime;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public long getExecutionCount() {
+        return executionCount;
+    }
+
+    public long getExecutionRowCount() {
+        return executionRowCount;
+    }
+
+    public long getExecutionAvgTime() {
+        return executionAvgTime;
+    }
+
+    public long getExecutionMinTime() {
+        return executionMinTime;
+    }
+
+    public long getExecutionMaxTime() {
+        return executionMaxTime;
+    }
+
+    /**
+     * @return  The approximate time that all executions of the query took.
+     */
+    public long getExecutionTotalTime() {
+        return executionCount * executionAvgTime;
+    }
+}
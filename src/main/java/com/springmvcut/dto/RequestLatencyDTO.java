@@ -0,0 +1,93 @@
+package com.springmvcut.dto;
+
+/**
+ * The latencies of the requests that a handler method answered with a status class. The
+ * latencies are in microseconds.
+ */
+public class RequestLatencyDTO {
+
+    private String handler;
+
+    private String statusClass;
+
+    private long count;
+
+    private double ratePerSecond;
+
+    private double mean;
+
+    private long p50;
+
+    private long p90;
+
+    private long p99;
+
+    private long p999;
+
+    private long max;
+
+    public RequestLatencyDTO(String handler,
+                             String statusClass,
+                             long count,
+                             double ratePerSecond,
+                             double mean,
+                             long p50,
+                             long p90,
+                             long p99,
+                             long p999,
+                             long max) {
+        this.handler = handler;
+        this.statusClass = statusClass;
+        this.count = count;
+        this.ratePerSecond = ratePerSecond;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    public String getHandler() {
+        return handler;
+    }
+
+    public String getStatusClass() {
+        return statusClass;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return  The mean number of requests per second since the recording started.
+     */
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+}
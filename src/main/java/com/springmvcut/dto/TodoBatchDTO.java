@@ -0,0 +1,34 @@
+package com.springmvcut.dto;
+
+import java.util.List;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Size;
+
+import org.hibernate.validator.constraints.NotEmpty;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * The to-do entries of a batch create request. It is read from and written as a plain JSON array.
+ */
+public class TodoBatchDTO {
+
+    public static final int MAX_SIZE = 1000;
+
+    @NotEmpty
+    @Size(max = MAX_SIZE)
+    @Valid
+    private List<TodoDTO> todos;
+
+    @JsonCreator
+    public TodoBatchDTO(List<TodoDTO> todos) {
+        this.todos = todos;
+    }
+
+    @JsonValue
+    public List<TodoDTO> getTodos() {
+        return todos;
+    }
+}
@@ -0,0 +1,66 @@
+package com.springmvcut.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Describes a committed change of a to-do entry. The event id orders the changes that are
+ * published by this application instance.
+ */
+public class TodoChangeDTO {
+
+    public enum Operation {
+        ADDED,
+        UPDATED,
+        DELETED
+    }
+
+    @JsonIgnore
+    private long eventId;
+
+    private Long id;
+
+    private long version;
+
+    private Operation operation;
+
+    public TodoChangeDTO(long eventId, Long id, long version, Operation operation) {
+        this.eventId = eventId;
+        this.id = id;
+        this.version = version;
+        this.operation = operation;
+    }
+
+    public long getEventId() {
+        return eventId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return  The id as a string, for clients that would round it when parsing it as a number.
+     */
+    public String getIdString() {
+        return id == null ? null : id.toString();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(96)
+                .append("TodoChangeDTO[eventId=").append(eventId)
+                .append(",id=").append(id)
+                .append(",version=").append(version)
+                .append(",operation=").append(operation)
+                .append(']')
+                .toString();
+    }
+}
@@ -1,9 +1,11 @@
 package com.springmvcut.dto;
 
-import org.apache.commons.lang.builder.ToStringBuilder;
 import org.hibernate.validator.constraints.Length;
 import org.hibernate.validator.constraints.NotEmpty;
+import org.joda.time.DateTime;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.springmvcut.model.Todo;
 
 public class TodoDTO {
@@ -16,10 +18,36 @@ public class TodoDTO {
 	    @Length(max = Todo.MAX_LENGTH_TITLE)
 	    private String title;
 
+	    private Long version;
+
+	    @JsonIgnore
+	    private DateTime modificationTime;
+
 	    public TodoDTO() {
 
 	    }
 
+	    public TodoDTO(Long id, String title) {
+	        this.id = id;
+	        this.title = title;
+	    }
+
+	    public TodoDTO(Long id, String title, String description) {
+	        this.id = id;
+	        this.title = title;
+	        this.description = description;
+	    }
+
+	    public TodoDTO(Long id, String title, String description, Long version) {
+	        this(id, title, description);
+	        this.version = version;
+	    }
+
+	    public TodoDTO(Long id, String title, String description, Long version, DateTime modificationTime) {
+	        this(id, title, description, version);
+	        this.modificationTime = modificationTime;
+	    }
+
 	    public Long getId() {
 	        return id;
 	    }
@@ -28,6 +56,24 @@ public class TodoDTO {
 	        this.id = id;
 	    }
 
+	    /**
+	     * The id written as a string, for clients that parse JSON numbers as doubles and would
+	     * round the id.
+	     */
+	    @JsonProperty
+	    public String getIdString() {
+	        return id == null ? null : id.toString();
+	    }
+
+	    /**
+	     * Ignores the id string that a client sends back, so that a rounded numeric id is not
+	     * replaced by it or the other way around.
+	     */
+	    @JsonIgnore
+	    public void setIdString(String idString) {
+
+	    }
+
 	    public String getDescription() {
 	        return description;
 	    }
@@ -44,8 +90,41 @@ public class TodoDTO {
 	        this.title = title;
 	    }
 
+	    public Long getVersion() {
+	        return version;
+	    }
+
+	    public void setVersion(Long version) {
+	        this.version = version;
+	    }
+
+	    public DateTime getModificationTime() {
+	        return modificationTime;
+	    }
+
+	    public void setModificationTime(DateTime modificationTime) {
+	        this.modificationTime = modificationTime;
+	    }
+
+	    /**
+	     * Written by hand, because this is called for every logged entry. The modification time
+	     * is written as milliseconds since the epoch, which avoids formatting it.
+	     */
 	    @Override
 	    public String toString() {
-	        return ToStringBuilder.reflectionToString(this);
+	        int capacity = 96 + (title == null ? 4 : title.length()) + (description == null ? 4 : description.length());
+	        StringBuilder builder = new StringBuilder(capacity)
+	                .append("TodoDTO[id=").append(id)
+	                .append(",title=").append(title)
+	                .append(",description=").append(description)
+	                .append(",version=").append(version)
+	                .append(",modificationTime=");
+	        if (modificationTime == null) {
+	            builder.append("null");
+	        }
+	        else {
+	            builder.append(modificationTime.getMillis());
+	        }
+	        return builder.append(']').toString();
 	    }
 }
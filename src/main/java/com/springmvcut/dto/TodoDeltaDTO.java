@@ -0,0 +1,69 @@
+package com.springmvcut.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The to-do entries that were added, modified or deleted after a watermark, returned by the
+ * delta synchronization API.
+ */
+public class TodoDeltaDTO {
+
+    private List<TodoDTO> todos;
+
+    private List<Long> deleted;
+
+    private long watermark;
+
+    private boolean reset;
+
+    public TodoDeltaDTO(List<TodoDTO> todos, List<Long> deleted, long watermark, boolean reset) {
+        this.todos = todos;
+        this.deleted = deleted;
+        this.watermark = watermark;
+        this.reset = reset;
+    }
+
+    /**
+     * @return  The added and modified to-do entries. Entries that the client has already
+     *          received may be returned again, so they must be applied by their version.
+     */
+    public List<TodoDTO> getTodos() {
+        return todos;
+    }
+
+    /**
+     * @return  The ids of the deleted to-do entries.
+     */
+    public List<Long> getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return  The ids of the deleted to-do entries as strings, for clients that would round
+     *          them when parsing them as numbers.
+     */
+    public List<String> getDeletedStrings() {
+        List<String> deletedStrings = new ArrayList<String>(deleted.size());
+        for (Long id: deleted) {
+            deletedStrings.add(id.toString());
+        }
+        return deletedStrings;
+    }
+
+    /**
+     * @return  The watermark that the client sends in its next synchronization request.
+     */
+    public long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * @return  <code>true</code> if the deletions after the given watermark are no longer
+     *          known. Then the to-do entries contain the whole list and the client must drop
+     *          the entries that are not in it.
+     */
+    public boolean isReset() {
+        return reset;
+    }
+}
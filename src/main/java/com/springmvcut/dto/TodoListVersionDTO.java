@@ -0,0 +1,31 @@
+package com.springmvcut.dto;
+
+import org.joda.time.DateTime;
+
+/**
+ * Identifies the state of the to-do list without loading it. Adding or updating a to-do entry
+ * changes the last modification time, and deleting one changes the count.
+ */
+public class TodoListVersionDTO {
+
+    private long count;
+
+    private DateTime lastModificationTime;
+
+    public TodoListVersionDTO(Long count, DateTime lastModificationTime) {
+        this.count = count;
+        this.lastModificationTime = lastModificationTime;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return  The latest modification time of the to-do entries, or <code>null</code> if
+     *          the list is empty.
+     */
+    public DateTime getLastModificationTime() {
+        return lastModificationTime;
+    }
+}
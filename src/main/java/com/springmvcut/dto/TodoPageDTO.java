@@ -0,0 +1,37 @@
+package com.springmvcut.dto;
+
+import java.util.List;
+
+/**
+ * A page of to-do entries returned by the keyset paging API.
+ */
+public class TodoPageDTO {
+
+    private List<TodoDTO> todos;
+
+    private Long next;
+
+    public TodoPageDTO(List<TodoDTO> todos, Long next) {
+        this.todos = todos;
+        this.next = next;
+    }
+
+    public List<TodoDTO> getTodos() {
+        return todos;
+    }
+
+    /**
+     * @return  The cursor of the next page, or <code>null</code> if this is the last page.
+     */
+    public Long getNext() {
+        return next;
+    }
+
+    /**
+     * @return  The cursor of the next page as a string, for clients that would round it when
+     *          parsing it as a number, or <code>null</code> if this is the last page.
+     */
+    public String getNextString() {
+        return next == null ? null : next.toString();
+    }
+}
@@ -0,0 +1,10 @@
+package com.springmvcut.exception;
+
+public class TodoVersionConflictException extends Exception{
+
+    private static final long serialVersionUID = 1L;
+
+	 public TodoVersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -1,28 +1,39 @@
 package com.springmvcut.model;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 import javax.persistence.Version;
 
-import org.apache.commons.lang.builder.ToStringBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.Type;
 import org.joda.time.DateTime;
 
 @Entity
 @Table(name="todos")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Todo {
 
     public static final int MAX_LENGTH_DESCRIPTION = 500;
     public static final int MAX_LENGTH_TITLE = 100;
 
+    /**
+     * The ids are time-ordered 64-bit numbers that are generated without a round trip to the
+     * database. They need more than 53 bits, so the to-do entries and changes returned by the
+     * REST API carry the id also as a string, which clients that parse JSON numbers as doubles,
+     * like JavaScript, must read instead.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "todo_id")
+    @GenericGenerator(name = "todo_id", strategy = "com.springmvcut.common.id.SnowflakeIdentifierGenerator")
     private Long id;
 
     @Column(name = "creation_time", nullable = false)
@@ -110,8 +121,29 @@ public class Todo {
         }
     }
 
+    /**
+     * Written by hand, because this is called for every logged entry. The times are written
+     * as milliseconds since the epoch, which avoids formatting them.
+     */
     @Override
     public String toString() {
-        return ToStringBuilder.reflectionToString(this);
+        int capacity = 128 + (title == null ? 4 : title.length()) + (description == null ? 4 : description.length());
+        StringBuilder builder = new StringBuilder(capacity)
+                .append("Todo[id=").append(id)
+                .append(",title=").append(title)
+                .append(",description=").append(description)
+                .append(",version=").append(version);
+        appendMillis(builder.append(",creationTime="), creationTime);
+        appendMillis(builder.append(",modificationTime="), modificationTime);
+        return builder.append(']').toString();
+    }
+
+    private static void appendMillis(StringBuilder builder, DateTime time) {
+        if (time == null) {
+            builder.append("null");
+        }
+        else {
+            builder.append(time.getMillis());
+        }
     }
 }
\ No newline at end of file
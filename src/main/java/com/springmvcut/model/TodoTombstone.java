@@ -0,0 +1,80 @@
+package com.springmvcut.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Type;
+import org.joda.time.DateTime;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Records that a to-do entry was deleted, so that clients that synchronize only the changed
+ * to-do entries can remove it as well. Tombstones are deleted after a retention period.
+ * <p>
+ * A tombstone is always new when it is saved, so it is inserted without first selecting it
+ * by its assigned id.
+ */
+@Entity
+@Table(name="todo_tombstones")
+public class TodoTombstone implements Persistable<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The id of the deleted to-do entry. The ids are never reused.
+     */
+    @Id
+    private Long id;
+
+    @Column(name = "deletion_time", nullable = false)
+    @Type(type="org.jadira.usertype.dateandtime.joda.PersistentDateTime")
+    private DateTime deletionTime;
+
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    public TodoTombstone() {
+
+    }
+
+    public TodoTombstone(Long id, long version) {
+        this.id = id;
+        this.version = version;
+        this.deletionTime = DateTime.now();
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    public DateTime getDeletionTime() {
+        return deletionTime;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(96)
+                .append("TodoTombstone[id=").append(id)
+                .append(",version=").append(version)
+                .append(",deletionTime=");
+        if (deletionTime == null) {
+            builder.append("null");
+        }
+        else {
+            builder.append(deletionTime.getMillis());
+        }
+        return builder.append(']').toString();
+    }
+}
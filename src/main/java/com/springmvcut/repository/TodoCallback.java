@@ -0,0 +1,15 @@
+package com.springmvcut.repository;
+
+import com.springmvcut.dto.TodoDTO;
+
+/**
+ * Receives to-do entries one at a time while they are read from the database.
+ */
+public interface TodoCallback {
+
+    /**
+     * Processes a single to-do entry. The entry is not referenced after this method returns.
+     * @param todo  The information of the processed to-do entry.
+     */
+    public void processTodo(TodoDTO todo);
+}
@@ -1,9 +1,129 @@
 package com.springmvcut.repository;
 
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
+import org.joda.time.DateTime;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.springmvcut.dto.TodoDTO;
+import com.springmvcut.dto.TodoListVersionDTO;
 import com.springmvcut.model.Todo;
 
-public interface TodoRepository extends JpaRepository<Todo, Long> {
+public interface TodoRepository extends JpaRepository<Todo, Long>, TodoRepositoryCustom {
+
+    public static final String HINT_CACHEABLE = "org.hibernate.cacheable";
+
+    /**
+     * Finds all to-do entries. The result is cached when the query cache is enabled.
+     * @return  The found to-do entries.
+     */
+    @Override
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    public List<Todo> findAll();
+
+    /**
+     * Finds the to-do entries whose id is greater than the given cursor. The rows are
+     * ordered by id so the query is a range scan of the primary key index, and its cost
+     * does not depend on how deep into the table the cursor points.
+     * @param after     The id of the last to-do entry of the previous page.
+     * @param pageable  The page size. The page number must be zero.
+     * @return  The found to-do entries.
+     */
+    @Query("SELECT new com.springmvcut.dto.TodoDTO(t.id, t.title, t.description, t.version) FROM Todo t WHERE t.id > :after ORDER BY t.id")
+    public List<TodoDTO> findAfter(@Param("after") Long after, Pageable pageable);
+
+    /**
+     * Finds the information of all to-do entries without loading them as entities.
+     * The result is cached when the query cache is enabled.
+     * @return  The found to-do entries.
+     */
+    @Query("SELECT new com.springmvcut.dto.TodoDTO(t.id, t.title, t.description, t.version) FROM Todo t ORDER BY t.id")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    public List<TodoDTO> findAllDTOs();
+
+    /**
+     * Finds the id and title of all to-do entries without loading them as entities.
+     * The result is cached when the query cache is enabled.
+     * @return  The found to-do entries. Their descriptions are not set.
+     */
+    @Query("SELECT new com.springmvcut.dto.TodoDTO(t.id, t.title) FROM Todo t ORDER BY t.id")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    public List<TodoDTO> findAllSummaries();
+
+    /**
+     * Finds the information of a to-do entry without loading it as an entity. The modification
+     * time is included so that it can be used as a validator of conditional requests. The query
+     * runs in its own read-only transaction, so that it is routed to a replica when it is called
+     * outside of a transaction and the primary database is not required.
+     * @param id    The id of the wanted to-do entry.
+     * @return  The found to-do entry or <code>null</code> if no to-do entry is found.
+     */
+    @Query("SELECT new com.springmvcut.dto.TodoDTO(t.id, t.title, t.description, t.version, t.modificationTime) FROM Todo t WHERE t.id = :id")
+    @Transactional(readOnly = true)
+    public TodoDTO findDTOById(@Param("id") Long id);
+
+    /**
+     * Finds the information of the to-do entries that were added or modified after the given
+     * time. The query is a range scan of the modification time index.
+     * @param since The time after which the to-do entries were modified.
+     * @return  The found to-do entries, the earliest modification first.
+     */
+    @Query("SELECT new com.springmvcut.dto.TodoDTO(t.id, t.title, t.description, t.version, t.modificationTime) FROM Todo t "
+            + "WHERE t.modificationTime > :since ORDER BY t.modificationTime")
+    public List<TodoDTO> findModifiedAfter(@Param("since") DateTime since);
+
+    /**
+     * Finds the information of the given to-do entries without loading them as entities.
+     * @param ids   The ids of the wanted to-do entries.
+     * @return  The found to-do entries in no particular order.
+     */
+    @Query("SELECT new com.springmvcut.dto.TodoDTO(t.id, t.title, t.description, t.version) FROM Todo t WHERE t.id IN :ids")
+    public List<TodoDTO> findDTOsByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Finds the number of to-do entries and their latest modification time with a single
+     * aggregate query.
+     * @return  The version of the to-do list.
+     */
+    @Query("SELECT new com.springmvcut.dto.TodoListVersionDTO(COUNT(t.id), MAX(t.modificationTime)) FROM Todo t")
+    public TodoListVersionDTO findListVersion();
+
+    /**
+     * Updates a to-do entry with a single statement if its version matches the expected
+     * version, and increments the version. The entry is not loaded, so the entity
+     * listeners are not invoked and the modification time must be given.
+     * @param id                The id of the updated to-do entry.
+     * @param version           The expected version of the updated to-do entry.
+     * @param title             The new title.
+     * @param description       The new description.
+     * @param modificationTime  The new modification time.
+     * @return  The number of updated rows: 1 if the entry was updated and 0 otherwise.
+     */
+    @Modifying
+    @Query("UPDATE Todo t SET t.title = :title, t.description = :description, t.modificationTime = :modificationTime, "
+            + "t.version = t.version + 1 WHERE t.id = :id AND t.version = :version")
+    public int updateIfVersionMatches(@Param("id") Long id,
+                                      @Param("version") long version,
+                                      @Param("title") String title,
+                                      @Param("description") String description,
+                                      @Param("modificationTime") DateTime modificationTime);
 
+    /**
+     * Deletes a to-do entry with a single statement if its version matches the expected version.
+     * @param id        The id of the deleted to-do entry.
+     * @param version   The expected version of the deleted to-do entry.
+     * @return  The number of deleted rows: 1 if the entry was deleted and 0 otherwise.
+     */
+    @Modifying
+    @Query("DELETE FROM Todo t WHERE t.id = :id AND t.version = :version")
+    public int deleteIfVersionMatches(@Param("id") Long id, @Param("version") long version);
 }
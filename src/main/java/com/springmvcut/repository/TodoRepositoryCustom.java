@@ -0,0 +1,15 @@
+package com.springmvcut.repository;
+
+/**
+ * Declares the repository methods that cannot be expressed as Spring Data query methods.
+ */
+public interface TodoRepositoryCustom {
+
+    /**
+     * Reads every to-do entry ordered by id and passes it to the callback. The rows are
+     * read through a forward-only cursor and are not attached to the persistence context,
+     * so the memory use does not depend on the number of rows.
+     * @param callback  The callback that processes the found to-do entries.
+     */
+    public void scrollAll(TodoCallback callback);
+}
@@ -0,0 +1,51 @@
+package com.springmvcut.repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import com.springmvcut.dto.TodoDTO;
+
+/**
+ * Implements the custom methods of {@link TodoRepository}. Spring Data finds this class
+ * by its name, so it must not be renamed.
+ */
+public class TodoRepositoryImpl implements TodoRepositoryCustom {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TodoRepositoryImpl.class);
+
+    private static final String QUERY_SCROLL_ALL = "SELECT new com.springmvcut.dto.TodoDTO(t.id, t.title, t.description) FROM Todo t ORDER BY t.id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${todo.export.fetchSize:500}")
+    private int exportFetchSize;
+
+    @Override
+    public void scrollAll(TodoCallback callback) {
+        LOGGER.debug("Scrolling all to-do entries with fetch size: {}", exportFetchSize);
+
+        Session session = entityManager.unwrap(Session.class);
+        ScrollableResults results = session.createQuery(QUERY_SCROLL_ALL)
+                .setFetchSize(exportFetchSize)
+                .setReadOnly(true)
+                .setCacheable(false)
+                .scroll(ScrollMode.FORWARD_ONLY);
+
+        try {
+            while (results.next()) {
+                callback.processTodo((TodoDTO) results.get(0));
+            }
+        }
+        finally {
+            results.close();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.springmvcut.repository;
+
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.springmvcut.model.TodoTombstone;
+
+public interface TodoTombstoneRepository extends JpaRepository<TodoTombstone, Long> {
+
+    /**
+     * Finds the ids of the to-do entries that were deleted after the given time. The query is
+     * a range scan of the deletion time index.
+     * @param since The time after which the to-do entries were deleted.
+     * @return  The ids of the deleted to-do entries.
+     */
+    @Query("SELECT t.id FROM TodoTombstone t WHERE t.deletionTime > :since ORDER BY t.deletionTime")
+    public List<Long> findIdsDeletedAfter(@Param("since") DateTime since);
+
+    /**
+     * Deletes the tombstones of the to-do entries that were deleted before the given time.
+     * @param before    The time before which the to-do entries were deleted.
+     * @return  The number of deleted tombstones.
+     */
+    @Modifying
+    @Query("DELETE FROM TodoTombstone t WHERE t.deletionTime < :before")
+    public int deleteDeletedBefore(@Param("before") DateTime before);
+}
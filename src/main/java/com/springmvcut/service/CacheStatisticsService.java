@@ -0,0 +1,18 @@
+package com.springmvcut.service;
+
+import java.util.List;
+
+import com.springmvcut.dto.CacheStatisticsDTO;
+
+public interface CacheStatisticsService {
+    /**
+     * Returns the statistics of the second-level cache regions.
+     * @return  The statistics of every cache region.
+     */
+    public List<CacheStatisticsDTO> findAll();
+
+    /**
+     * Resets the statistics of every second-level cache region.
+     */
+    public void clear();
+}
@@ -0,0 +1,16 @@
+package com.springmvcut.service;
+
+import com.springmvcut.dto.HibernateStatisticsDTO;
+
+public interface HibernateStatisticsService {
+    /**
+     * Returns the statistics of the Hibernate session factory.
+     * @return  The session, entity, connection and query statistics.
+     */
+    public HibernateStatisticsDTO find();
+
+    /**
+     * Resets the statistics of the Hibernate session factory.
+     */
+    public void clear();
+}
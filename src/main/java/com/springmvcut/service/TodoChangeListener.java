@@ -0,0 +1,32 @@
+package com.springmvcut.service;
+
+import java.io.IOException;
+
+import com.springmvcut.dto.TodoChangeDTO;
+
+/**
+ * Receives the committed changes of the to-do entries. The methods of a listener are called by
+ * one thread at a time, but not by the thread that made the change, so they may block while
+ * they send the change to a slow client. A listener that throws an exception is unsubscribed.
+ */
+public interface TodoChangeListener {
+
+    public void onChange(TodoChangeDTO change) throws IOException;
+
+    /**
+     * Called when changes were lost, because they are no longer in the replay log or because
+     * the listener could not keep up with them. The listener must reload the to-do entries.
+     */
+    public void onMissedChanges() throws IOException;
+
+    /**
+     * Called periodically when there are no changes, so that the listener can detect a broken
+     * connection.
+     */
+    public void onHeartbeat() throws IOException;
+
+    /**
+     * Called once when the listener is unsubscribed by the service.
+     */
+    public void onClose();
+}
@@ -2,9 +2,15 @@ package com.springmvcut.service;
 
 import java.util.List;
 
+import org.joda.time.DateTime;
+
 import com.springmvcut.dto.TodoDTO;
+import com.springmvcut.dto.TodoDeltaDTO;
+import com.springmvcut.dto.TodoListVersionDTO;
 import com.springmvcut.exception.TodoNotFoundException;
+import com.springmvcut.exception.TodoVersionConflictException;
 import com.springmvcut.model.Todo;
+import com.springmvcut.repository.TodoCallback;
 
 public interface TodoService {
 	/**
@@ -14,6 +20,13 @@ public interface TodoService {
      */
     public Todo add(TodoDTO added);
 
+    /**
+     * Adds new to-do entries in a single transaction.
+     * @param added The information of the added to-do entries.
+     * @return  The added to-do entries in the same order as their information was given.
+     */
+    public List<Todo> addAll(List<TodoDTO> added);
+
     /**
      * Deletes a to-do entry.
      * @param id    The id of the deleted to-do entry.
@@ -22,12 +35,62 @@ public interface TodoService {
      */
     public Todo deleteById(Long id) throws TodoNotFoundException;
 
+    /**
+     * Deletes a to-do entry if it has not been modified after the given version was read.
+     * @param id        The id of the deleted to-do entry.
+     * @param version   The version of the to-do entry known by the caller.
+     * @throws TodoNotFoundException        if no to-do entry is found with the given id.
+     * @throws TodoVersionConflictException if the version of the to-do entry is not the given version.
+     */
+    public void deleteById(Long id, long version) throws TodoNotFoundException, TodoVersionConflictException;
+
+    /**
+     * Deletes the tombstones of the to-do entries that were deleted before the tombstone
+     * retention period.
+     */
+    public void deleteExpiredTombstones();
+
+    /**
+     * Passes every to-do entry to the callback without loading them all into memory.
+     * @param callback  The callback that processes the to-do entries.
+     */
+    public void exportAll(TodoCallback callback);
+
     /**
      * Returns a list of to-do entries.
      * @return
      */
     public List<Todo> findAll();
 
+    /**
+     * Returns a page of to-do entries ordered by id.
+     * @param after The id of the last to-do entry of the previous page, or <code>null</code> for the first page.
+     * @param limit The maximum number of returned to-do entries.
+     * @return  The found to-do entries.
+     */
+    public List<TodoDTO> findAfter(Long after, int limit);
+
+    /**
+     * Returns the to-do entries that were added, modified or deleted after the given time.
+     * @param since The watermark of the previous synchronization.
+     * @return  The changed to-do entries and the ids of the deleted ones, or all to-do entries
+     *          if the deletions after the given time are no longer known.
+     */
+    public TodoDeltaDTO findChangedSince(DateTime since);
+
+    /**
+     * Returns the information of all to-do entries. The entries are read without
+     * loading them as entities.
+     * @return  The found to-do entries.
+     */
+    public List<TodoDTO> findAllDTOs();
+
+    /**
+     * Returns the id and title of all to-do entries.
+     * @return  The found to-do entries. Their descriptions are not set.
+     */
+    public List<TodoDTO> findAllSummaries();
+
     /**
      * Finds a to-do entry.
      * @param id    The id of the wanted to-do entry.
@@ -36,6 +99,43 @@ public interface TodoService {
      */
     public Todo findById(Long id) throws TodoNotFoundException;
 
+    /**
+     * Finds the information of a to-do entry without loading it as an entity.
+     * @param id    The id of the wanted to-do entry.
+     * @return  The information of the found to-do entry.
+     * @throws TodoNotFoundException    if no to-do entry is found with the given id.
+     */
+    public TodoDTO findDTOById(Long id) throws TodoNotFoundException;
+
+    /**
+     * Finds the version of the to-do list without loading the to-do entries.
+     * @return  The number of to-do entries and their latest modification time.
+     */
+    public TodoListVersionDTO findListVersion();
+
+    /**
+     * Finds the to-do entries whose title or description contains every word of the query.
+     * @param query The searched words.
+     * @param limit The maximum number of returned to-do entries.
+     * @return  The found to-do entries, the best match first.
+     */
+    public List<TodoDTO> search(String query, int limit);
+
+    /**
+     * Subscribes a listener to the changes that are committed from now on.
+     * @param lastEventId   The event id of the last change the listener has received, or
+     *                      <code>null</code>. The later changes are replayed if they are still
+     *                      known, and otherwise the listener is told that it missed changes.
+     * @param listener      The listener.
+     */
+    public void subscribeToChanges(Long lastEventId, TodoChangeListener listener);
+
+    /**
+     * Unsubscribes a listener from the changes.
+     * @param listener  The listener.
+     */
+    public void unsubscribeFromChanges(TodoChangeListener listener);
+
     /**
      * Updates the information of a to-do entry.
      * @param updated   The information of the updated to-do entry.
@@ -43,4 +143,14 @@ public interface TodoService {
      * @throws TodoNotFoundException    If no to-do entry is found with the given id.
      */
     public Todo update(TodoDTO updated) throws TodoNotFoundException;
+
+    /**
+     * Updates the information of a to-do entry if it has not been modified after the given version was read.
+     * @param updated   The information of the updated to-do entry.
+     * @param version   The version of the to-do entry known by the caller.
+     * @return  The new version of the updated to-do entry.
+     * @throws TodoNotFoundException        if no to-do entry is found with the given id.
+     * @throws TodoVersionConflictException if the version of the to-do entry is not the given version.
+     */
+    public long update(TodoDTO updated, long version) throws TodoNotFoundException, TodoVersionConflictException;
 }
@@ -0,0 +1,71 @@
+package com.springmvcut.service.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Statistics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.springmvcut.dto.CacheStatisticsDTO;
+import com.springmvcut.service.CacheStatisticsService;
+
+/**
+ * Reads the statistics of the cache regions from the shared Ehcache cache manager that
+ * Hibernate uses as its second-level cache. The statistics of the to-do snapshot cache of
+ * the service layer are reported as one more region.
+ */
+@Service("cacheStatisticsService")
+public class EhCacheStatisticsService implements CacheStatisticsService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EhCacheStatisticsService.class);
+
+    private final TodoSnapshotCache snapshotCache;
+
+    @Autowired
+    public EhCacheStatisticsService(TodoSnapshotCache snapshotCache) {
+        this.snapshotCache = snapshotCache;
+    }
+
+    @Override
+    public List<CacheStatisticsDTO> findAll() {
+        LOGGER.debug("Finding the statistics of all cache regions");
+
+        CacheManager cacheManager = CacheManager.getInstance();
+        String[] regions = cacheManager.getCacheNames();
+        Arrays.sort(regions);
+
+        List<CacheStatisticsDTO> dtos = new ArrayList<CacheStatisticsDTO>(regions.length + 1);
+        for (String region: regions) {
+            Ehcache cache = cacheManager.getEhcache(region);
+            Statistics statistics = cache.getStatistics();
+
+            dtos.add(new CacheStatisticsDTO(region,
+                    statistics.getObjectCount(),
+                    cache.getCacheConfiguration().getMaxElementsInMemory(),
+                    statistics.getCacheHits(),
+                    statistics.getCacheMisses(),
+                    statistics.getEvictionCount()));
+        }
+        dtos.add(snapshotCache.getStatistics());
+
+        return dtos;
+    }
+
+    @Override
+    public void clear() {
+        LOGGER.debug("Clearing the statistics of all cache regions");
+
+        CacheManager cacheManager = CacheManager.getInstance();
+        for (String region: cacheManager.getCacheNames()) {
+            cacheManager.getEhcache(region).clearStatistics();
+        }
+        snapshotCache.clearStatistics();
+    }
+}
@@ -1,17 +1,34 @@
 package com.springmvcut.service.impl;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.springmvcut.common.jdbc.RoutingContextHolder;
+import com.springmvcut.dto.TodoChangeDTO.Operation;
 import com.springmvcut.dto.TodoDTO;
+import com.springmvcut.dto.TodoDeltaDTO;
+import com.springmvcut.dto.TodoListVersionDTO;
 import com.springmvcut.exception.TodoNotFoundException;
+import com.springmvcut.exception.TodoVersionConflictException;
 import com.springmvcut.model.Todo;
+import com.springmvcut.model.TodoTombstone;
+import com.springmvcut.repository.TodoCallback;
 import com.springmvcut.repository.TodoRepository;
+import com.springmvcut.repository.TodoTombstoneRepository;
+import com.springmvcut.service.TodoChangeListener;
 import com.springmvcut.service.TodoService;
 
 @Service("todoService")
@@ -21,9 +38,48 @@ public class RepositoryTodoService implements TodoService {
 
     private final TodoRepository repository;
 
+    private final TodoSnapshotCache snapshotCache;
+
+    private final TodoSearchIndex searchIndex;
+
+    private final TodoChangeFeed changeFeed;
+
+    private final TodoTombstoneRepository tombstoneRepository;
+
+    private long syncOverlapMillis;
+
+    private long tombstoneRetentionMillis;
+
     @Autowired
-    public RepositoryTodoService(TodoRepository repository) {
+    public RepositoryTodoService(TodoRepository repository,
+                                 TodoSnapshotCache snapshotCache,
+                                 TodoSearchIndex searchIndex,
+                                 TodoChangeFeed changeFeed,
+                                 TodoTombstoneRepository tombstoneRepository) {
         this.repository = repository;
+        this.snapshotCache = snapshotCache;
+        this.searchIndex = searchIndex;
+        this.changeFeed = changeFeed;
+        this.tombstoneRepository = tombstoneRepository;
+    }
+
+    /**
+     * @param syncOverlapMillis How far before the watermark the changed to-do entries are
+     *                          searched. A transaction that stamped its changes before the
+     *                          watermark but committed after it is not missed, as long as it
+     *                          committed within this time.
+     */
+    @Value("${todo.sync.overlapMillis:5000}")
+    public void setSyncOverlapMillis(long syncOverlapMillis) {
+        this.syncOverlapMillis = syncOverlapMillis;
+    }
+
+    /**
+     * @param tombstoneRetentionMillis  How long the deletions are remembered.
+     */
+    @Value("${todo.sync.tombstoneRetentionMillis:2592000000}")
+    public void setTombstoneRetentionMillis(long tombstoneRetentionMillis) {
+        this.tombstoneRetentionMillis = tombstoneRetentionMillis;
     }
 
     @Transactional
@@ -31,11 +87,36 @@ public class RepositoryTodoService implements TodoService {
     public Todo add(TodoDTO added) {
         LOGGER.debug("Adding a new to-do entry with information: {}", added);
 
-        Todo model = Todo.getBuilder(added.getTitle())
-                .description(added.getDescription())
-                .build();
+        Todo model = createModel(added);
+
+        Todo saved = repository.save(model);
+        searchIndex.indexAfterCommit(saved.getId(), saved.getTitle(), saved.getDescription());
+        changeFeed.publishAfterCommit(saved, Operation.ADDED);
+        return saved;
+    }
+
+    @Transactional
+    @Override
+    public List<Todo> addAll(List<TodoDTO> added) {
+        LOGGER.debug("Adding {} new to-do entries", added.size());
+
+        List<Todo> models = new ArrayList<Todo>(added.size());
+        for (TodoDTO dto: added) {
+            models.add(createModel(dto));
+        }
+
+        List<Todo> saved = repository.save(models);
+        for (Todo model: saved) {
+            searchIndex.indexAfterCommit(model.getId(), model.getTitle(), model.getDescription());
+            changeFeed.publishAfterCommit(model, Operation.ADDED);
+        }
+        return saved;
+    }
 
-        return repository.save(model);
+    private Todo createModel(TodoDTO dto) {
+        return Todo.getBuilder(dto.getTitle())
+                .description(dto.getDescription())
+                .build();
     }
 
     @Transactional(rollbackFor = {TodoNotFoundException.class})
@@ -47,9 +128,46 @@ public class RepositoryTodoService implements TodoService {
         LOGGER.debug("Deleting to-do entry: {}", deleted);
 
         repository.delete(deleted);
+        tombstoneRepository.save(new TodoTombstone(id, deleted.getVersion()));
+        snapshotCache.invalidateAfterCompletion(id);
+        searchIndex.removeAfterCommit(id);
+        changeFeed.publishAfterCommit(id, deleted.getVersion(), Operation.DELETED);
         return deleted;
     }
 
+    @Transactional(rollbackFor = {TodoNotFoundException.class, TodoVersionConflictException.class})
+    @Override
+    public void deleteById(Long id, long version) throws TodoNotFoundException, TodoVersionConflictException {
+        LOGGER.debug("Deleting a to-do entry with id: {} and version: {}", id, version);
+
+        int deleted = repository.deleteIfVersionMatches(id, version);
+        snapshotCache.invalidateAfterCompletion(id);
+        if (deleted == 0) {
+            throwNotFoundOrConflict(id, version);
+        }
+        tombstoneRepository.save(new TodoTombstone(id, version));
+        searchIndex.removeAfterCommit(id);
+        changeFeed.publishAfterCommit(id, version, Operation.DELETED);
+    }
+
+    @Scheduled(fixedDelayString = "${todo.sync.tombstonePruneMillis:3600000}")
+    @Transactional
+    @Override
+    public void deleteExpiredTombstones() {
+        DateTime before = DateTime.now().minus(tombstoneRetentionMillis);
+        LOGGER.debug("Deleting the tombstones of the to-do entries deleted before: {}", before);
+
+        int deleted = tombstoneRepository.deleteDeletedBefore(before);
+        LOGGER.debug("Deleted {} tombstones", deleted);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public void exportAll(TodoCallback callback) {
+        LOGGER.debug("Exporting all to-do entries");
+        repository.scrollAll(callback);
+    }
+
     @Transactional(readOnly = true)
     @Override
     public List<Todo> findAll() {
@@ -57,6 +175,56 @@ public class RepositoryTodoService implements TodoService {
         return repository.findAll();
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public List<TodoDTO> findAfter(Long after, int limit) {
+        LOGGER.debug("Finding {} to-do entries after id: {}", limit, after);
+
+        Long cursor = after;
+        if (cursor == null) {
+            cursor = Long.MIN_VALUE;
+        }
+
+        return repository.findAfter(cursor, new PageRequest(0, limit));
+    }
+
+    /**
+     * The watermark is the time when the changes were read. The changes are searched from a
+     * while before the given watermark, so a client may receive a to-do entry again.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public TodoDeltaDTO findChangedSince(DateTime since) {
+        DateTime now = DateTime.now();
+        DateTime from = since.minus(syncOverlapMillis);
+        LOGGER.debug("Finding the to-do entries changed after: {}", from);
+
+        if (from.isBefore(now.minus(tombstoneRetentionMillis))) {
+            LOGGER.debug("The deletions after: {} are no longer known, returning all to-do entries", from);
+            return new TodoDeltaDTO(repository.findAllDTOs(), Collections.<Long>emptyList(), now.getMillis(), true);
+        }
+
+        List<TodoDTO> modified = repository.findModifiedAfter(from);
+        List<Long> deleted = tombstoneRepository.findIdsDeletedAfter(from);
+        LOGGER.debug("Found {} changed and {} deleted to-do entries", modified.size(), deleted.size());
+
+        return new TodoDeltaDTO(modified, deleted, now.getMillis(), false);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<TodoDTO> findAllDTOs() {
+        LOGGER.debug("Finding the information of all to-do entries");
+        return repository.findAllDTOs();
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<TodoDTO> findAllSummaries() {
+        LOGGER.debug("Finding the summaries of all to-do entries");
+        return repository.findAllSummaries();
+    }
+
     @Transactional(readOnly = true, rollbackFor = {TodoNotFoundException.class})
     @Override
     public Todo findById(Long id) throws TodoNotFoundException {
@@ -72,6 +240,95 @@ public class RepositoryTodoService implements TodoService {
         return found;
     }
 
+    /**
+     * Not transactional: a cached to-do entry is returned without acquiring a database
+     * connection. On a miss the query of the repository runs in its own read-only transaction
+     * on the primary database, because a snapshot read from a lagging replica would stay
+     * cached until it expires.
+     */
+    @Override
+    public TodoDTO findDTOById(Long id) throws TodoNotFoundException {
+        LOGGER.debug("Finding the information of a to-do entry with id: {}", id);
+
+        TodoDTO cached = snapshotCache.get(id);
+        if (cached != null) {
+            LOGGER.debug("Found the cached information of a to-do entry: {}", cached);
+            return cached;
+        }
+
+        long stamp = snapshotCache.stamp();
+        TodoDTO found = findDTOByIdFromPrimary(id);
+        LOGGER.debug("Found the information of a to-do entry: {}", found);
+
+        if (found == null) {
+            throw new TodoNotFoundException("No to-entry found with id: " + id);
+        }
+
+        snapshotCache.put(stamp, found);
+        return found;
+    }
+
+    private TodoDTO findDTOByIdFromPrimary(Long id) {
+        boolean primaryRequired = RoutingContextHolder.isPrimaryRequired();
+        RoutingContextHolder.setPrimaryRequired(true);
+        try {
+            return repository.findDTOById(id);
+        }
+        finally {
+            RoutingContextHolder.setPrimaryRequired(primaryRequired);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public TodoListVersionDTO findListVersion() {
+        LOGGER.debug("Finding the version of the to-do list");
+        return repository.findListVersion();
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<TodoDTO> search(String query, int limit) {
+        LOGGER.debug("Searching {} to-do entries with query: {}", limit, query);
+
+        long[] ids = searchIndex.search(query, limit);
+        if (ids.length == 0) {
+            return Collections.emptyList();
+        }
+
+        List<Long> boxedIds = new ArrayList<Long>(ids.length);
+        for (long id: ids) {
+            boxedIds.add(id);
+        }
+
+        Map<Long, TodoDTO> found = new HashMap<Long, TodoDTO>();
+        for (TodoDTO dto: repository.findDTOsByIds(boxedIds)) {
+            found.put(dto.getId(), dto);
+        }
+
+        //An entry that was deleted after the search is missing from the database.
+        List<TodoDTO> ranked = new ArrayList<TodoDTO>(found.size());
+        for (Long id: boxedIds) {
+            TodoDTO dto = found.get(id);
+            if (dto != null) {
+                ranked.add(dto);
+            }
+        }
+        return ranked;
+    }
+
+    @Override
+    public void subscribeToChanges(Long lastEventId, TodoChangeListener listener) {
+        LOGGER.debug("Subscribing to the changes after event id: {}", lastEventId);
+        changeFeed.subscribe(lastEventId, listener);
+    }
+
+    @Override
+    public void unsubscribeFromChanges(TodoChangeListener listener) {
+        LOGGER.debug("Unsubscribing from the changes");
+        changeFeed.unsubscribe(listener);
+    }
+
     @Transactional(rollbackFor = {TodoNotFoundException.class})
     @Override
     public Todo update(TodoDTO updated) throws TodoNotFoundException {
@@ -81,7 +338,39 @@ public class RepositoryTodoService implements TodoService {
         LOGGER.debug("Found a to-do entry: {}", model);
 
         model.update(updated.getDescription(), updated.getTitle());
+        snapshotCache.invalidateAfterCompletion(model.getId());
+        searchIndex.indexAfterCommit(model.getId(), model.getTitle(), model.getDescription());
+        changeFeed.publishAfterCommit(model, Operation.UPDATED);
 
         return model;
     }
+
+    @Transactional(rollbackFor = {TodoNotFoundException.class, TodoVersionConflictException.class})
+    @Override
+    public long update(TodoDTO updated, long version) throws TodoNotFoundException, TodoVersionConflictException {
+        LOGGER.debug("Updating contact with information: {} and version: {}", updated, version);
+
+        int updatedRows = repository.updateIfVersionMatches(updated.getId(),
+                version,
+                updated.getTitle(),
+                updated.getDescription(),
+                DateTime.now());
+        snapshotCache.invalidateAfterCompletion(updated.getId());
+
+        if (updatedRows == 0) {
+            throwNotFoundOrConflict(updated.getId(), version);
+        }
+        searchIndex.indexAfterCommit(updated.getId(), updated.getTitle(), updated.getDescription());
+        changeFeed.publishAfterCommit(updated.getId(), version + 1, Operation.UPDATED);
+
+        return version + 1;
+    }
+
+    private void throwNotFoundOrConflict(Long id, long version) throws TodoNotFoundException, TodoVersionConflictException {
+        if (!repository.exists(id)) {
+            throw new TodoNotFoundException("No to-entry found with id: " + id);
+        }
+
+        throw new TodoVersionConflictException("The version of the to-do entry with id: " + id + " is not: " + version);
+    }
 }
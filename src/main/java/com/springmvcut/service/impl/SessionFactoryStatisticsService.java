@@ -0,0 +1,186 @@
+package com.springmvcut.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import com.springmvcut.dto.HibernateStatisticsDTO;
+import com.springmvcut.dto.QueryStatisticsDTO;
+import com.springmvcut.service.HibernateStatisticsService;
+
+/**
+ * Reads the statistics that the Hibernate session factory collects when
+ * <code>hibernate.generate_statistics</code> is enabled. The same statistics are exposed as
+ * JMX attributes, and the collection can be switched on and off at runtime.
+ */
+@Service("hibernateStatisticsService")
+@ManagedResource(description = "Statistics of the Hibernate session factory")
+public class SessionFactoryStatisticsService implements HibernateStatisticsService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionFactoryStatisticsService.class);
+
+    private static final Comparator<QueryStatisticsDTO> BY_TOTAL_TIME = new Comparator<QueryStatisticsDTO>() {
+        @Override
+        public int compare(QueryStatisticsDTO first, QueryStatisticsDTO second) {
+            long firstTime = first.getExecutionTotalTime();
+            long secondTime = second.getExecutionTotalTime();
+            return firstTime > secondTime ? -1 : (firstTime == secondTime ? 0 : 1);
+        }
+    };
+
+    private final Statistics statistics;
+
+    @Autowired
+    public SessionFactoryStatisticsService(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Override
+    public HibernateStatisticsDTO find() {
+        LOGGER.debug("Finding the statistics of the session factory");
+
+        HibernateStatisticsDTO dto = new HibernateStatisticsDTO();
+        dto.setSessionOpenCount(statistics.getSessionOpenCount());
+        dto.setSessionCloseCount(statistics.getSessionCloseCount());
+        dto.setTransactionCount(statistics.getTransactionCount());
+        dto.setSuccessfulTransactionCount(statistics.getSuccessfulTransactionCount());
+        dto.setOptimisticFailureCount(statistics.getOptimisticFailureCount());
+        dto.setFlushCount(statistics.getFlushCount());
+        dto.setConnectCount(statistics.getConnectCount());
+        dto.setPrepareStatementCount(statistics.getPrepareStatementCount());
+        dto.setEntityLoadCount(statistics.getEntityLoadCount());
+        dto.setEntityFetchCount(statistics.getEntityFetchCount());
+        dto.setEntityInsertCount(statistics.getEntityInsertCount());
+        dto.setEntityUpdateCount(statistics.getEntityUpdateCount());
+        dto.setEntityDeleteCount(statistics.getEntityDeleteCount());
+        dto.setCollectionLoadCount(statistics.getCollectionLoadCount());
+        dto.setCollectionFetchCount(statistics.getCollectionFetchCount());
+        dto.setQueryExecutionCount(statistics.getQueryExecutionCount());
+        dto.setQueryExecutionMaxTime(statistics.getQueryExecutionMaxTime());
+        dto.setQueryExecutionMaxTimeQuery(statistics.getQueryExecutionMaxTimeQueryString());
+        dto.setQueries(findQueries());
+
+        return dto;
+    }
+
+    private List<QueryStatisticsDTO> findQueries() {
+        String[] queries = statistics.getQueries();
+
+        List<QueryStatisticsDTO> dtos = new ArrayList<QueryStatisticsDTO>(queries.length);
+        for (String query: queries) {
+            QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+            dtos.add(new QueryStatisticsDTO(query,
+                    queryStatistics.getExecutionCount(),
+                    queryStatistics.getExecutionRowCount(),
+                    queryStatistics.getExecutionAvgTime(),
+                    queryStatistics.getExecutionMinTime(),
+                    queryStatistics.getExecutionMaxTime()));
+        }
+        Collections.sort(dtos, BY_TOTAL_TIME);
+
+        return dtos;
+    }
+
+    @ManagedOperation(description = "Resets the statistics of the session factory")
+    @Override
+    public void clear() {
+        LOGGER.debug("Clearing the statistics of the session factory");
+        statistics.clear();
+    }
+
+    @ManagedAttribute(description = "Whether the statistics are collected")
+    public boolean isStatisticsEnabled() {
+        return statistics.isStatisticsEnabled();
+    }
+
+    @ManagedAttribute(description = "Whether the statistics are collected")
+    public void setStatisticsEnabled(boolean statisticsEnabled) {
+        LOGGER.info("Setting the collection of the session factory statistics to: {}", statisticsEnabled);
+        statistics.setStatisticsEnabled(statisticsEnabled);
+    }
+
+    @ManagedAttribute(description = "Number of connections that the sessions acquired")
+    public long getConnectCount() {
+        return statistics.getConnectCount();
+    }
+
+    @ManagedAttribute(description = "Number of prepared statements")
+    public long getPrepareStatementCount() {
+        return statistics.getPrepareStatementCount();
+    }
+
+    @ManagedAttribute(description = "Number of flushes")
+    public long getFlushCount() {
+        return statistics.getFlushCount();
+    }
+
+    @ManagedAttribute(description = "Number of loaded entities")
+    public long getEntityLoadCount() {
+        return statistics.getEntityLoadCount();
+    }
+
+    @ManagedAttribute(description = "Number of entities fetched by a separate query")
+    public long getEntityFetchCount() {
+        return statistics.getEntityFetchCount();
+    }
+
+    @ManagedAttribute(description = "Number of inserted entities")
+    public long getEntityInsertCount() {
+        return statistics.getEntityInsertCount();
+    }
+
+    @ManagedAttribute(description = "Number of updated entities")
+    public long getEntityUpdateCount() {
+        return statistics.getEntityUpdateCount();
+    }
+
+    @ManagedAttribute(description = "Number of deleted entities")
+    public long getEntityDeleteCount() {
+        return statistics.getEntityDeleteCount();
+    }
+
+    @ManagedAttribute(description = "Number of executed queries")
+    public long getQueryExecutionCount() {
+        return statistics.getQueryExecutionCount();
+    }
+
+    @ManagedAttribute(description = "Longest query execution time in milliseconds")
+    public long getQueryExecutionMaxTime() {
+        return statistics.getQueryExecutionMaxTime();
+    }
+
+    @ManagedAttribute(description = "Query whose execution took the longest time")
+    public String getQueryExecutionMaxTimeQuery() {
+        return statistics.getQueryExecutionMaxTimeQueryString();
+    }
+
+    @ManagedAttribute(description = "Total time, execution count, average time and maximum time in milliseconds of every query, the query that took the most time first")
+    public String[] getQueries() {
+        List<QueryStatisticsDTO> dtos = findQueries();
+
+        String[] queries = new String[dtos.size()];
+        for (int index = 0; index < queries.length; index++) {
+            QueryStatisticsDTO dto = dtos.get(index);
+            queries[index] = "total=" + dto.getExecutionTotalTime()
+                    + " count=" + dto.getExecutionCount()
+                    + " avg=" + dto.getExecutionAvgTime()
+                    + " max=" + dto.getExecutionMaxTime()
+                    + " " + dto.getQuery();
+        }
+        return queries;
+    }
+}
@@ -0,0 +1,354 @@
+package com.springmvcut.service.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.springmvcut.dto.TodoChangeDTO;
+import com.springmvcut.dto.TodoChangeDTO.Operation;
+import com.springmvcut.model.Todo;
+import com.springmvcut.service.TodoChangeListener;
+
+/**
+ * Publishes the committed changes of the to-do entries to the subscribed listeners.
+ * <p>
+ * Every subscriber has a bounded buffer that a pool of dispatcher threads drains, so a slow
+ * subscriber never blocks the thread that committed a change. A subscriber whose buffer
+ * overflows is told that it missed changes and is unsubscribed. The latest changes are kept in
+ * a replay log, so a subscriber that reconnects with the event id of the last change it
+ * received gets the changes it missed.
+ * <p>
+ * The event ids start from the current time in microseconds, so an event id of an earlier run
+ * of the application is older than the replay log. The changes of other application instances
+ * are not published.
+ */
+@ManagedResource(description = "Publishes the committed changes of the to-do entries")
+public class TodoChangeFeed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TodoChangeFeed.class);
+
+    private final int replayCapacity;
+    private final int bufferCapacity;
+    private final int dispatchThreads;
+    private final long heartbeatMillis;
+
+    private final Object lock = new Object();
+    private final Deque<TodoChangeDTO> replayLog;
+    private final Map<TodoChangeListener, Subscription> subscriptions = new IdentityHashMap<TodoChangeListener, Subscription>();
+    private long lastEventId = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+
+    private ExecutorService dispatcher;
+    private ScheduledExecutorService heartbeats;
+
+    /**
+     * @param replayCapacity    The number of latest changes that are replayed to reconnecting subscribers.
+     * @param bufferCapacity    The number of changes that may wait to be sent to a subscriber.
+     * @param dispatchThreads   The number of threads that send the changes to the subscribers.
+     * @param heartbeatMillis   The interval of the heartbeats.
+     */
+    public TodoChangeFeed(int replayCapacity, int bufferCapacity, int dispatchThreads, long heartbeatMillis) {
+        this.replayCapacity = replayCapacity;
+        this.bufferCapacity = bufferCapacity;
+        this.dispatchThreads = dispatchThreads;
+        this.heartbeatMillis = heartbeatMillis;
+        this.replayLog = new ArrayDeque<TodoChangeDTO>(replayCapacity);
+    }
+
+    public void start() {
+        dispatcher = Executors.newFixedThreadPool(dispatchThreads, new DaemonThreadFactory("todo-change-dispatcher"));
+        heartbeats = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("todo-change-heartbeat"));
+        heartbeats.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                for (Subscription subscription: getSubscriptions()) {
+                    subscription.heartbeat();
+                }
+            }
+        }, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        for (Subscription subscription: getSubscriptions()) {
+            unsubscribe(subscription.listener);
+        }
+        heartbeats.shutdownNow();
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Publishes a change of the given to-do entry when the current transaction has been
+     * committed. The id and the version are read after the commit, so they include the
+     * changes that were flushed by the commit. If there is no transaction, the change is
+     * published immediately.
+     */
+    public void publishAfterCommit(final Todo model, final Operation operation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(model.getId(), model.getVersion(), operation);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                publish(model.getId(), model.getVersion(), operation);
+            }
+        });
+    }
+
+    /**
+     * Publishes a change when the current transaction has been committed. If there is no
+     * transaction, the change is published immediately.
+     */
+    public void publishAfterCommit(final Long id, final long version, final Operation operation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(id, version, operation);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                publish(id, version, operation);
+            }
+        });
+    }
+
+    /**
+     * Publishes a change immediately.
+     */
+    public void publish(Long id, long version, Operation operation) {
+        synchronized (lock) {
+            TodoChangeDTO change = new TodoChangeDTO(++lastEventId, id, version, operation);
+            LOGGER.debug("Publishing change: {}", change);
+
+            if (replayLog.size() == replayCapacity) {
+                replayLog.removeFirst();
+            }
+            replayLog.addLast(change);
+
+            Iterator<Subscription> iterator = subscriptions.values().iterator();
+            while (iterator.hasNext()) {
+                if (!iterator.next().offer(change)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @see com.springmvcut.service.TodoService#subscribeToChanges(Long, TodoChangeListener)
+     */
+    public void subscribe(Long lastEventId, TodoChangeListener listener) {
+        Subscription subscription = new Subscription(listener);
+        synchronized (lock) {
+            subscriptions.put(listener, subscription);
+            if (lastEventId != null) {
+                replay(lastEventId, subscription);
+            }
+        }
+        LOGGER.debug("Subscribed a listener after event id: {}", lastEventId);
+    }
+
+    private void replay(long lastSeenEventId, Subscription subscription) {
+        long oldestKnownEventId = replayLog.isEmpty() ? lastEventId : replayLog.getFirst().getEventId() - 1;
+        if (lastSeenEventId < oldestKnownEventId || lastSeenEventId > lastEventId) {
+            LOGGER.debug("Cannot replay the changes after event id: {}", lastSeenEventId);
+            subscription.missedChanges();
+            return;
+        }
+
+        for (TodoChangeDTO change: replayLog) {
+            if (change.getEventId() > lastSeenEventId && !subscription.offer(change)) {
+                subscriptions.remove(subscription.listener);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @see com.springmvcut.service.TodoService#unsubscribeFromChanges(TodoChangeListener)
+     */
+    public void unsubscribe(TodoChangeListener listener) {
+        Subscription subscription;
+        synchronized (lock) {
+            subscription = subscriptions.remove(listener);
+        }
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    private List<Subscription> getSubscriptions() {
+        synchronized (lock) {
+            return new ArrayList<Subscription>(subscriptions.values());
+        }
+    }
+
+    @ManagedAttribute(description = "Number of subscribed listeners")
+    public int getSubscriberCount() {
+        synchronized (lock) {
+            return subscriptions.size();
+        }
+    }
+
+    @ManagedAttribute(description = "Event id of the latest change")
+    public long getLastEventId() {
+        synchronized (lock) {
+            return lastEventId;
+        }
+    }
+
+    /**
+     * Sends the buffered changes of one listener. At most one dispatcher thread runs the
+     * subscription at a time, so the listener is called by one thread at a time.
+     */
+    private class Subscription implements Runnable {
+
+        private final TodoChangeListener listener;
+        private final BlockingQueue<TodoChangeDTO> buffer = new ArrayBlockingQueue<TodoChangeDTO>(bufferCapacity);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closeNotified = new AtomicBoolean();
+        private volatile boolean missedChanges;
+        private volatile boolean heartbeat;
+        private volatile boolean closed;
+
+        Subscription(TodoChangeListener listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * @return  <code>false</code> if the buffer is full and the subscription must be removed.
+         */
+        boolean offer(TodoChangeDTO change) {
+            if (!buffer.offer(change)) {
+                LOGGER.debug("The buffer of a listener is full, unsubscribing it");
+                missedChanges();
+                close();
+                return false;
+            }
+            schedule();
+            return true;
+        }
+
+        void missedChanges() {
+            buffer.clear();
+            missedChanges = true;
+            schedule();
+        }
+
+        void heartbeat() {
+            heartbeat = true;
+            schedule();
+        }
+
+        void close() {
+            closed = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this);
+                }
+                catch (RejectedExecutionException ex) {
+                    scheduled.set(false);
+                    notifyClosed();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                dispatch();
+            }
+            catch (Exception ex) {
+                LOGGER.debug("Could not send changes to a listener, unsubscribing it", ex);
+                closed = true;
+                synchronized (lock) {
+                    subscriptions.remove(listener);
+                }
+            }
+            finally {
+                scheduled.set(false);
+            }
+
+            if (closed) {
+                notifyClosed();
+            }
+            else if (!buffer.isEmpty() || missedChanges || heartbeat) {
+                schedule();
+            }
+        }
+
+        private void dispatch() throws Exception {
+            dispatchMissedChanges();
+
+            TodoChangeDTO change;
+            while (!closed && (change = buffer.poll()) != null) {
+                heartbeat = false;
+                listener.onChange(change);
+            }
+
+            //A listener that overflowed is closed, but it is told to reload before that.
+            dispatchMissedChanges();
+
+            if (heartbeat && !closed) {
+                heartbeat = false;
+                listener.onHeartbeat();
+            }
+        }
+
+        private void dispatchMissedChanges() throws Exception {
+            if (missedChanges) {
+                missedChanges = false;
+                listener.onMissedChanges();
+            }
+        }
+
+        private void notifyClosed() {
+            if (closeNotified.compareAndSet(false, true)) {
+                listener.onClose();
+            }
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final String namePrefix;
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        DaemonThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
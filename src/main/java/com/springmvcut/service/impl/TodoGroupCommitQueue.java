@@ -0,0 +1,34 @@
+package com.springmvcut.service.impl;
+
+import java.util.List;
+
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import com.springmvcut.common.batch.GroupCommitQueue;
+import com.springmvcut.dto.TodoDTO;
+import com.springmvcut.model.Todo;
+import com.springmvcut.service.TodoService;
+
+/**
+ * Adds the to-do entries of concurrent requests in shared batched insert transactions.
+ */
+@ManagedResource(description = "Adds to-do entries in shared transactions")
+public class TodoGroupCommitQueue extends GroupCommitQueue<TodoDTO, Todo> {
+
+    private final TodoService todoService;
+
+    public TodoGroupCommitQueue(TodoService todoService,
+                                int queueCapacity,
+                                int maxBatchSize,
+                                long maxDelayMillis,
+                                long offerTimeoutMillis,
+                                long awaitTimeoutMillis) {
+        super(queueCapacity, maxBatchSize, maxDelayMillis, offerTimeoutMillis, awaitTimeoutMillis);
+        this.todoService = todoService;
+    }
+
+    @Override
+    protected List<Todo> write(List<TodoDTO> batch) {
+        return todoService.addAll(batch);
+    }
+}
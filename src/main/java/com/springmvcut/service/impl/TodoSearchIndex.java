@@ -0,0 +1,131 @@
+package com.springmvcut.service.impl;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.springmvcut.common.search.InvertedIndex;
+import com.springmvcut.common.search.Tokenizer;
+
+/**
+ * Indexes the titles and descriptions of the to-do entries for full-text search. A token that
+ * is found from the title counts twice as much as a token that is found from the description.
+ * <p>
+ * Changes are applied to the index after the transaction that made them has been committed,
+ * so a search never finds a to-do entry that was rolled back. While the index is rebuilt, the
+ * committed changes are applied as well, and the rebuild skips the entries that were changed,
+ * because it may have read them before the change.
+ */
+public class TodoSearchIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TodoSearchIndex.class);
+
+    private static final int WEIGHT_TITLE = 2;
+    private static final int WEIGHT_DESCRIPTION = 1;
+
+    private final InvertedIndex index = new InvertedIndex(new Tokenizer(), WEIGHT_TITLE, WEIGHT_DESCRIPTION);
+
+    /**
+     * The ids of the entries that were changed after the rebuild started, or <code>null</code>
+     * if the index is not being rebuilt. Guarded by this.
+     */
+    private Set<Long> changedDuringRebuild;
+
+    /**
+     * @param query The searched words.
+     * @param limit The maximum number of returned ids.
+     * @return  The ids of the to-do entries that contain every searched word, the best match first.
+     */
+    public long[] search(String query, int limit) {
+        return index.search(query, limit);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Adds a to-do entry to the index, or replaces it, immediately.
+     */
+    public synchronized void index(Long id, String title, String description) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(id);
+        }
+        index.index(id, title, description);
+    }
+
+    /**
+     * Removes a to-do entry from the index immediately.
+     */
+    public synchronized void remove(Long id) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(id);
+        }
+        index.remove(id);
+    }
+
+    /**
+     * Clears the index and starts recording the changed entries until the rebuild ends.
+     */
+    public synchronized void startRebuild() {
+        index.clear();
+        changedDuringRebuild = new HashSet<Long>();
+    }
+
+    /**
+     * Adds a to-do entry that the rebuild read from the database, unless the entry was changed
+     * after the rebuild started. The change is then already in the index, and the read entry
+     * may be older than it.
+     */
+    public synchronized void indexRebuilt(Long id, String title, String description) {
+        if (changedDuringRebuild == null || !changedDuringRebuild.contains(id)) {
+            index.index(id, title, description);
+        }
+    }
+
+    public synchronized void endRebuild() {
+        changedDuringRebuild = null;
+    }
+
+    /**
+     * Adds a to-do entry to the index, or replaces it, when the current transaction has been
+     * committed. If there is no transaction, the entry is indexed immediately.
+     */
+    public void indexAfterCommit(final Long id, final String title, final String description) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            index(id, title, description);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                LOGGER.debug("Indexing the to-do entry: {}", id);
+                index(id, title, description);
+            }
+        });
+    }
+
+    /**
+     * Removes a to-do entry from the index when the current transaction has been committed.
+     * If there is no transaction, the entry is removed immediately.
+     */
+    public void removeAfterCommit(final Long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remove(id);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                LOGGER.debug("Removing the to-do entry: {} from the index", id);
+                remove(id);
+            }
+        });
+    }
+}
@@ -0,0 +1,51 @@
+package com.springmvcut.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import com.springmvcut.dto.TodoDTO;
+import com.springmvcut.repository.TodoCallback;
+import com.springmvcut.service.TodoService;
+
+/**
+ * Builds the search index from the database when the application context has been started.
+ * The index is built before the context starts serving requests, and the to-do entries are
+ * streamed from the database so they are never all in memory at once. Entries that are
+ * changed while the index is built are not overwritten with what was read before the change.
+ */
+public class TodoSearchIndexInitializer implements ApplicationListener<ContextRefreshedEvent> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TodoSearchIndexInitializer.class);
+
+    private final TodoService todoService;
+
+    private final TodoSearchIndex searchIndex;
+
+    public TodoSearchIndexInitializer(TodoService todoService, TodoSearchIndex searchIndex) {
+        this.todoService = todoService;
+        this.searchIndex = searchIndex;
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        LOGGER.info("Building the search index of to-do entries");
+        long start = System.currentTimeMillis();
+
+        searchIndex.startRebuild();
+        try {
+            todoService.exportAll(new TodoCallback() {
+                @Override
+                public void processTodo(TodoDTO todo) {
+                    searchIndex.indexRebuilt(todo.getId(), todo.getTitle(), todo.getDescription());
+                }
+            });
+        }
+        finally {
+            searchIndex.endRebuild();
+        }
+
+        LOGGER.info("Indexed {} to-do entries in {} ms", searchIndex.size(), System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,156 @@
+package com.springmvcut.service.impl;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.springmvcut.common.cache.TinyLfuCache;
+import com.springmvcut.common.cache.Weigher;
+import com.springmvcut.dto.CacheStatisticsDTO;
+import com.springmvcut.dto.TodoDTO;
+
+/**
+ * Caches immutable snapshots of the information of single to-do entries so that reads of a
+ * popular entry do not need a database connection. The weight of a snapshot is an estimate
+ * of its size in bytes.
+ * <p>
+ * An entry is invalidated when the transaction that modified it has completed. A reader that
+ * started before the invalidation may still hold the old state, so a snapshot is cached only
+ * if no entry has been invalidated since the reader asked for its stamp.
+ * <p>
+ * The invalidations are not seen by the other nodes of a cluster, so the snapshots expire
+ * after a configured time. This bounds how long a node can return the old state of an entry
+ * that was modified through another node.
+ */
+public class TodoSnapshotCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TodoSnapshotCache.class);
+
+    public static final String REGION = "todoSnapshots";
+
+    private static final int SNAPSHOT_OVERHEAD = 96;
+    private static final int TYPICAL_SNAPSHOT_WEIGHT = SNAPSHOT_OVERHEAD + 2 * 128;
+
+    private static final Weigher<Long, Snapshot> SNAPSHOT_WEIGHER = new Weigher<Long, Snapshot>() {
+        @Override
+        public int weigh(Long id, Snapshot snapshot) {
+            return SNAPSHOT_OVERHEAD + 2 * (length(snapshot.title) + length(snapshot.description));
+        }
+    };
+
+    private final TinyLfuCache<Long, Snapshot> cache;
+
+    private long invalidations;
+
+    /**
+     * @param maximumWeight             The maximum total size of the cached snapshots in bytes.
+     * @param expireAfterWriteMillis    The time after which a snapshot is read from the database
+     *                                  again. Zero means that the snapshots never expire.
+     */
+    public TodoSnapshotCache(long maximumWeight, long expireAfterWriteMillis) {
+        this.cache = new TinyLfuCache<Long, Snapshot>(maximumWeight,
+                (int) Math.min(Integer.MAX_VALUE, maximumWeight / TYPICAL_SNAPSHOT_WEIGHT),
+                expireAfterWriteMillis,
+                SNAPSHOT_WEIGHER);
+    }
+
+    /**
+     * @param id    The id of the wanted to-do entry.
+     * @return  A new DTO that contains the cached information or <code>null</code> if the
+     *          to-do entry is not cached.
+     */
+    public TodoDTO get(Long id) {
+        Snapshot snapshot = cache.get(id);
+        if (snapshot == null) {
+            return null;
+        }
+        return new TodoDTO(snapshot.id, snapshot.title, snapshot.description, snapshot.version, snapshot.modificationTime);
+    }
+
+    /**
+     * Must be called before the to-do entry is read from the database.
+     * @return  The stamp that is given to {@link #put(long, TodoDTO)}.
+     */
+    public synchronized long stamp() {
+        return invalidations;
+    }
+
+    /**
+     * Caches the information of a to-do entry unless an entry has been invalidated since
+     * the stamp was taken.
+     * @param stamp The stamp that was taken before the to-do entry was read.
+     * @param found The information of the to-do entry.
+     */
+    public synchronized void put(long stamp, TodoDTO found) {
+        if (stamp != invalidations) {
+            LOGGER.debug("Not caching to-do entry: {} because the cache was invalidated while it was read", found.getId());
+            return;
+        }
+        cache.put(found.getId(), new Snapshot(found));
+    }
+
+    /**
+     * Invalidates a to-do entry when the current transaction has completed, or immediately if
+     * there is no transaction. The entry is invalidated also when the transaction is rolled
+     * back, since the entry may have been cached while the transaction was running.
+     * @param id    The id of the invalidated to-do entry.
+     */
+    public void invalidateAfterCompletion(final Long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(id);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                invalidate(id);
+            }
+        });
+    }
+
+    private synchronized void invalidate(Long id) {
+        LOGGER.debug("Invalidating the cached to-do entry: {}", id);
+        invalidations++;
+        cache.invalidate(id);
+    }
+
+    /**
+     * @return  The statistics of the cache. The size and the maximum size are weights.
+     */
+    public CacheStatisticsDTO getStatistics() {
+        return new CacheStatisticsDTO(REGION,
+                cache.weightedSize(),
+                cache.getMaximumWeight(),
+                cache.hitCount(),
+                cache.missCount(),
+                cache.evictionCount());
+    }
+
+    public void clearStatistics() {
+        cache.resetStatistics();
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static final class Snapshot {
+
+        private final Long id;
+        private final String title;
+        private final String description;
+        private final Long version;
+        private final DateTime modificationTime;
+
+        private Snapshot(TodoDTO dto) {
+            this.id = dto.getId();
+            this.title = dto.getTitle();
+            this.description = dto.getDescription();
+            this.version = dto.getVersion();
+            this.modificationTime = dto.getModificationTime();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+CREATE TABLE todos (
+    id BIGINT NOT NULL,
+    creation_time TIMESTAMP NOT NULL,
+    description VARCHAR(500),
+    modification_time TIMESTAMP NOT NULL,
+    title VARCHAR(100) NOT NULL,
+    version BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- The keyset paging queries scan the primary key index, so they need no index of their own.
+
+-- Delta synchronization scans the entries modified after a watermark.
+CREATE INDEX todos_modification_time_idx ON todos (modification_time);
+
+-- Title lookups and title prefix searches (title LIKE 'prefix%').
+CREATE INDEX todos_title_idx ON todos (title);
@@ -0,0 +1,10 @@
+CREATE TABLE todo_tombstones (
+    id BIGINT NOT NULL,
+    deletion_time TIMESTAMP NOT NULL,
+    version BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- Delta synchronization scans the entries deleted after a watermark, and expired
+-- tombstones are deleted by deletion time.
+CREATE INDEX todo_tombstones_deletion_time_idx ON todo_tombstones (deletion_time);
@@ -0,0 +1,290 @@
+package com.springmvcut.common.batch;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class GroupCommitQueueTest {
+
+    private ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void submit_ConcurrentItems_ShouldWriteThemInSharedBatches() throws Exception {
+        final RecordingQueue queue = new RecordingQueue(1000, 50, 20);
+        queue.start();
+
+        List<Future<String>> results = new ArrayList<Future<String>>();
+        for (int index = 0; index < 200; index++) {
+            final int item = index;
+            results.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return queue.submit(item);
+                }
+            }));
+        }
+
+        for (int index = 0; index < results.size(); index++) {
+            assertThat(results.get(index).get(5, TimeUnit.SECONDS), is("written " + index));
+        }
+        queue.stop();
+
+        assertThat(queue.getItemCount(), is(200L));
+        assertThat(queue.getBatchCount(), lessThan(200L));
+        for (List<Integer> batch: queue.batches) {
+            assertThat(batch.size() <= 50, is(true));
+        }
+    }
+
+    @Test
+    public void submit_SingleItem_ShouldBeWrittenAfterMaxDelay() {
+        RecordingQueue queue = new RecordingQueue(10, 50, 0);
+        queue.start();
+
+        assertThat(queue.submit(1), is("written 1"));
+        assertThat(queue.getBatchCount(), is(1L));
+    }
+
+    @Test
+    public void submit_BatchFails_ShouldWriteItemsOneAtATime() throws Exception {
+        final RecordingQueue queue = new RecordingQueue(10, 10, 50);
+        queue.failingItem = 2;
+        queue.start();
+
+        List<Future<String>> results = new ArrayList<Future<String>>();
+        for (int index = 1; index <= 3; index++) {
+            final int item = index;
+            results.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return queue.submit(item);
+                }
+            }));
+        }
+
+        assertThat(results.get(0).get(5, TimeUnit.SECONDS), is("written 1"));
+        assertThat(results.get(2).get(5, TimeUnit.SECONDS), is("written 3"));
+        try {
+            results.get(1).get(5, TimeUnit.SECONDS);
+            fail("The failing item must fail its caller");
+        }
+        catch (ExecutionException ex) {
+            assertThat(ex.getCause() instanceof IllegalStateException, is(true));
+        }
+    }
+
+    @Test
+    public void submit_QueueFull_ShouldRejectItem() throws Exception {
+        final RecordingQueue queue = new RecordingQueue(1, 1, 0);
+        queue.blockWrites = new CountDownLatch(1);
+        queue.writing = new CountDownLatch(1);
+        queue.start();
+
+        for (int index = 0; index < 2; index++) {
+            final int item = index;
+            executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return queue.submit(item);
+                }
+            });
+        }
+        queue.writing.await(5, TimeUnit.SECONDS);
+        while (queue.getQueueSize() == 0) {
+            Thread.sleep(1);
+        }
+
+        try {
+            queue.submit(3);
+            fail("A full queue must reject items");
+        }
+        catch (RejectedExecutionException ex) {
+            assertThat(queue.getRejectedCount(), is(1L));
+        }
+        finally {
+            queue.blockWrites.countDown();
+            queue.stop();
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void submit_QueueStopped_ShouldRejectItem() throws Exception {
+        RecordingQueue queue = new RecordingQueue(10, 10, 0);
+        queue.start();
+        queue.stop();
+
+        queue.submit(1);
+    }
+
+    @Test
+    public void submitWithListener_ManyItems_ShouldWriteThemInBatchesWithoutWaitingThreads() throws Exception {
+        RecordingQueue queue = new RecordingQueue(1000, 100, 50);
+        queue.blockWrites = new CountDownLatch(1);
+        queue.writing = new CountDownLatch(1);
+        queue.start();
+        RecordingListener listener = new RecordingListener(201);
+
+        queue.submit(0, listener);
+        queue.writing.await(5, TimeUnit.SECONDS);
+        for (int item = 1; item <= 200; item++) {
+            queue.submit(item, listener);
+        }
+        queue.blockWrites.countDown();
+
+        assertThat(listener.done.await(5, TimeUnit.SECONDS), is(true));
+        queue.stop();
+        assertThat(listener.written.size(), is(201));
+        assertThat(queue.batches.size(), is(3));
+        assertThat(queue.batches.get(1).size(), is(100));
+    }
+
+    @Test
+    public void cancel_ItemNotTaken_ShouldNotWriteItem() throws Exception {
+        RecordingQueue queue = new RecordingQueue(10, 1, 0);
+        queue.blockWrites = new CountDownLatch(1);
+        queue.writing = new CountDownLatch(1);
+        queue.start();
+        RecordingListener listener = new RecordingListener(1);
+
+        PendingWrite writing = queue.submit(1, listener);
+        queue.writing.await(5, TimeUnit.SECONDS);
+        PendingWrite queued = queue.submit(2, new RecordingListener(1));
+
+        assertThat(writing.cancel(), is(false));
+        assertThat(queued.cancel(), is(true));
+        queue.blockWrites.countDown();
+        queue.stop();
+
+        assertThat(listener.written, is(Arrays.asList("written 1")));
+        assertThat(queue.getItemCount(), is(1L));
+        assertThat(queue.getCancelledCount(), is(1L));
+    }
+
+    @Test
+    public void submit_WriterDies_ShouldRejectQueuedAndLaterItems() throws Exception {
+        final RecordingQueue queue = new RecordingQueue(10, 1, 0);
+        queue.errorItem = 1;
+        queue.start();
+
+        try {
+            queue.submit(1);
+            fail("The item of a dead writer must be rejected");
+        }
+        catch (RejectedExecutionException ex) {
+            try {
+                queue.submit(2);
+                fail("A queue without a writer must reject items");
+            }
+            catch (RejectedExecutionException expected) {
+                assertThat(queue.getRejectedCount(), is(1L));
+            }
+        }
+    }
+
+    @Test
+    public void submit_ItemNotWrittenInTime_ShouldRejectItem() throws Exception {
+        RecordingQueue queue = new RecordingQueue(10, 1, 0, 50);
+        queue.blockWrites = new CountDownLatch(1);
+        queue.start();
+
+        try {
+            queue.submit(1);
+            fail("An item that is not written in time must be rejected");
+        }
+        catch (RejectedExecutionException ex) {
+            assertThat(queue.getBatchCount(), is(1L));
+        }
+        finally {
+            queue.blockWrites.countDown();
+            queue.stop();
+        }
+    }
+
+    private static class RecordingListener implements WriteListener<String> {
+
+        private final List<String> written = Collections.synchronizedList(new ArrayList<String>());
+        private final CountDownLatch done;
+
+        RecordingListener(int count) {
+            done = new CountDownLatch(count);
+        }
+
+        @Override
+        public void onWritten(String result) {
+            written.add(result);
+            done.countDown();
+        }
+
+        @Override
+        public void onFailed(RuntimeException failure) {
+            done.countDown();
+        }
+    }
+
+    private static class RecordingQueue extends GroupCommitQueue<Integer, String> {
+
+        private final List<List<Integer>> batches = new ArrayList<List<Integer>>();
+        private volatile Integer failingItem;
+        private volatile Integer errorItem;
+        private volatile CountDownLatch blockWrites;
+        private volatile CountDownLatch writing;
+
+        RecordingQueue(int queueCapacity, int maxBatchSize, long maxDelayMillis) {
+            this(queueCapacity, maxBatchSize, maxDelayMillis, 5000);
+        }
+
+        RecordingQueue(int queueCapacity, int maxBatchSize, long maxDelayMillis, long awaitTimeoutMillis) {
+            super(queueCapacity, maxBatchSize, maxDelayMillis, 10, awaitTimeoutMillis);
+        }
+
+        @Override
+        protected List<String> write(List<Integer> batch) {
+            if (writing != null) {
+                writing.countDown();
+            }
+            if (blockWrites != null) {
+                try {
+                    blockWrites.await();
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (errorItem != null && batch.contains(errorItem)) {
+                throw new AssertionError("The writer dies writing item: " + errorItem);
+            }
+            if (failingItem != null && batch.contains(failingItem)) {
+                throw new IllegalStateException("Cannot write item: " + failingItem);
+            }
+
+            batches.add(new ArrayList<Integer>(batch));
+            List<String> results = new ArrayList<String>(batch.size());
+            for (Integer item: batch) {
+                results.add("written " + item);
+            }
+            return results;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.springmvcut.common.cache;
+
+import static junit.framework.Assert.assertNull;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TinyLfuCacheTest {
+
+    private static final long MAXIMUM_WEIGHT = 100;
+    private static final int HOT_KEYS = 10;
+
+    private static final Weigher<Integer, String> UNIT_WEIGHER = new Weigher<Integer, String>() {
+        @Override
+        public int weigh(Integer key, String value) {
+            return 1;
+        }
+    };
+
+    private TinyLfuCache<Integer, String> cache;
+
+    @Before
+    public void setUp() {
+        cache = new TinyLfuCache<Integer, String>(MAXIMUM_WEIGHT, (int) MAXIMUM_WEIGHT, UNIT_WEIGHER);
+    }
+
+    @Test
+    public void get_KeyCached_ShouldReturnValueAndRecordHit() {
+        cache.put(1, "one");
+
+        assertThat(cache.get(1), is("one"));
+        assertThat(cache.hitCount(), is(1L));
+        assertThat(cache.missCount(), is(0L));
+    }
+
+    @Test
+    public void get_KeyNotCached_ShouldReturnNullAndRecordMiss() {
+        assertNull(cache.get(1));
+        assertThat(cache.hitCount(), is(0L));
+        assertThat(cache.missCount(), is(1L));
+    }
+
+    @Test
+    public void get_EntryExpired_ShouldReturnNullAndRemoveEntry() throws InterruptedException {
+        cache = new TinyLfuCache<Integer, String>(MAXIMUM_WEIGHT, (int) MAXIMUM_WEIGHT, 1, UNIT_WEIGHER);
+        cache.put(1, "one");
+        Thread.sleep(10);
+
+        assertNull(cache.get(1));
+        assertThat(cache.missCount(), is(1L));
+        assertThat(cache.size(), is(0L));
+    }
+
+    @Test
+    public void get_EntryNotExpired_ShouldReturnLatestValue() throws InterruptedException {
+        cache = new TinyLfuCache<Integer, String>(MAXIMUM_WEIGHT, (int) MAXIMUM_WEIGHT, 60000, UNIT_WEIGHER);
+        cache.put(1, "one");
+        cache.put(1, "uno");
+
+        assertThat(cache.get(1), is("uno"));
+        assertThat(cache.hitCount(), is(1L));
+    }
+
+    @Test
+    public void invalidate_KeyCached_ShouldRemoveKey() {
+        cache.put(1, "one");
+
+        cache.invalidate(1);
+
+        assertNull(cache.get(1));
+        assertThat(cache.weightedSize(), is(0L));
+    }
+
+    @Test
+    public void put_MaximumWeightExceeded_ShouldEvictEntries() {
+        for (int key = 0; key < 10 * MAXIMUM_WEIGHT; key++) {
+            cache.put(key, "value");
+        }
+
+        assertThat(cache.weightedSize(), lessThanOrEqualTo(MAXIMUM_WEIGHT));
+        assertThat(cache.size(), lessThanOrEqualTo(MAXIMUM_WEIGHT));
+        assertThat(cache.evictionCount(), is(10 * MAXIMUM_WEIGHT - cache.size()));
+    }
+
+    @Test
+    public void put_ScanOfKeysReadOnce_ShouldKeepFrequentlyReadKeys() {
+        for (int round = 0; round < 5; round++) {
+            for (int key = 0; key < HOT_KEYS; key++) {
+                if (cache.get(key) == null) {
+                    cache.put(key, "hot");
+                }
+            }
+        }
+
+        for (int key = 1000; key < 1000 + 10 * MAXIMUM_WEIGHT; key++) {
+            cache.put(key, "cold");
+        }
+
+        for (int key = 0; key < HOT_KEYS; key++) {
+            assertThat(cache.get(key), is("hot"));
+        }
+    }
+}
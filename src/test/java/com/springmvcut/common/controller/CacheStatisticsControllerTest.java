@@ -0,0 +1,82 @@
+package com.springmvcut.common.controller;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.springmvcut.dto.CacheStatisticsDTO;
+import com.springmvcut.service.CacheStatisticsService;
+import com.springmvcut.util.TestUtil;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:testContext.xml", "file:src/main/webapp/WEB-INF/spring/appServlet/servlet-context.xml","file:src/main/webapp/WEB-INF/spring/root-context.xml"})
+@WebAppConfiguration
+public class CacheStatisticsControllerTest {
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CacheStatisticsService cacheStatisticsServiceMock;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Before
+    public void setUp() {
+        Mockito.reset(cacheStatisticsServiceMock);
+
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    @Test
+    public void findAll_ShouldReturnStatisticsOfCacheRegions() throws Exception {
+        CacheStatisticsDTO todos = new CacheStatisticsDTO("com.springmvcut.model.Todo", 10L, 100L, 3L, 1L, 2L);
+
+        when(cacheStatisticsServiceMock.findAll()).thenReturn(Arrays.asList(todos));
+
+        mockMvc.perform(get("/api/cache/statistics"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].region", is("com.springmvcut.model.Todo")))
+                .andExpect(jsonPath("$[0].size", is(10)))
+                .andExpect(jsonPath("$[0].maxSize", is(100)))
+                .andExpect(jsonPath("$[0].hits", is(3)))
+                .andExpect(jsonPath("$[0].misses", is(1)))
+                .andExpect(jsonPath("$[0].evictions", is(2)))
+                .andExpect(jsonPath("$[0].hitRatio", is(0.75)));
+
+        verify(cacheStatisticsServiceMock, times(1)).findAll();
+        verifyNoMoreInteractions(cacheStatisticsServiceMock);
+    }
+
+    @Test
+    public void clear_ShouldClearStatisticsOfCacheRegions() throws Exception {
+        mockMvc.perform(delete("/api/cache/statistics"))
+                .andExpect(status().isNoContent());
+
+        verify(cacheStatisticsServiceMock, times(1)).clear();
+        verifyNoMoreInteractions(cacheStatisticsServiceMock);
+    }
+}
@@ -0,0 +1,90 @@
+package com.springmvcut.common.controller;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.springmvcut.dto.HibernateStatisticsDTO;
+import com.springmvcut.dto.QueryStatisticsDTO;
+import com.springmvcut.service.HibernateStatisticsService;
+import com.springmvcut.util.TestUtil;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:testContext.xml", "file:src/main/webapp/WEB-INF/spring/appServlet/servlet-context.xml","file:src/main/webapp/WEB-INF/spring/root-context.xml"})
+@WebAppConfiguration
+public class HibernateStatisticsControllerTest {
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HibernateStatisticsService hibernateStatisticsServiceMock;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Before
+    public void setUp() {
+        Mockito.reset(hibernateStatisticsServiceMock);
+
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    @Test
+    public void find_ShouldReturnStatisticsOfSessionFactory() throws Exception {
+        HibernateStatisticsDTO statistics = new HibernateStatisticsDTO();
+        statistics.setConnectCount(5L);
+        statistics.setFlushCount(4L);
+        statistics.setEntityLoadCount(3L);
+        statistics.setQueryExecutionCount(10L);
+        statistics.setQueries(Arrays.asList(new QueryStatisticsDTO("SELECT t FROM Todo t", 10L, 20L, 3L, 1L, 7L)));
+
+        when(hibernateStatisticsServiceMock.find()).thenReturn(statistics);
+
+        mockMvc.perform(get("/api/hibernate/statistics"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(jsonPath("$.connectCount", is(5)))
+                .andExpect(jsonPath("$.flushCount", is(4)))
+                .andExpect(jsonPath("$.entityLoadCount", is(3)))
+                .andExpect(jsonPath("$.queryExecutionCount", is(10)))
+                .andExpect(jsonPath("$.queries", hasSize(1)))
+                .andExpect(jsonPath("$.queries[0].query", is("SELECT t FROM Todo t")))
+                .andExpect(jsonPath("$.queries[0].executionCount", is(10)))
+                .andExpect(jsonPath("$.queries[0].executionAvgTime", is(3)))
+                .andExpect(jsonPath("$.queries[0].executionMaxTime", is(7)))
+                .andExpect(jsonPath("$.queries[0].executionTotalTime", is(30)));
+
+        verify(hibernateStatisticsServiceMock, times(1)).find();
+        verifyNoMoreInteractions(hibernateStatisticsServiceMock);
+    }
+
+    @Test
+    public void clear_ShouldClearStatisticsOfSessionFactory() throws Exception {
+        mockMvc.perform(delete("/api/hibernate/statistics"))
+                .andExpect(status().isNoContent());
+
+        verify(hibernateStatisticsServiceMock, times(1)).clear();
+        verifyNoMoreInteractions(hibernateStatisticsServiceMock);
+    }
+}
@@ -0,0 +1,94 @@
+package com.springmvcut.common.controller;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.springmvcut.common.metrics.HandlerLatencyRegistry;
+import com.springmvcut.util.TestUtil;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:testContext.xml", "file:src/main/webapp/WEB-INF/spring/appServlet/servlet-context.xml","file:src/main/webapp/WEB-INF/spring/root-context.xml"})
+@WebAppConfiguration
+public class MetricsControllerTest {
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HandlerLatencyRegistry registry;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Before
+    public void setUp() throws Exception {
+        registry.reset();
+        registry.record(MetricsControllerTest.class.getDeclaredMethod("handler"), 200, 10L);
+        registry.record(MetricsControllerTest.class.getDeclaredMethod("handler"), 200, 12L);
+
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    @Test
+    public void findAll_AcceptJson_ShouldReturnLatenciesOfHandlers() throws Exception {
+        mockMvc.perform(get("/metrics").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].handler", is("MetricsControllerTest.handler")))
+                .andExpect(jsonPath("$[0].statusClass", is("2xx")))
+                .andExpect(jsonPath("$[0].count", is(2)))
+                .andExpect(jsonPath("$[0].mean", is(11.0)))
+                .andExpect(jsonPath("$[0].p50", is(10)))
+                .andExpect(jsonPath("$[0].max", is(12)));
+    }
+
+    @Test
+    public void findAll_AcceptTextPlain_ShouldReturnLatenciesInPrometheusFormat() throws Exception {
+        mockMvc.perform(get("/metrics").accept(MediaType.TEXT_PLAIN))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/plain;version=0.0.4;charset=UTF-8"))
+                .andExpect(content().string(containsString("# TYPE http_server_request_duration_seconds summary\n")))
+                .andExpect(content().string(containsString(
+                        "http_server_request_duration_seconds{handler=\"MetricsControllerTest.handler\",status=\"2xx\",quantile=\"0.5\"} 1.0E-5\n")))
+                .andExpect(content().string(containsString(
+                        "http_server_request_duration_seconds_count{handler=\"MetricsControllerTest.handler\",status=\"2xx\"} 2\n")))
+                .andExpect(content().string(containsString(
+                        "http_server_request_duration_seconds_max{handler=\"MetricsControllerTest.handler\",status=\"2xx\"} 1.2E-5\n")));
+    }
+
+    @Test
+    public void findAll_AcceptAnything_ShouldReturnLatenciesAsJson() throws Exception {
+        mockMvc.perform(get("/metrics").accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(TestUtil.APPLICATION_JSON_UTF8));
+    }
+
+    @Test
+    public void reset_ShouldForgetLatencies() throws Exception {
+        mockMvc.perform(delete("/metrics"))
+                .andExpect(status().isNoContent());
+
+        assertThat(registry.getEntries().size(), is(0));
+    }
+
+    void handler() {
+    }
+}
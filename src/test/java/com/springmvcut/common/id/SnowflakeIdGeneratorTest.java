@@ -0,0 +1,144 @@
+package com.springmvcut.common.id;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class SnowflakeIdGeneratorTest {
+
+    private static final long NOW = 1400000000000L;
+    private static final int NODE_ID = 513;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_NodeIdTooLarge_ShouldThrowException() {
+        new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_NegativeNodeId_ShouldThrowException() {
+        new SnowflakeIdGenerator(-1);
+    }
+
+    @Test
+    public void nextId_ShouldEncodeTimeNodeIdAndSequence() {
+        ManualClockGenerator generator = new ManualClockGenerator(NODE_ID, NOW);
+
+        long first = generator.nextId();
+        long second = generator.nextId();
+
+        assertThat(SnowflakeIdGenerator.timeMillisOf(first), is(NOW));
+        assertThat(SnowflakeIdGenerator.nodeIdOf(first), is(NODE_ID));
+        assertThat(SnowflakeIdGenerator.sequenceOf(first), is(0));
+        assertThat(SnowflakeIdGenerator.sequenceOf(second), is(1));
+        assertThat(first, greaterThan(0L));
+    }
+
+    @Test
+    public void nextId_NextMillisecond_ShouldRestartSequence() {
+        ManualClockGenerator generator = new ManualClockGenerator(NODE_ID, NOW);
+        long first = generator.nextId();
+        generator.nextId();
+
+        generator.time = NOW + 1;
+        long next = generator.nextId();
+
+        assertThat(next, greaterThan(first));
+        assertThat(SnowflakeIdGenerator.timeMillisOf(next), is(NOW + 1));
+        assertThat(SnowflakeIdGenerator.sequenceOf(next), is(0));
+    }
+
+    @Test
+    public void nextId_ClockMovesBackwards_ShouldKeepIncreasing() {
+        ManualClockGenerator generator = new ManualClockGenerator(NODE_ID, NOW);
+        long first = generator.nextId();
+
+        generator.time = NOW - 1000;
+        long next = generator.nextId();
+
+        assertThat(next, greaterThan(first));
+        assertThat(SnowflakeIdGenerator.timeMillisOf(next), is(NOW));
+    }
+
+    @Test
+    public void nextId_SequenceExhausted_ShouldWaitForNextMillisecond() {
+        ManualClockGenerator generator = new ManualClockGenerator(NODE_ID, NOW);
+        for (int index = 0; index < 4096; index++) {
+            generator.nextId();
+        }
+
+        generator.advanceAfterReads = 10;
+        long next = generator.nextId();
+
+        assertThat(SnowflakeIdGenerator.timeMillisOf(next), is(NOW + 1));
+        assertThat(SnowflakeIdGenerator.sequenceOf(next), is(0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void nextId_ClockBeforeEpoch_ShouldThrowException() {
+        new ManualClockGenerator(NODE_ID, SnowflakeIdGenerator.EPOCH_MILLIS - 1).nextId();
+    }
+
+    @Test
+    public void nextId_ConcurrentThreads_ShouldReturnUniqueIncreasingIds() throws Exception {
+        final SnowflakeIdGenerator generator = new SnowflakeIdGenerator(NODE_ID);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<long[]>> results = new ArrayList<Future<long[]>>();
+            for (int thread = 0; thread < 4; thread++) {
+                results.add(executor.submit(new Callable<long[]>() {
+                    @Override
+                    public long[] call() {
+                        long[] ids = new long[50000];
+                        for (int index = 0; index < ids.length; index++) {
+                            ids[index] = generator.nextId();
+                        }
+                        return ids;
+                    }
+                }));
+            }
+
+            Set<Long> unique = new HashSet<Long>();
+            for (Future<long[]> result: results) {
+                long previous = Long.MIN_VALUE;
+                for (long id: result.get()) {
+                    assertThat(id, greaterThan(previous));
+                    assertThat(unique.add(id), is(true));
+                    previous = id;
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static class ManualClockGenerator extends SnowflakeIdGenerator {
+
+        private long time;
+        private int advanceAfterReads = -1;
+
+        ManualClockGenerator(int nodeId, long time) {
+            super(nodeId);
+            this.time = time;
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            if (advanceAfterReads > 0 && --advanceAfterReads == 0) {
+                time++;
+            }
+            return time;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.springmvcut.common.jdbc;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class InstrumentedDataSourceTest {
+
+    private static final String USERNAME = "sa";
+    private static final String PASSWORD = "secret";
+
+    private DataSource targetMock;
+    private Connection connectionMock;
+    private InstrumentedDataSource dataSource;
+
+    @Before
+    public void setUp() {
+        targetMock = mock(DataSource.class);
+        connectionMock = mock(Connection.class);
+        dataSource = new InstrumentedDataSource(targetMock);
+    }
+
+    @Test
+    public void getConnection_ConnectionAcquired_ShouldReturnConnectionAndRecordAcquire() throws SQLException {
+        when(targetMock.getConnection()).thenReturn(connectionMock);
+
+        Connection actual = dataSource.getConnection();
+
+        assertThat(actual, sameInstance(connectionMock));
+        assertThat(dataSource.getAcquireCount(), is(1L));
+        assertThat(dataSource.getAcquireFailures(), is(0L));
+    }
+
+    @Test
+    public void getConnection_AcquireFails_ShouldThrowExceptionAndRecordFailure() throws SQLException {
+        SQLException failure = new SQLException("Timeout: Pool empty");
+        when(targetMock.getConnection()).thenThrow(failure);
+
+        try {
+            dataSource.getConnection();
+            fail("No exception was thrown");
+        }
+        catch (SQLException ex) {
+            assertThat(ex, sameInstance(failure));
+        }
+
+        assertThat(dataSource.getAcquireCount(), is(0L));
+        assertThat(dataSource.getAcquireFailures(), is(1L));
+    }
+
+    @Test
+    public void getConnectionWithCredentials_ConnectionAcquired_ShouldReturnConnectionAndRecordAcquire() throws SQLException {
+        when(targetMock.getConnection(USERNAME, PASSWORD)).thenReturn(connectionMock);
+
+        Connection actual = dataSource.getConnection(USERNAME, PASSWORD);
+
+        assertThat(actual, sameInstance(connectionMock));
+        assertThat(dataSource.getAcquireCount(), is(1L));
+        assertThat(dataSource.getAcquireFailures(), is(0L));
+    }
+
+    @Test
+    public void getConnectionWithCredentials_AcquireFails_ShouldThrowExceptionAndRecordFailure() throws SQLException {
+        SQLException failure = new SQLException("Timeout: Pool empty");
+        when(targetMock.getConnection(USERNAME, PASSWORD)).thenThrow(failure);
+
+        try {
+            dataSource.getConnection(USERNAME, PASSWORD);
+            fail("No exception was thrown");
+        }
+        catch (SQLException ex) {
+            assertThat(ex, sameInstance(failure));
+        }
+
+        assertThat(dataSource.getAcquireCount(), is(0L));
+        assertThat(dataSource.getAcquireFailures(), is(1L));
+    }
+
+    @Test
+    public void resetStatistics_ShouldClearAcquiresAndFailures() throws SQLException {
+        when(targetMock.getConnection()).thenReturn(connectionMock).thenThrow(new SQLException());
+        dataSource.getConnection();
+        try {
+            dataSource.getConnection();
+        }
+        catch (SQLException ex) {
+            //Recorded as a failure
+        }
+
+        dataSource.resetStatistics();
+
+        assertThat(dataSource.getAcquireCount(), is(0L));
+        assertThat(dataSource.getAcquireFailures(), is(0L));
+    }
+
+    @Test
+    public void getActiveConnections_TargetIsNotPool_ShouldReturnMinusOne() {
+        assertThat(dataSource.getActiveConnections(), is(-1));
+    }
+}
@@ -0,0 +1,166 @@
+package com.springmvcut.common.jdbc;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Uses separate in-memory HSQL databases as the primary and the replicas. Every database
+ * contains its own name, so the queries reveal which database they were routed to.
+ */
+public class ReadWriteRoutingDataSourceTest {
+
+    private List<EmbeddedDatabase> databases = new ArrayList<EmbeddedDatabase>();
+
+    @After
+    public void tearDown() {
+        RoutingContextHolder.reset();
+        for (EmbeddedDatabase database: databases) {
+            database.shutdown();
+        }
+    }
+
+    @Test
+    public void readOnlyTransaction_ShouldUseReplica() {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(database("primary"), Arrays.asList(database("replica")));
+
+        assertThat(queryNodeName(routing, true), is("replica"));
+        assertThat(routing.getReplicaConnectionCount(), is(1L));
+    }
+
+    @Test
+    public void readWriteTransaction_ShouldUsePrimary() {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(database("primary"), Arrays.asList(database("replica")));
+
+        assertThat(queryNodeName(routing, false), is("primary"));
+    }
+
+    @Test
+    public void noTransaction_ShouldUsePrimary() {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(database("primary"), Arrays.asList(database("replica")));
+
+        assertThat(new JdbcTemplate(routing).queryForObject("SELECT name FROM node", String.class), is("primary"));
+    }
+
+    @Test
+    public void readOnlyTransaction_PrimaryRequired_ShouldUsePrimary() {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(database("primary"), Arrays.asList(database("replica")));
+        RoutingContextHolder.setPrimaryRequired(true);
+
+        assertThat(queryNodeName(routing, true), is("primary"));
+    }
+
+    @Test
+    public void readOnlyTransaction_NoReplicas_ShouldUsePrimary() {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(database("primary"), new ArrayList<DataSource>());
+
+        assertThat(queryNodeName(routing, true), is("primary"));
+    }
+
+    @Test
+    public void readOnlyTransaction_RoundRobin_ShouldUseReplicasInTurn() {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(database("primary"),
+                Arrays.asList(database("first"), database("second")));
+
+        assertThat(queryNodeName(routing, true), is("first"));
+        assertThat(queryNodeName(routing, true), is("second"));
+        assertThat(queryNodeName(routing, true), is("first"));
+    }
+
+    @Test
+    public void getConnection_LeastConnections_ShouldUseReplicaWithFewestOpenConnections() throws SQLException {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(database("primary"),
+                Arrays.asList(database("first"), database("second")));
+        routing.setReplicaSelection(ReadWriteRoutingDataSource.ReplicaSelection.LEAST_CONNECTIONS);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try {
+            Connection first = routing.getConnection();
+            Connection second = routing.getConnection();
+            Connection third = routing.getConnection();
+            assertThat(routing.getOpenConnections(0), is(2));
+            assertThat(routing.getOpenConnections(1), is(1));
+
+            first.close();
+            first.close();
+            third.close();
+            assertThat(nodeName(routing.getConnection()), is("first"));
+            assertThat(routing.getOpenConnections(0), is(0));
+            assertThat(routing.getOpenConnections(1), is(1));
+            second.close();
+        }
+        finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+    }
+
+    @Test
+    public void readOnlyTransaction_ReplicaFails_ShouldUsePrimary() throws SQLException {
+        DataSource failingReplica = mock(DataSource.class);
+        when(failingReplica.getConnection()).thenThrow(new SQLException("Replica is down"));
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(database("primary"), Arrays.asList(failingReplica));
+
+        assertThat(queryNodeName(routing, true), is("primary"));
+        assertThat(routing.getReplicaFailures(), is(1L));
+        assertThat(routing.getOpenConnections(0), is(0));
+    }
+
+    private DataSource database(String name) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.HSQL)
+                .setName(name)
+                .build();
+        databases.add(database);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE node (name VARCHAR(20))");
+        jdbcTemplate.update("INSERT INTO node (name) VALUES (?)", name);
+        return database;
+    }
+
+    private static String queryNodeName(ReadWriteRoutingDataSource routing, boolean readOnly) {
+        final DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setReadOnly(readOnly);
+
+        return transactionTemplate.execute(new TransactionCallback<String>() {
+            @Override
+            public String doInTransaction(TransactionStatus status) {
+                return new JdbcTemplate(dataSource).queryForObject("SELECT name FROM node", String.class);
+            }
+        });
+    }
+
+    private static String nodeName(Connection connection) throws SQLException {
+        try {
+            ResultSet resultSet = connection.createStatement().executeQuery("SELECT name FROM node");
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+        finally {
+            connection.close();
+        }
+    }
+}
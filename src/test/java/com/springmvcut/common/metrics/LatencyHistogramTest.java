@@ -0,0 +1,103 @@
+package com.springmvcut.common.metrics;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void getValueAtPercentile_NoValues_ShouldReturnZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getValueAtPercentile(99.0), is(0L));
+        assertThat(histogram.getMean(), is(0.0));
+    }
+
+    @Test
+    public void bucketOf_ValueAtBucketBounds_ShouldReturnBucketContainingValue() {
+        for (long value = 0; value < 1000000; value++) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertThat(value, lessThanOrEqualTo(LatencyHistogram.upperBoundOf(bucket)));
+            if (bucket > 0) {
+                assertThat(value, greaterThanOrEqualTo(LatencyHistogram.upperBoundOf(bucket - 1) + 1));
+            }
+        }
+        assertThat(LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(Long.MAX_VALUE)), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void getValueAtPercentile_RandomValues_ShouldBeWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(42);
+        long[] values = new long[100000];
+        for (int index = 0; index < values.length; index++) {
+            values[index] = (long) Math.abs(random.nextGaussian() * 10000);
+            histogram.record(values[index]);
+        }
+        Arrays.sort(values);
+
+        for (double percentile: new double[] {50.0, 90.0, 99.0, 99.9, 100.0}) {
+            long expected = values[(int) Math.ceil(values.length * percentile / 100.0) - 1];
+            long actual = histogram.getValueAtPercentile(percentile);
+            assertThat(actual, greaterThanOrEqualTo(expected));
+            assertThat((double) actual, lessThanOrEqualTo(expected * 1.0625 + 1));
+        }
+        assertThat(histogram.getMax(), is(values[values.length - 1]));
+        assertThat(histogram.getCount(), is((long) values.length));
+    }
+
+    @Test
+    public void record_ManyThreads_ShouldMergeCountSumAndMaxOfAllThreads() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[8];
+        for (int index = 0; index < threads.length; index++) {
+            final long value = index + 1;
+            threads[index] = new Thread() {
+                @Override
+                public void run() {
+                    for (int recorded = 0; recorded < 1000; recorded++) {
+                        histogram.record(value);
+                    }
+                }
+            };
+            threads[index].start();
+        }
+        for (Thread thread: threads) {
+            thread.join();
+        }
+
+        assertThat(histogram.getCount(), is(8000L));
+        assertThat(histogram.getSum(), is(36000L));
+        assertThat(histogram.getMax(), is(8L));
+        assertThat(histogram.getValueAtPercentile(100.0), is(8L));
+    }
+
+    @Test
+    public void stripesFor_ShouldReturnPowerOfTwoAtLeastProcessors() {
+        assertThat(LatencyHistogram.stripesFor(1), is(1));
+        assertThat(LatencyHistogram.stripesFor(4), is(4));
+        assertThat(LatencyHistogram.stripesFor(6), is(8));
+        assertThat(LatencyHistogram.stripesFor(1000), is(64));
+    }
+
+    @Test
+    public void reset_ShouldForgetRecordedValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.record(-5);
+
+        histogram.reset();
+
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getMax(), is(0L));
+        assertThat(histogram.getValueAtPercentile(50.0), is(0L));
+    }
+}
@@ -0,0 +1,88 @@
+package com.springmvcut.common.search;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class InvertedIndexTest {
+
+    private static final int WEIGHT_TITLE = 2;
+    private static final int WEIGHT_DESCRIPTION = 1;
+
+    private InvertedIndex index;
+
+    @Before
+    public void setUp() {
+        index = new InvertedIndex(new Tokenizer(), WEIGHT_TITLE, WEIGHT_DESCRIPTION);
+    }
+
+    @Test
+    public void search_EveryWordFound_ShouldReturnDocumentsThatContainEveryWord() {
+        index.index(1L, "Buy milk", "and bread");
+        index.index(2L, "Buy bread", null);
+        index.index(3L, "Buy eggs", "no milk");
+
+        assertArrayEquals(new long[] {1L}, index.search("milk bread", 10));
+    }
+
+    @Test
+    public void search_WordFoundFromTitleAndDescription_ShouldRankTitleMatchFirst() {
+        index.index(1L, "Walk", "dog");
+        index.index(2L, "Dog", "walk");
+
+        assertArrayEquals(new long[] {2L, 1L}, index.search("dog", 10));
+    }
+
+    @Test
+    public void search_DiacriticsAndCaseDiffer_ShouldFindDocument() {
+        index.index(1L, "Caf\u00e9 au lait", null);
+
+        assertArrayEquals(new long[] {1L}, index.search("CAFE", 10));
+    }
+
+    @Test
+    public void search_WordNotFound_ShouldReturnNoDocuments() {
+        index.index(1L, "Buy milk", null);
+
+        assertThat(index.search("milk eggs", 10).length, is(0));
+        assertThat(index.search("", 10).length, is(0));
+    }
+
+    @Test
+    public void search_MoreDocumentsFoundThanLimit_ShouldReturnBestDocuments() {
+        index.index(1L, "Task", "task task task");
+        index.index(2L, "Other", "task");
+        index.index(3L, "Task", "task");
+
+        assertArrayEquals(new long[] {1L, 3L}, index.search("task", 2));
+    }
+
+    @Test
+    public void index_DocumentIndexedAgain_ShouldReplaceDocument() {
+        index.index(1L, "Buy milk", null);
+        index.index(1L, "Buy bread", null);
+
+        assertThat(index.search("milk", 10).length, is(0));
+        assertArrayEquals(new long[] {1L}, index.search("bread", 10));
+        assertThat(index.size(), is(1));
+    }
+
+    @Test
+    public void remove_ManyDocumentsRemoved_ShouldCompactIndexAndKeepLiveDocuments() {
+        int documents = 10000;
+        for (long id = 0; id < documents; id++) {
+            index.index(id, "Task " + id, id % 2 == 0 ? "even" : "odd");
+        }
+        for (long id = 0; id < documents; id += 2) {
+            index.remove(id);
+        }
+
+        assertThat(index.size(), is(documents / 2));
+        assertThat(index.search("even", documents).length, is(0));
+        assertThat(index.search("odd task", documents).length, is(documents / 2));
+        assertArrayEquals(new long[] {4999L}, index.search("4999", 10));
+    }
+}
@@ -0,0 +1,47 @@
+package com.springmvcut.common.search;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LongIntHashMapTest {
+
+    @Test
+    public void get_KeyNotFound_ShouldReturnNoValue() {
+        LongIntHashMap map = new LongIntHashMap(4);
+
+        assertThat(map.get(1L), is(LongIntHashMap.NO_VALUE));
+        assertThat(map.remove(1L), is(LongIntHashMap.NO_VALUE));
+    }
+
+    @Test
+    public void putAndRemove_RandomOperations_ShouldBehaveLikeHashMap() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        Map<Long, Integer> expected = new HashMap<Long, Integer>();
+        Random random = new Random(42);
+
+        for (int operation = 0; operation < 100000; operation++) {
+            long key = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                Integer removed = expected.remove(key);
+                assertThat(map.remove(key), is(removed == null ? LongIntHashMap.NO_VALUE : removed));
+            }
+            else {
+                int value = random.nextInt(Integer.MAX_VALUE);
+                expected.put(key, value);
+                map.put(key, value);
+            }
+        }
+
+        assertThat(map.size(), is(expected.size()));
+        for (long key = -1000; key < 1000; key++) {
+            Integer value = expected.get(key);
+            assertThat(map.get(key), is(value == null ? LongIntHashMap.NO_VALUE : value));
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.springmvcut.common.web;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import com.springmvcut.common.concurrent.VirtualThreads;
+import com.springmvcut.common.jdbc.RoutingContextHolder;
+
+public class AsyncRequestExecutorTest {
+
+    private static final long RESULT_TIMEOUT_MILLIS = 5000;
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private AsyncRequestExecutor executor;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        release.countDown();
+        RoutingContextHolder.reset();
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+
+    @Test
+    public void submit_TaskCompletes_ShouldDispatchItsResult() throws Exception {
+        executor = start(1, 1);
+
+        MockHttpServletRequest request = startAsync(executor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return "foo";
+            }
+        }));
+
+        assertThat(awaitResult(request), is((Object) "foo"));
+    }
+
+    @Test
+    public void submit_TaskFails_ShouldDispatchItsException() throws Exception {
+        executor = start(1, 1);
+
+        MockHttpServletRequest request = startAsync(executor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                throw new IllegalStateException("foo");
+            }
+        }));
+
+        assertThat(awaitResult(request), instanceOf(IllegalStateException.class));
+    }
+
+    @Test
+    public void submit_PrimaryRequired_ShouldRunTaskWithRoutingContextOfRequestThread() throws Exception {
+        executor = start(1, 1);
+        Callable<Boolean> primaryRequired = new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return RoutingContextHolder.isPrimaryRequired();
+            }
+        };
+
+        RoutingContextHolder.setPrimaryRequired(true);
+        MockHttpServletRequest primary = startAsync(executor.submit(primaryRequired));
+        RoutingContextHolder.reset();
+        MockHttpServletRequest replica = startAsync(executor.submit(primaryRequired));
+
+        assertThat(awaitResult(primary), is((Object) true));
+        assertThat(awaitResult(replica), is((Object) false));
+    }
+
+    @Test
+    public void submit_QueueFull_ShouldRejectTask() throws InterruptedException {
+        executor = start(1, 1);
+        executor.submit(blockingTask());
+        started.await(RESULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        executor.submit(blockingTask());
+
+        try {
+            executor.submit(blockingTask());
+            fail("The task was not rejected");
+        }
+        catch (RejectedExecutionException ex) {
+            assertThat(executor.getRejectedCount(), is(1L));
+            assertThat(executor.getQueueSize(), is(1));
+        }
+    }
+
+    @Test
+    public void submit_RequestTimesOut_ShouldDispatchTimeoutExceptionAndRemoveQueuedTask() throws Exception {
+        executor = start(1, 1);
+        executor.submit(blockingTask());
+        started.await(RESULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        MockHttpServletRequest request = startAsync(executor.submit(blockingTask()));
+        fireTimeout(request);
+
+        assertThat(awaitResult(request), instanceOf(TimeoutException.class));
+        assertThat(executor.getTimeoutCount(), is(1L));
+        assertThat(executor.getQueueSize(), is(0));
+    }
+
+    @Test
+    public void defer_RequestTimesOut_ShouldRunTimeoutCallbackAndDispatchTimeoutException() throws Exception {
+        executor = start(1, 1);
+        final CountDownLatch timedOut = new CountDownLatch(1);
+
+        MockHttpServletRequest request = startAsync(executor.defer(new Runnable() {
+            @Override
+            public void run() {
+                timedOut.countDown();
+            }
+        }));
+        fireTimeout(request);
+
+        assertThat(awaitResult(request), instanceOf(TimeoutException.class));
+        assertThat(timedOut.getCount(), is(0L));
+        assertThat(executor.getTimeoutCount(), is(1L));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void submit_ExecutorStopped_ShouldRejectTask() throws InterruptedException {
+        executor = start(1, 1);
+        executor.stop();
+
+        executor.submit(blockingTask());
+    }
+
+    @Test
+    public void submit_VirtualThreads_ShouldRunTaskOnVirtualThread() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+        executor = start(1, 1, true);
+
+        MockHttpServletRequest request = startAsync(executor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return Thread.currentThread().getClass().getName();
+            }
+        }));
+
+        assertThat(awaitResult(request), is((Object) "java.lang.VirtualThread"));
+    }
+
+    @Test
+    public void submit_VirtualThreadsAndTooManyTasksInProgress_ShouldRejectTask() throws InterruptedException {
+        assumeTrue(VirtualThreads.isSupported());
+        executor = start(1, 1, true);
+        executor.submit(blockingTask());
+        executor.submit(blockingTask());
+
+        try {
+            executor.submit(blockingTask());
+            fail("The task was not rejected");
+        }
+        catch (RejectedExecutionException ex) {
+            assertThat(executor.getRejectedCount(), is(1L));
+        }
+    }
+
+    @Test
+    public void submit_VirtualThreadsAndRunningTaskTimesOut_ShouldRejectTaskUntilItFinishes() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+        executor = start(1, 0, true);
+        MockHttpServletRequest request = startAsync(executor.submit(blockingTask()));
+        started.await(RESULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        fireTimeout(request);
+        assertThat(awaitResult(request), instanceOf(TimeoutException.class));
+
+        try {
+            executor.submit(blockingTask());
+            fail("The task was not rejected");
+        }
+        catch (RejectedExecutionException ex) {
+            assertThat(executor.getRejectedCount(), is(1L));
+        }
+
+        release.countDown();
+        awaitCompleted(1);
+        MockHttpServletRequest next = startAsync(executor.submit(blockingTask()));
+        assertThat(awaitResult(next), is((Object) "released"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void start_VirtualThreadsNotSupported_ShouldThrowException() {
+        assumeFalse(VirtualThreads.isSupported());
+
+        start(1, 1, true);
+    }
+
+    private AsyncRequestExecutor start(int threads, int queueCapacity) {
+        return start(threads, queueCapacity, false);
+    }
+
+    private AsyncRequestExecutor start(int threads, int queueCapacity, boolean virtualThreads) {
+        AsyncRequestExecutor started = new AsyncRequestExecutor(threads, queueCapacity, 60000, virtualThreads);
+        started.start();
+        return started;
+    }
+
+    private Callable<String> blockingTask() {
+        return new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                started.countDown();
+                release.await(RESULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                return "released";
+            }
+        };
+    }
+
+    /**
+     * Starts the asynchronous processing of a request like a handler method that returns the result.
+     */
+    private MockHttpServletRequest startAsync(DeferredResult<?> result) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+        asyncManager.setAsyncWebRequest(new StandardServletAsyncWebRequest(request, new MockHttpServletResponse()));
+        asyncManager.startDeferredResultProcessing(result);
+        return request;
+    }
+
+    private void fireTimeout(MockHttpServletRequest request) throws IOException {
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener: asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+    }
+
+    private Object awaitResult(MockHttpServletRequest request) throws InterruptedException {
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+        long deadline = System.currentTimeMillis() + RESULT_TIMEOUT_MILLIS;
+        while (!asyncManager.hasConcurrentResult()) {
+            assertTrue("No asynchronous result", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+        return asyncManager.getConcurrentResult();
+    }
+
+    private void awaitCompleted(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + RESULT_TIMEOUT_MILLIS;
+        while (executor.getCompletedCount() < count) {
+            assertTrue("The task did not complete", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+}
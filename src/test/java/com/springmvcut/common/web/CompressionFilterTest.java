@@ -0,0 +1,254 @@
+package com.springmvcut.common.web;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.FileCopyUtils;
+
+public class CompressionFilterTest {
+
+    private static final int MIN_SIZE = 1024;
+
+    private CompressionFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Before
+    public void setUp() {
+        filter = new CompressionFilter();
+        filter.setMinSize(MIN_SIZE);
+        request = new MockHttpServletRequest("GET", "/api/todo");
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    public void negotiate_ShouldSelectPreferredContentCoding() {
+        assertThat(CompressionFilter.negotiate("gzip, deflate"), is("gzip"));
+        assertThat(CompressionFilter.negotiate("gzip;q=0.5, deflate"), is("deflate"));
+        assertThat(CompressionFilter.negotiate("deflate;q=0.5, *"), is("gzip"));
+        assertThat(CompressionFilter.negotiate("gzip;q=0, deflate;q=0"), nullValue());
+        assertThat(CompressionFilter.negotiate("identity"), nullValue());
+        assertThat(CompressionFilter.negotiate(null), nullValue());
+    }
+
+    @Test
+    public void doFilter_LargeBodyAndGzipAccepted_ShouldCompressWithGzip() throws Exception {
+        request.addHeader(CompressionFilter.HEADER_ACCEPT_ENCODING, "gzip, deflate");
+        byte[] body = json(4 * MIN_SIZE);
+
+        filter.doFilter(request, response, write("application/json", body));
+
+        assertThat(response.getHeader(CompressionFilter.HEADER_CONTENT_ENCODING), is("gzip"));
+        assertThat(response.getHeader("Vary"), is("Accept-Encoding"));
+        assertThat(response.getContentAsByteArray().length, lessThan(body.length));
+        assertThat(decompress(new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))), is(body));
+    }
+
+    @Test
+    public void doFilter_DeflatePreferred_ShouldCompressWithDeflate() throws Exception {
+        request.addHeader(CompressionFilter.HEADER_ACCEPT_ENCODING, "gzip;q=0.5, deflate");
+        byte[] body = json(4 * MIN_SIZE);
+
+        filter.doFilter(request, response, write("application/json", body));
+
+        assertThat(response.getHeader(CompressionFilter.HEADER_CONTENT_ENCODING), is("deflate"));
+        assertThat(decompress(new InflaterInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))), is(body));
+    }
+
+    @Test
+    public void doFilter_WriterAndContentLength_ShouldCompressWithoutContentLength() throws Exception {
+        request.addHeader(CompressionFilter.HEADER_ACCEPT_ENCODING, "gzip");
+        final String body = new String(json(4 * MIN_SIZE), "UTF-8");
+
+        filter.doFilter(request, response, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) throws IOException {
+                response.setContentType("text/html;charset=UTF-8");
+                response.setContentLength(body.length());
+                response.getWriter().write(body);
+            }
+        });
+
+        assertThat(response.getHeader(CompressionFilter.HEADER_CONTENT_ENCODING), is("gzip"));
+        assertThat(response.getHeader(CompressionFilter.HEADER_CONTENT_LENGTH), nullValue());
+        assertThat(new String(decompress(new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))), "UTF-8"), is(body));
+    }
+
+    @Test
+    public void doFilter_StrongEntityTag_ShouldSendWeakEntityTag() throws Exception {
+        request.addHeader(CompressionFilter.HEADER_ACCEPT_ENCODING, "gzip");
+        response.setHeader("ETag", "\"1-2\"");
+
+        filter.doFilter(request, response, write("application/json", json(4 * MIN_SIZE)));
+
+        assertThat(response.getHeader("ETag"), is("W/\"1-2\""));
+    }
+
+    @Test
+    public void doFilter_SmallBody_ShouldNotCompress() throws Exception {
+        request.addHeader(CompressionFilter.HEADER_ACCEPT_ENCODING, "gzip");
+        byte[] body = json(MIN_SIZE - 1);
+
+        filter.doFilter(request, response, write("application/json", body));
+
+        assertThat(response.getHeader(CompressionFilter.HEADER_CONTENT_ENCODING), nullValue());
+        assertThat(response.getHeader("Vary"), is("Accept-Encoding"));
+        assertThat(response.getContentAsByteArray(), is(body));
+    }
+
+    @Test
+    public void doFilter_NoContentCodingAccepted_ShouldNotCompress() throws Exception {
+        byte[] body = json(4 * MIN_SIZE);
+
+        filter.doFilter(request, response, write("application/json", body));
+
+        assertThat(response.getHeader(CompressionFilter.HEADER_CONTENT_ENCODING), nullValue());
+        assertThat(response.getHeader("Vary"), is("Accept-Encoding"));
+        assertThat(response.getContentAsByteArray(), is(body));
+    }
+
+    @Test
+    public void doFilter_ExcludedContentType_ShouldNotCompress() throws Exception {
+        request.addHeader(CompressionFilter.HEADER_ACCEPT_ENCODING, "gzip");
+        byte[] body = json(4 * MIN_SIZE);
+
+        filter.doFilter(request, response, write("image/png", body));
+
+        assertThat(response.getHeader(CompressionFilter.HEADER_CONTENT_ENCODING), nullValue());
+        assertThat(response.getHeader("Vary"), nullValue());
+        assertThat(response.getContentAsByteArray(), is(body));
+    }
+
+    @Test
+    public void doFilter_ExcludedContentTypesInitParameter_ShouldNotCompressExcludedContentTypes() throws Exception {
+        MockFilterConfig filterConfig = new MockFilterConfig("compression");
+        filterConfig.addInitParameter("minSize", "512");
+        filterConfig.addInitParameter("excludedContentTypes", "image/, Application/PDF");
+        filter.init(filterConfig);
+        request.addHeader(CompressionFilter.HEADER_ACCEPT_ENCODING, "gzip");
+        byte[] body = json(MIN_SIZE);
+
+        filter.doFilter(request, response, write("application/pdf", body));
+
+        assertThat(response.getHeader(CompressionFilter.HEADER_CONTENT_ENCODING), nullValue());
+        assertThat(response.getContentAsByteArray(), is(body));
+
+        response = new MockHttpServletResponse();
+        filter.doFilter(request, response, write("application/json", body));
+
+        assertThat(response.getHeader(CompressionFilter.HEADER_CONTENT_ENCODING), is("gzip"));
+    }
+
+    @Test
+    public void doFilter_ContentEncodingSet_ShouldWriteBodyAsIs() throws Exception {
+        request.addHeader(CompressionFilter.HEADER_ACCEPT_ENCODING, "gzip");
+        response.setHeader(CompressionFilter.HEADER_CONTENT_ENCODING, "gzip");
+        byte[] body = json(4 * MIN_SIZE);
+
+        filter.doFilter(request, response, write("text/css", body));
+
+        assertThat(response.getContentAsByteArray(), is(body));
+    }
+
+    @Test
+    public void doFilter_LargeBody_ShouldStreamCompressedBody() throws Exception {
+        request.addHeader(CompressionFilter.HEADER_ACCEPT_ENCODING, "gzip");
+        final byte[] body = new byte[64 * MIN_SIZE];
+        new Random(25).nextBytes(body);
+        final MockHttpServletResponse written = response;
+
+        filter.doFilter(request, response, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) throws IOException {
+                response.setContentType("application/octet-stream");
+                response.getOutputStream().write(body);
+                assertThat(written.getContentAsByteArray().length, greaterThan(MIN_SIZE));
+            }
+        });
+
+        assertThat(decompress(new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))), is(body));
+    }
+
+    @Test
+    public void doFilter_AsyncDispatch_ShouldFinishResponseAfterAsyncDispatch() throws Exception {
+        request.addHeader(CompressionFilter.HEADER_ACCEPT_ENCODING, "gzip");
+        request.setAsyncSupported(true);
+        final byte[] body = json(4 * MIN_SIZE);
+
+        filter.doFilter(request, response, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                request.startAsync(request, response);
+            }
+        });
+        assertThat(response.getContentAsByteArray().length, is(0));
+
+        request.setAsyncStarted(false);
+        filter.doFilter(request, response, write("application/json", body));
+
+        assertThat(response.getHeader(CompressionFilter.HEADER_CONTENT_ENCODING), is("gzip"));
+        assertThat(decompress(new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))), is(body));
+    }
+
+    @Test
+    public void doFilter_SendError_ShouldDiscardBufferedBody() throws Exception {
+        request.addHeader(CompressionFilter.HEADER_ACCEPT_ENCODING, "gzip");
+
+        filter.doFilter(request, response, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) throws IOException {
+                response.getOutputStream().write(json(MIN_SIZE / 2));
+                ((HttpServletResponse) response).sendError(HttpServletResponse.SC_NOT_FOUND);
+            }
+        });
+
+        assertThat(response.getStatus(), is(HttpServletResponse.SC_NOT_FOUND));
+        assertThat(response.getContentAsByteArray().length, is(0));
+    }
+
+    private static FilterChain write(final String contentType, final byte[] body) {
+        return new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) throws IOException, ServletException {
+                response.setContentType(contentType);
+                response.getOutputStream().write(body, 0, body.length / 2);
+                response.getOutputStream().write(body, body.length / 2, body.length - body.length / 2);
+                response.flushBuffer();
+            }
+        };
+    }
+
+    private static byte[] json(int length) {
+        StringBuilder json = new StringBuilder(length);
+        for (int id = 1; json.length() < length; id++) {
+            json.append("{\"id\":").append(id).append(",\"title\":\"Foo\",\"description\":\"Bar\"},");
+        }
+        json.setLength(length);
+        return json.toString().getBytes();
+    }
+
+    private static byte[] decompress(InputStream in) throws IOException {
+        return FileCopyUtils.copyToByteArray(in);
+    }
+}
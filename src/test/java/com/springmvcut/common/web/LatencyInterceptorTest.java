@@ -0,0 +1,111 @@
+package com.springmvcut.common.web;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import com.springmvcut.common.metrics.HandlerLatencyRegistry;
+
+public class LatencyInterceptorTest {
+
+    private HandlerLatencyRegistry registry = new HandlerLatencyRegistry();
+
+    private LatencyInterceptor interceptor = new LatencyInterceptor(registry);
+
+    @Test
+    public void afterCompletion_HandlerMethod_ShouldRecordLatencyByStatusClass() throws Exception {
+        handle(200, null);
+        handle(201, null);
+        handle(404, null);
+
+        List<HandlerLatencyRegistry.Entry> entries = registry.getEntries();
+        assertThat(entries, hasSize(2));
+        assertThat(entries.get(0).getHandler(), is("LatencyInterceptorTest.handler"));
+        assertThat(entries.get(0).getStatusClass(), is("2xx"));
+        assertThat(entries.get(0).getHistogram().getCount(), is(2L));
+        assertThat(entries.get(1).getStatusClass(), is("4xx"));
+        assertThat(entries.get(1).getHistogram().getCount(), is(1L));
+    }
+
+    @Test
+    public void afterCompletion_UnresolvedException_ShouldRecordServerError() throws Exception {
+        handle(200, new IllegalStateException());
+
+        List<HandlerLatencyRegistry.Entry> entries = registry.getEntries();
+        assertThat(entries, hasSize(1));
+        assertThat(entries.get(0).getStatusClass(), is("5xx"));
+    }
+
+    @Test
+    public void preHandle_HandlerMethod_ShouldNotSetRequestAttribute() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/todo");
+
+        interceptor.preHandle(request, new MockHttpServletResponse(), handlerMethod());
+
+        assertNull(request.getAttribute(LatencyInterceptor.ATTRIBUTE_START_NANOS));
+    }
+
+    @Test
+    public void afterCompletion_AsyncDispatchOnAnotherThread_ShouldRecordLatencyFromFirstDispatch() throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/todo");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        final HandlerMethod handler = handlerMethod();
+
+        interceptor.preHandle(request, response, handler);
+        interceptor.afterConcurrentHandlingStarted(request, response, handler);
+        final Object startNanos = request.getAttribute(LatencyInterceptor.ATTRIBUTE_START_NANOS);
+        Thread.sleep(5);
+
+        Thread dispatch = new Thread() {
+            @Override
+            public void run() {
+                interceptor.preHandle(request, response, handler);
+                interceptor.afterCompletion(request, response, handler, null);
+            }
+        };
+        dispatch.start();
+        dispatch.join();
+
+        assertThat(request.getAttribute(LatencyInterceptor.ATTRIBUTE_START_NANOS), is(startNanos));
+        List<HandlerLatencyRegistry.Entry> entries = registry.getEntries();
+        assertThat(entries, hasSize(1));
+        assertThat(entries.get(0).getHistogram().getMax(), greaterThanOrEqualTo(5000L));
+    }
+
+    @Test
+    public void afterCompletion_NotHandlerMethod_ShouldNotRecordLatency() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/static/app.js");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, new Object());
+        interceptor.afterCompletion(request, response, new Object(), null);
+
+        assertThat(registry.getEntries(), hasSize(0));
+    }
+
+    private void handle(int status, Exception ex) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/todo");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        HandlerMethod handler = handlerMethod();
+
+        interceptor.preHandle(request, response, handler);
+        response.setStatus(status);
+        interceptor.afterCompletion(request, response, handler, ex);
+    }
+
+    private HandlerMethod handlerMethod() throws NoSuchMethodException {
+        return new HandlerMethod(this, getClass().getDeclaredMethod("handler"));
+    }
+
+    void handler() {
+    }
+}
@@ -0,0 +1,81 @@
+package com.springmvcut.common.web;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.web.servlet.HandlerMapping;
+
+public class PrecompressedResourceHttpRequestHandlerTest {
+
+    private static final byte[] CSS = "body { padding-top: 60px; }".getBytes();
+    private static final byte[] GZIPPED_CSS = {31, -117, 8, 0, 0, 0, 0, 0};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PrecompressedResourceHttpRequestHandler handler;
+
+    @Before
+    public void setUp() throws Exception {
+        File css = folder.newFolder("css");
+        FileCopyUtils.copy(CSS, new File(css, "example.css"));
+        FileCopyUtils.copy(GZIPPED_CSS, new File(css, "example.css.gz"));
+        FileCopyUtils.copy(CSS, new File(css, "bootstrap.css"));
+
+        handler = new PrecompressedResourceHttpRequestHandler();
+        handler.setServletContext(new MockServletContext());
+        handler.setLocations(Collections.<Resource>singletonList(new FileSystemResource(folder.getRoot().getPath() + "/")));
+        handler.afterPropertiesSet();
+    }
+
+    @Test
+    public void handleRequest_GzipAccepted_ShouldSendGzipCopy() throws Exception {
+        MockHttpServletResponse response = handle("css/example.css", "gzip, deflate");
+
+        assertThat(response.getContentType(), is("text/css"));
+        assertThat(response.getHeader(CompressionFilter.HEADER_CONTENT_ENCODING), is("gzip"));
+        assertThat(response.getHeader("Vary"), is("Accept-Encoding"));
+        assertThat(response.getContentLength(), is(GZIPPED_CSS.length));
+        assertThat(response.getContentAsByteArray(), is(GZIPPED_CSS));
+    }
+
+    @Test
+    public void handleRequest_GzipNotAccepted_ShouldSendResource() throws Exception {
+        MockHttpServletResponse response = handle("css/example.css", "gzip;q=0, deflate");
+
+        assertThat(response.getContentType(), is("text/css"));
+        assertThat(response.getHeader(CompressionFilter.HEADER_CONTENT_ENCODING), nullValue());
+        assertThat(response.getContentAsByteArray(), is(CSS));
+    }
+
+    @Test
+    public void handleRequest_NoGzipCopy_ShouldSendResource() throws Exception {
+        MockHttpServletResponse response = handle("css/bootstrap.css", "gzip");
+
+        assertThat(response.getHeader(CompressionFilter.HEADER_CONTENT_ENCODING), nullValue());
+        assertThat(response.getContentAsByteArray(), is(CSS));
+    }
+
+    private MockHttpServletResponse handle(String path, String acceptEncoding) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/static/" + path);
+        request.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, path);
+        request.addHeader(CompressionFilter.HEADER_ACCEPT_ENCODING, acceptEncoding);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        handler.handleRequest(request, response);
+        return response;
+    }
+}
@@ -0,0 +1,88 @@
+package com.springmvcut.common.web;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import javax.servlet.http.Cookie;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.springmvcut.common.jdbc.RoutingContextHolder;
+
+public class ReadYourWritesInterceptorTest {
+
+    private static final long WINDOW_MILLIS = 5000;
+
+    private ReadYourWritesInterceptor interceptor = new ReadYourWritesInterceptor(WINDOW_MILLIS);
+
+    @After
+    public void tearDown() {
+        RoutingContextHolder.reset();
+    }
+
+    @Test
+    public void preHandle_Write_ShouldRequirePrimaryAndSetCookie() {
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/api/todo/1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, null);
+
+        assertThat(RoutingContextHolder.isPrimaryRequired(), is(true));
+        Cookie cookie = response.getCookie(ReadYourWritesInterceptor.COOKIE_PRIMARY_UNTIL);
+        assertThat(cookie, notNullValue());
+        assertThat(cookie.getMaxAge(), is(5));
+        assertThat(cookie.getPath(), is("/"));
+    }
+
+    @Test
+    public void preHandle_ReadWithinWindow_ShouldRequirePrimary() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/todo/1");
+        request.setCookies(primaryUntil(System.currentTimeMillis() + WINDOW_MILLIS));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, null);
+
+        assertThat(RoutingContextHolder.isPrimaryRequired(), is(true));
+        assertThat(response.getCookie(ReadYourWritesInterceptor.COOKIE_PRIMARY_UNTIL), nullValue());
+    }
+
+    @Test
+    public void preHandle_ReadAfterWindow_ShouldNotRequirePrimary() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/todo/1");
+        request.setCookies(primaryUntil(System.currentTimeMillis() - 1));
+
+        interceptor.preHandle(request, new MockHttpServletResponse(), null);
+
+        assertThat(RoutingContextHolder.isPrimaryRequired(), is(false));
+    }
+
+    @Test
+    public void preHandle_InvalidCookie_ShouldNotRequirePrimary() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/todo/1");
+        request.setCookies(new Cookie(ReadYourWritesInterceptor.COOKIE_PRIMARY_UNTIL, "foo"));
+
+        interceptor.preHandle(request, new MockHttpServletResponse(), null);
+
+        assertThat(RoutingContextHolder.isPrimaryRequired(), is(false));
+    }
+
+    @Test
+    public void afterCompletion_ShouldResetRoutingContext() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/todo/add");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, null);
+
+        interceptor.afterCompletion(request, response, null, null);
+
+        assertThat(RoutingContextHolder.isPrimaryRequired(), is(false));
+    }
+
+    private static Cookie primaryUntil(long millis) {
+        return new Cookie(ReadYourWritesInterceptor.COOKIE_PRIMARY_UNTIL, Long.toString(millis));
+    }
+}
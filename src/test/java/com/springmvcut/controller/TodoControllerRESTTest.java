@@ -1,38 +1,72 @@
 package com.springmvcut.controller;
 
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.github.springtestdbunit.annotation.ExpectedDatabase;
+import com.springmvcut.common.web.SmileHttpMessageConverter;
+import com.springmvcut.dto.TodoChangeDTO;
 import com.springmvcut.dto.TodoDTO;
+import com.springmvcut.dto.TodoDeltaDTO;
+import com.springmvcut.dto.TodoListVersionDTO;
 import com.springmvcut.exception.TodoNotFoundException;
+import com.springmvcut.exception.TodoVersionConflictException;
 import com.springmvcut.model.Todo;
 import com.springmvcut.model.TodoBuilder;
+import com.springmvcut.repository.TodoCallback;
+import com.springmvcut.service.TodoChangeListener;
 import com.springmvcut.service.TodoService;
 import com.springmvcut.todo.TodoDTOBuilder;
 import com.springmvcut.util.TestUtil;
@@ -43,6 +77,10 @@ import com.springmvcut.util.TestUtil;
 		"file:src/main/webapp/WEB-INF/spring/root-context.xml" })
 @WebAppConfiguration
 public class TodoControllerRESTTest {
+	private static final DateTime MODIFICATION_TIME = new DateTime(2014, 1, 2, 3, 4, 5, DateTimeZone.UTC);
+	private static final long ASYNC_RESULT_TIMEOUT_MILLIS = 5000;
+	private static final String LIST_ENTITY_TAG = "\"2-" + MODIFICATION_TIME.getMillis() + "\"";
+
 	private MockMvc mockMvc;
 
 	@Autowired
@@ -62,22 +100,24 @@ public class TodoControllerRESTTest {
 	
 	@Test
     public void findAll_TodosFound_ShouldReturnFoundTodoEntries() throws Exception {
-        Todo first = new TodoBuilder()
+        TodoDTO first = new TodoDTOBuilder()
                 .id(1L)
                 .description("Lorem ipsum")
                 .title("Foo")
                 .build();
-        Todo second = new TodoBuilder()
+        TodoDTO second = new TodoDTOBuilder()
                 .id(2L)
                 .description("Lorem ipsum")
                 .title("Bar")
                 .build();
  
-        when(todoServiceMock.findAll()).thenReturn(Arrays.asList(first, second));
+        when(todoServiceMock.findListVersion()).thenReturn(new TodoListVersionDTO(2L, MODIFICATION_TIME));
+        when(todoServiceMock.findAllDTOs()).thenReturn(Arrays.asList(first, second));
  
-        mockMvc.perform(get("/api/todo"))
+        performAsync(get("/api/todo"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(header().string("ETag", LIST_ENTITY_TAG))
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[0].id", is(1)))
                 .andExpect(jsonPath("$[0].description", is("Lorem ipsum")))
@@ -86,41 +126,299 @@ public class TodoControllerRESTTest {
                 .andExpect(jsonPath("$[1].description", is("Lorem ipsum")))
                 .andExpect(jsonPath("$[1].title", is("Bar")));
  
-        verify(todoServiceMock, times(1)).findAll();
+        verify(todoServiceMock, times(1)).findListVersion();
+        verify(todoServiceMock, times(1)).findAllDTOs();
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void findAll_SmileRequested_ShouldReturnFoundTodoEntriesInSmile() throws Exception {
+        TodoDTO first = new TodoDTOBuilder().id(1L).description("Lorem ipsum").title("Foo").build();
+        TodoDTO second = new TodoDTOBuilder().id(2L).title("Bar").build();
+
+        when(todoServiceMock.findListVersion()).thenReturn(new TodoListVersionDTO(2L, MODIFICATION_TIME));
+        when(todoServiceMock.findAllDTOs()).thenReturn(Arrays.asList(first, second));
+
+        MvcResult result = performAsync(get("/api/todo").accept(SmileHttpMessageConverter.MEDIA_TYPE_SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(SmileHttpMessageConverter.MEDIA_TYPE_SMILE))
+                .andExpect(header().string("ETag", LIST_ENTITY_TAG))
+                .andExpect(header().string("Vary", "Accept"))
+                .andReturn();
+
+        JsonNode found = TestUtil.convertSmileBytesToTree(result.getResponse().getContentAsByteArray());
+        assertThat(found.size(), is(2));
+        assertThat(found.get(0).get("id").asLong(), is(1L));
+        assertThat(found.get(0).get("description").asText(), is("Lorem ipsum"));
+        assertThat(found.get(0).get("title").asText(), is("Foo"));
+        assertThat(found.get(1).get("id").asLong(), is(2L));
+        assertThat(found.get(1).get("title").asText(), is("Bar"));
+
+        verify(todoServiceMock, times(1)).findListVersion();
+        verify(todoServiceMock, times(1)).findAllDTOs();
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void findAll_ListNotModified_ShouldReturnHttpStatusCode304WithoutFindingTodoEntries() throws Exception {
+        when(todoServiceMock.findListVersion()).thenReturn(new TodoListVersionDTO(2L, MODIFICATION_TIME));
+
+        performAsync(get("/api/todo").header("If-None-Match", LIST_ENTITY_TAG))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", LIST_ENTITY_TAG))
+                .andExpect(content().string(""));
+
+        verify(todoServiceMock, times(1)).findListVersion();
         verifyNoMoreInteractions(todoServiceMock);
     }
 	
+	@Test
+    public void findAll_WeakEntityTagOfCompressedListGiven_ShouldReturnHttpStatusCode304() throws Exception {
+        when(todoServiceMock.findListVersion()).thenReturn(new TodoListVersionDTO(2L, MODIFICATION_TIME));
+
+        performAsync(get("/api/todo").header("If-None-Match", "W/" + LIST_ENTITY_TAG))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(todoServiceMock, times(1)).findListVersion();
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void findPage_FullPageFound_ShouldReturnTodoEntriesAndNextCursor() throws Exception {
+        TodoDTO first = new TodoDTOBuilder()
+                .id(3L)
+                .description("Lorem ipsum")
+                .title("Foo")
+                .build();
+        TodoDTO second = new TodoDTOBuilder()
+                .id(4L)
+                .description("Lorem ipsum")
+                .title("Bar")
+                .build();
+
+        when(todoServiceMock.findAfter(2L, 2)).thenReturn(Arrays.asList(first, second));
+
+        performAsync(get("/api/todo").param("after", "2").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(jsonPath("$.todos", hasSize(2)))
+                .andExpect(jsonPath("$.todos[0].id", is(3)))
+                .andExpect(jsonPath("$.todos[0].title", is("Foo")))
+                .andExpect(jsonPath("$.todos[1].id", is(4)))
+                .andExpect(jsonPath("$.todos[1].title", is("Bar")))
+                .andExpect(jsonPath("$.next", is(4)))
+                .andExpect(jsonPath("$.nextString", is("4")));
+
+        verify(todoServiceMock, times(1)).findAfter(2L, 2);
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void findPage_LastPageFound_ShouldReturnTodoEntriesWithoutNextCursor() throws Exception {
+        TodoDTO first = new TodoDTOBuilder()
+                .id(1L)
+                .description("Lorem ipsum")
+                .title("Foo")
+                .build();
+
+        when(todoServiceMock.findAfter(null, 2)).thenReturn(Arrays.asList(first));
+
+        performAsync(get("/api/todo").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(jsonPath("$.todos", hasSize(1)))
+                .andExpect(jsonPath("$.todos[0].id", is(1)))
+                .andExpect(jsonPath("$.next", nullValue()));
+
+        verify(todoServiceMock, times(1)).findAfter(null, 2);
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void search_TodoEntriesFound_ShouldReturnFoundTodoEntriesInOrder() throws Exception {
+        TodoDTO first = new TodoDTOBuilder()
+                .id(2L)
+                .title("Milk")
+                .build();
+        TodoDTO second = new TodoDTOBuilder()
+                .id(1L)
+                .title("Buy milk")
+                .build();
+
+        when(todoServiceMock.search("milk", 5)).thenReturn(Arrays.asList(first, second));
+
+        performAsync(get("/api/todo/search").param("q", "milk").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id", is(2)))
+                .andExpect(jsonPath("$[1].id", is(1)));
+
+        verify(todoServiceMock, times(1)).search("milk", 5);
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void search_LimitNotGiven_ShouldUseDefaultLimit() throws Exception {
+        when(todoServiceMock.search("milk", 20)).thenReturn(Arrays.<TodoDTO>asList());
+
+        performAsync(get("/api/todo/search").param("q", "milk"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        verify(todoServiceMock, times(1)).search("milk", 20);
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void exportAll_JsonRequested_ShouldStreamTodoEntriesAsJsonArray() throws Exception {
+        doAnswer(exportTodoEntries()).when(todoServiceMock).exportAll(isA(TodoCallback.class));
+
+        mockMvc.perform(get("/api/todo/export").accept(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/json;charset=UTF-8"))
+                .andExpect(content().string("[{\"id\":1,\"idString\":\"1\",\"description\":\"Lorem ipsum\",\"title\":\"Foo\"},"
+                        + "{\"id\":2,\"idString\":\"2\",\"description\":null,\"title\":\"Bar\"}]"));
+
+        verify(todoServiceMock, times(1)).exportAll(isA(TodoCallback.class));
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void exportAll_NdjsonRequested_ShouldStreamOneTodoEntryPerLine() throws Exception {
+        doAnswer(exportTodoEntries()).when(todoServiceMock).exportAll(isA(TodoCallback.class));
+
+        mockMvc.perform(get("/api/todo/export").header("Accept", "application/x-ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson;charset=UTF-8"))
+                .andExpect(content().string("{\"id\":1,\"idString\":\"1\",\"description\":\"Lorem ipsum\",\"title\":\"Foo\"}\n"
+                        + "{\"id\":2,\"idString\":\"2\",\"description\":null,\"title\":\"Bar\"}\n"));
+
+        verify(todoServiceMock, times(1)).exportAll(isA(TodoCallback.class));
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void exportAll_SmileRequested_ShouldStreamTodoEntriesAsSmileArray() throws Exception {
+        doAnswer(exportTodoEntries()).when(todoServiceMock).exportAll(isA(TodoCallback.class));
+
+        MvcResult result = mockMvc.perform(get("/api/todo/export").accept(SmileHttpMessageConverter.MEDIA_TYPE_SMILE))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", SmileHttpMessageConverter.MEDIA_TYPE_SMILE_VALUE))
+                .andReturn();
+
+        JsonNode exported = TestUtil.convertSmileBytesToTree(result.getResponse().getContentAsByteArray());
+        assertThat(exported.size(), is(2));
+        assertThat(exported.get(0).get("id").asLong(), is(1L));
+        assertThat(exported.get(0).get("title").asText(), is("Foo"));
+        assertThat(exported.get(1).get("id").asLong(), is(2L));
+        assertThat(exported.get(1).get("description").isNull(), is(true));
+
+        verify(todoServiceMock, times(1)).exportAll(isA(TodoCallback.class));
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+    private Answer<Void> exportTodoEntries() {
+        return new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                TodoCallback callback = (TodoCallback) invocation.getArguments()[0];
+                callback.processTodo(new TodoDTOBuilder().id(1L).description("Lorem ipsum").title("Foo").build());
+                callback.processTodo(new TodoDTOBuilder().id(2L).title("Bar").build());
+                return null;
+            }
+        };
+    }
+
 	@Test
     public void findById_TodoEntryNotFound_ShouldReturnHttpStatusCode404() throws Exception {
-        when(todoServiceMock.findById(1L)).thenThrow(new TodoNotFoundException(""));
+        when(todoServiceMock.findDTOById(1L)).thenThrow(new TodoNotFoundException(""));
  
-        mockMvc.perform(get("/api/todo/{id}", 1L))
+        performAsync(get("/api/todo/{id}", 1L))
                 .andExpect(status().isNotFound());
  
-        verify(todoServiceMock, times(1)).findById(1L);
+        verify(todoServiceMock, times(1)).findDTOById(1L);
         verifyNoMoreInteractions(todoServiceMock);
     }
 	
 	 @Test
     public void findById_TodoEntryFound_ShouldReturnFoundTodoEntry() throws Exception {
-        Todo found = new TodoBuilder()
+        TodoDTO found = new TodoDTOBuilder()
                 .id(1L)
                 .description("Lorem ipsum")
                 .title("Foo")
+                .version(3L)
+                .modificationTime(MODIFICATION_TIME)
                 .build();
  
-        when(todoServiceMock.findById(1L)).thenReturn(found);
+        when(todoServiceMock.findDTOById(1L)).thenReturn(found);
  
-        mockMvc.perform(get("/api/todo/{id}", 1L))
+        performAsync(get("/api/todo/{id}", 1L).header("If-None-Match", "\"1-2\""))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(header().string("ETag", "\"1-3\""))
+                .andExpect(header().string("Last-Modified", "Thu, 02 Jan 2014 03:04:05 GMT"))
                 .andExpect(jsonPath("$.id", is(1)))
+                .andExpect(jsonPath("$.idString", is("1")))
                 .andExpect(jsonPath("$.description", is("Lorem ipsum")))
-                .andExpect(jsonPath("$.title", is("Foo")));
+                .andExpect(jsonPath("$.title", is("Foo")))
+                .andExpect(jsonPath("$.version", is(3)))
+                .andExpect(jsonPath("$.modificationTime").doesNotExist());
  
-        verify(todoServiceMock, times(1)).findById(1L);
+        verify(todoServiceMock, times(1)).findDTOById(1L);
         verifyNoMoreInteractions(todoServiceMock);
     }
+
+	@Test
+    public void findById_IdNeedsMoreThan53Bits_ShouldReturnExactIdAsString() throws Exception {
+        Long id = (1L << 53) + 1;
+        TodoDTO found = new TodoDTOBuilder()
+                .id(id)
+                .title("Foo")
+                .version(3L)
+                .modificationTime(MODIFICATION_TIME)
+                .build();
+
+        when(todoServiceMock.findDTOById(id)).thenReturn(found);
+
+        performAsync(get("/api/todo/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.idString", is("9007199254740993")));
+    }
+
+	@Test
+    public void findById_EntityTagMatches_ShouldReturnHttpStatusCode304() throws Exception {
+        TodoDTO found = new TodoDTOBuilder()
+                .id(1L)
+                .title("Foo")
+                .version(3L)
+                .modificationTime(MODIFICATION_TIME)
+                .build();
+
+        when(todoServiceMock.findDTOById(1L)).thenReturn(found);
+
+        performAsync(get("/api/todo/{id}", 1L).header("If-None-Match", "\"1-2\", W/\"1-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"1-3\""))
+                .andExpect(content().string(""));
+    }
+
+	@Test
+    public void findById_NotModifiedSince_ShouldReturnHttpStatusCode304() throws Exception {
+        TodoDTO found = new TodoDTOBuilder()
+                .id(1L)
+                .title("Foo")
+                .version(3L)
+                .modificationTime(MODIFICATION_TIME)
+                .build();
+
+        when(todoServiceMock.findDTOById(1L)).thenReturn(found);
+
+        performAsync(get("/api/todo/{id}", 1L).header("If-Modified-Since", MODIFICATION_TIME.toDate()))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
 	 
 	@Test
     public void add_TitleAndDescriptionAreTooLong_ShouldReturnValidationErrorsForTitleAndDescription() throws Exception {
@@ -147,4 +445,355 @@ public class TodoControllerRESTTest {
 
         verifyZeroInteractions(todoServiceMock);
     }
+
+	@Test
+    public void add_SmileRequestBody_ShouldAddTodoEntryAndReturnItInSmile() throws Exception {
+        TodoDTO dto = new TodoDTOBuilder()
+                .description("Lorem ipsum")
+                .title("Foo")
+                .build();
+        Todo added = new TodoBuilder().id(1L).description("Lorem ipsum").title("Foo").build();
+
+        when(todoServiceMock.add(isA(TodoDTO.class))).thenReturn(added);
+
+        MvcResult result = performAsync(post("/api/todo")
+                .contentType(SmileHttpMessageConverter.MEDIA_TYPE_SMILE)
+                .accept(SmileHttpMessageConverter.MEDIA_TYPE_SMILE)
+                .content(TestUtil.convertObjectToSmileBytes(dto)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(SmileHttpMessageConverter.MEDIA_TYPE_SMILE))
+                .andReturn();
+
+        JsonNode returned = TestUtil.convertSmileBytesToTree(result.getResponse().getContentAsByteArray());
+        assertThat(returned.get("id").asLong(), is(1L));
+        assertThat(returned.get("title").asText(), is("Foo"));
+
+        ArgumentCaptor<TodoDTO> dtoArgument = ArgumentCaptor.forClass(TodoDTO.class);
+        verify(todoServiceMock, times(1)).add(dtoArgument.capture());
+        verifyNoMoreInteractions(todoServiceMock);
+
+        assertThat(dtoArgument.getValue().getTitle(), is("Foo"));
+        assertThat(dtoArgument.getValue().getDescription(), is("Lorem ipsum"));
+    }
+
+	@Test
+    public void add_TitleIsEmptyAndSmileRequested_ShouldReturnValidationErrorInSmile() throws Exception {
+        TodoDTO dto = new TodoDTOBuilder().description("Lorem ipsum").build();
+
+        MvcResult result = mockMvc.perform(post("/api/todo")
+                .contentType(SmileHttpMessageConverter.MEDIA_TYPE_SMILE)
+                .accept(SmileHttpMessageConverter.MEDIA_TYPE_SMILE)
+                .content(TestUtil.convertObjectToSmileBytes(dto)))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(SmileHttpMessageConverter.MEDIA_TYPE_SMILE))
+                .andReturn();
+
+        JsonNode fieldErrors = TestUtil.convertSmileBytesToTree(result.getResponse().getContentAsByteArray()).get("fieldErrors");
+        assertThat(fieldErrors.size(), is(1));
+        assertThat(fieldErrors.get(0).get("path").asText(), is("title"));
+
+        verifyZeroInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void add_WriteQueueFull_ShouldReturnHttpStatusCode503WithRetryAfter() throws Exception {
+        TodoDTO dto = new TodoDTOBuilder()
+                .title("Foo")
+                .build();
+
+        when(todoServiceMock.add(isA(TodoDTO.class))).thenThrow(new RejectedExecutionException("The write queue is full"));
+
+        performAsync(post("/api/todo")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(dto))
+        )
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+	@Test
+	@SuppressWarnings("unchecked")
+    public void addAll_ValidTodoEntries_ShouldAddTodoEntriesAndReturnTheirIdsInOrder() throws Exception {
+        TodoDTO first = new TodoDTOBuilder()
+                .description("Lorem ipsum")
+                .title("Foo")
+                .build();
+        TodoDTO second = new TodoDTOBuilder()
+                .title("Bar")
+                .build();
+
+        Todo firstAdded = new TodoBuilder().id(7L).description("Lorem ipsum").title("Foo").build();
+        Todo secondAdded = new TodoBuilder().id(8L).title("Bar").build();
+
+        when(todoServiceMock.addAll(anyListOf(TodoDTO.class))).thenReturn(Arrays.asList(firstAdded, secondAdded));
+
+        performAsync(post("/api/todo/batch")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(first, second)))
+        )
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0]", is(7)))
+                .andExpect(jsonPath("$[1]", is(8)));
+
+        ArgumentCaptor<List<TodoDTO>> addedArgument = ArgumentCaptor.forClass((Class<List<TodoDTO>>) (Class<?>) List.class);
+        verify(todoServiceMock, times(1)).addAll(addedArgument.capture());
+        verifyNoMoreInteractions(todoServiceMock);
+
+        List<TodoDTO> added = addedArgument.getValue();
+        assertThat(added.size(), is(2));
+        assertThat(added.get(0).getTitle(), is("Foo"));
+        assertThat(added.get(0).getDescription(), is("Lorem ipsum"));
+        assertThat(added.get(1).getTitle(), is("Bar"));
+    }
+
+	@Test
+    public void addAll_TitleIsEmpty_ShouldReturnValidationErrorForTitle() throws Exception {
+        TodoDTO valid = new TodoDTOBuilder()
+                .title("Foo")
+                .build();
+        TodoDTO invalid = new TodoDTOBuilder()
+                .description("Lorem ipsum")
+                .build();
+
+        mockMvc.perform(post("/api/todo/batch")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(valid, invalid)))
+        )
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(jsonPath("$.fieldErrors", hasSize(1)))
+                .andExpect(jsonPath("$.fieldErrors[0].path", is("todos[1].title")));
+
+        verifyZeroInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void addAll_EmptyBatch_ShouldReturnValidationError() throws Exception {
+        mockMvc.perform(post("/api/todo/batch")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content("[]")
+        )
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.fieldErrors", hasSize(1)))
+                .andExpect(jsonPath("$.fieldErrors[0].path", is("todos")));
+
+        verifyZeroInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void update_IfMatchHeaderGiven_ShouldUpdateTodoEntryIfVersionMatches() throws Exception {
+        TodoDTO dto = new TodoDTOBuilder()
+                .id(1L)
+                .description("Lorem ipsum")
+                .title("Foo")
+                .build();
+
+        when(todoServiceMock.update(isA(TodoDTO.class), eq(3L))).thenReturn(4L);
+
+        performAsync(put("/api/todo/{id}", 1L)
+                .header("If-Match", "\"1-3\"")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(dto))
+        )
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(header().string("ETag", "\"1-4\""))
+                .andExpect(jsonPath("$.id", is(1)))
+                .andExpect(jsonPath("$.title", is("Foo")))
+                .andExpect(jsonPath("$.version", is(4)));
+
+        verify(todoServiceMock, times(1)).update(isA(TodoDTO.class), eq(3L));
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void update_VersionGivenInBody_ShouldUpdateTodoEntryIfVersionMatches() throws Exception {
+        TodoDTO dto = new TodoDTOBuilder()
+                .id(1L)
+                .title("Foo")
+                .version(5L)
+                .build();
+
+        when(todoServiceMock.update(isA(TodoDTO.class), eq(5L))).thenReturn(6L);
+
+        performAsync(put("/api/todo/{id}", 1L)
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(dto))
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version", is(6)));
+
+        verify(todoServiceMock, times(1)).update(isA(TodoDTO.class), eq(5L));
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void update_VersionDoesNotMatch_ShouldReturnHttpStatusCode412() throws Exception {
+        TodoDTO dto = new TodoDTOBuilder()
+                .id(1L)
+                .title("Foo")
+                .build();
+
+        when(todoServiceMock.update(isA(TodoDTO.class), eq(3L))).thenThrow(new TodoVersionConflictException(""));
+
+        performAsync(put("/api/todo/{id}", 1L)
+                .header("If-Match", "\"3\"")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(dto))
+        )
+                .andExpect(status().isPreconditionFailed());
+
+        verify(todoServiceMock, times(1)).update(isA(TodoDTO.class), eq(3L));
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void update_VersionGivenButTodoEntryNotFound_ShouldReturnHttpStatusCode404() throws Exception {
+        TodoDTO dto = new TodoDTOBuilder()
+                .id(1L)
+                .title("Foo")
+                .build();
+
+        when(todoServiceMock.update(isA(TodoDTO.class), eq(3L))).thenThrow(new TodoNotFoundException(""));
+
+        performAsync(put("/api/todo/{id}", 1L)
+                .header("If-Match", "\"3\"")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(dto))
+        )
+                .andExpect(status().isNotFound());
+
+        verify(todoServiceMock, times(1)).update(isA(TodoDTO.class), eq(3L));
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void deleteById_IfMatchHeaderGiven_ShouldDeleteTodoEntryIfVersionMatches() throws Exception {
+        performAsync(delete("/api/todo/{id}", 1L).header("If-Match", "\"2\""))
+                .andExpect(status().isNoContent());
+
+        verify(todoServiceMock, times(1)).deleteById(1L, 2L);
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void deleteById_VersionDoesNotMatch_ShouldReturnHttpStatusCode412() throws Exception {
+        doThrow(new TodoVersionConflictException("")).when(todoServiceMock).deleteById(1L, 2L);
+
+        performAsync(delete("/api/todo/{id}", 1L).header("If-Match", "\"2\""))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(todoServiceMock, times(1)).deleteById(1L, 2L);
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void deleteById_IfMatchHeaderIsTagOfOtherTodoEntry_ShouldReturnHttpStatusCode412() throws Exception {
+        doThrow(new TodoVersionConflictException("")).when(todoServiceMock).deleteById(1L, -1L);
+
+        performAsync(delete("/api/todo/{id}", 1L).header("If-Match", "\"2-2\""))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(todoServiceMock, times(1)).deleteById(1L, -1L);
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void deleteById_IfMatchHeaderIsWeakEntityTag_ShouldReturnHttpStatusCode412() throws Exception {
+        doThrow(new TodoVersionConflictException("")).when(todoServiceMock).deleteById(1L, -1L);
+
+        performAsync(delete("/api/todo/{id}", 1L).header("If-Match", "W/\"1-2\""))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(todoServiceMock, times(1)).deleteById(1L, -1L);
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void changes_LastEventIdGiven_ShouldStreamChangesAsServerSentEvents() throws Exception {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                TodoChangeListener listener = (TodoChangeListener) invocation.getArguments()[1];
+                listener.onChange(new TodoChangeDTO(8L, 1L, 2L, TodoChangeDTO.Operation.UPDATED));
+                return null;
+            }
+        }).when(todoServiceMock).subscribeToChanges(eq(7L), isA(TodoChangeListener.class));
+
+        mockMvc.perform(get("/api/todo/changes").header("Last-Event-ID", "7"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/event-stream;charset=UTF-8"))
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(content().string(containsString("id: 8\ndata: {\"id\":1,\"version\":2,\"operation\":\"UPDATED\",\"idString\":\"1\"}\n\n")));
+
+        verify(todoServiceMock, times(1)).subscribeToChanges(eq(7L), isA(TodoChangeListener.class));
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void changes_ChangesMissed_ShouldSendResetEvent() throws Exception {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                TodoChangeListener listener = (TodoChangeListener) invocation.getArguments()[1];
+                listener.onMissedChanges();
+                return null;
+            }
+        }).when(todoServiceMock).subscribeToChanges(eq(Long.MIN_VALUE), isA(TodoChangeListener.class));
+
+        mockMvc.perform(get("/api/todo/changes").header("Last-Event-ID", "foo"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("event: reset\ndata: {}\n\n")));
+
+        verify(todoServiceMock, times(1)).subscribeToChanges(eq(Long.MIN_VALUE), isA(TodoChangeListener.class));
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	@Test
+    public void findChangedSince_ShouldReturnChangedAndDeletedTodoEntriesAndWatermark() throws Exception {
+        TodoDTO changed = new TodoDTOBuilder()
+                .id(1L)
+                .title("Foo")
+                .version(2L)
+                .build();
+        TodoDeltaDTO delta = new TodoDeltaDTO(Arrays.asList(changed), Arrays.asList(3L), 1500L, false);
+
+        when(todoServiceMock.findChangedSince(new DateTime(1000L))).thenReturn(delta);
+
+        performAsync(get("/api/todo").param("modifiedSince", "1000"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(jsonPath("$.todos", hasSize(1)))
+                .andExpect(jsonPath("$.todos[0].id", is(1)))
+                .andExpect(jsonPath("$.todos[0].title", is("Foo")))
+                .andExpect(jsonPath("$.deleted", hasSize(1)))
+                .andExpect(jsonPath("$.deleted[0]", is(3)))
+                .andExpect(jsonPath("$.deletedStrings[0]", is("3")))
+                .andExpect(jsonPath("$.watermark", is(1500)))
+                .andExpect(jsonPath("$.reset", is(false)));
+
+        verify(todoServiceMock, times(1)).findChangedSince(new DateTime(1000L));
+        verifyNoMoreInteractions(todoServiceMock);
+    }
+
+	/**
+	 * Performs a request whose handler method runs asynchronously and dispatches its result.
+	 * MockMvc does not wait for a result that is set by another thread, so it is waited for here.
+	 */
+	private ResultActions performAsync(RequestBuilder requestBuilder) throws Exception {
+		MvcResult result = mockMvc.perform(requestBuilder)
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(result.getRequest());
+		long deadline = System.currentTimeMillis() + ASYNC_RESULT_TIMEOUT_MILLIS;
+		while (!asyncManager.hasConcurrentResult()) {
+			assertTrue("No asynchronous result", System.currentTimeMillis() < deadline);
+			Thread.sleep(1);
+		}
+
+		return mockMvc.perform(asyncDispatch(result));
+	}
 }
@@ -19,6 +19,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.flash;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.forwardedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -26,6 +27,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import java.util.Arrays;
 
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -42,10 +45,12 @@ import org.springframework.web.context.WebApplicationContext;
 
 import com.springmvcut.common.controller.ErrorController;
 import com.springmvcut.dto.TodoDTO;
+import com.springmvcut.dto.TodoListVersionDTO;
 import com.springmvcut.exception.TodoNotFoundException;
 import com.springmvcut.model.Todo;
 import com.springmvcut.model.TodoBuilder;
 import com.springmvcut.service.TodoService;
+import com.springmvcut.todo.TodoDTOBuilder;
 import com.springmvcut.util.TestUtil;
 import com.springmvcut.util.WebTestConstants;
 
@@ -59,6 +64,7 @@ public class TodoControllerTest {
 	private static final String DESCRIPTION = "description";
 	private static final Long ID = 1L;
 	private static final String TITLE = "title";
+	private static final DateTime MODIFICATION_TIME = new DateTime(2014, 1, 2, 3, 4, 5, DateTimeZone.UTC);
 
 	private MockMvc mockMvc;
 
@@ -83,10 +89,11 @@ public class TodoControllerTest {
 
 	@Test
 	public void findAll_ShouldAndTodoEntriesToModelAndRenderTodoListView() throws Exception {
-		Todo first = new TodoBuilder().id(1L).description("Lorem ipsum").title("Foo").build();
+		TodoDTO first = new TodoDTO(1L, "Foo");
 
-		Todo second = new TodoBuilder().id(2L).description("Lorem ipsum").title("Bar").build();
-		when(todoServiceMock.findAll()).thenReturn(Arrays.asList(first, second));
+		TodoDTO second = new TodoDTO(2L, "Bar");
+		when(todoServiceMock.findListVersion()).thenReturn(new TodoListVersionDTO(2L, MODIFICATION_TIME));
+		when(todoServiceMock.findAllSummaries()).thenReturn(Arrays.asList(first, second));
 
 		mockMvc.perform(get("/"))
 				.andExpect(status().isOk())
@@ -96,51 +103,90 @@ public class TodoControllerTest {
 				.andExpect(model().attribute(TodoController.MODEL_ATTRIBUTE_TODO_LIST,hasItem(
 						allOf(
 							hasProperty(WebTestConstants.FORM_FIELD_ID, is(1L)),
-							hasProperty(WebTestConstants.FORM_FIELD_DESCRIPTION, is("Lorem ipsum")),
 							hasProperty(WebTestConstants.FORM_FIELD_TITLE, is("Foo")))
 
 						)))
 				.andExpect(model().attribute(TodoController.MODEL_ATTRIBUTE_TODO_LIST,hasItem(
 						allOf(
 								hasProperty(WebTestConstants.FORM_FIELD_ID, is(2L)),
-								hasProperty(WebTestConstants.FORM_FIELD_DESCRIPTION, is("Lorem ipsum")),
 								hasProperty(WebTestConstants.FORM_FIELD_TITLE, is("Bar")))
 						)));
 
-		verify(todoServiceMock, times(1)).findAll();
+		verify(todoServiceMock, times(1)).findListVersion();
+		verify(todoServiceMock, times(1)).findAllSummaries();
 		verifyNoMoreInteractions(todoServiceMock);
 	}
 
+	@Test
+	public void findAll_ListNotModified_ShouldReturnHttpStatusCode304WithoutRenderingView() throws Exception {
+		when(todoServiceMock.findListVersion()).thenReturn(new TodoListVersionDTO(2L, MODIFICATION_TIME));
+
+		String entityTag = mockMvc.perform(get("/"))
+				.andReturn().getResponse().getHeader("ETag");
+
+		mockMvc.perform(get("/").header("If-None-Match", entityTag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("Vary", "Accept-Language"));
+
+		verify(todoServiceMock, times(1)).findAllSummaries();
+	}
+
 	@Test
 	public void findById_TodoEntryNotFound_ShouldRender404View() throws Exception {
-		when(todoServiceMock.findById(ID)).thenThrow(new TodoNotFoundException("No to-entry found with id: " + ID));
+		when(todoServiceMock.findDTOById(ID)).thenThrow(new TodoNotFoundException("No to-entry found with id: " + ID));
 
 		mockMvc.perform(get("/todo/{id}", ID)).andExpect(status().isNotFound())
 				.andExpect(view().name(ErrorController.VIEW_NOT_FOUND))
 				.andExpect(forwardedUrl("/WEB-INF/views/error/404.jsp"));
 
-		verify(todoServiceMock, times(1)).findById(ID);
+		verify(todoServiceMock, times(1)).findDTOById(ID);
 		verifyZeroInteractions(todoServiceMock);
 	}
 
 	@Test
 	public void findById_TodoEntryFound_ShouldAddTodoEntryToModelAndRenderViewTodoEntryView() throws Exception {
-		Todo found = new TodoBuilder().id(1L).description("Lorem ipsum").title("Foo").build();
+		TodoDTO found = new TodoDTOBuilder().id(1L).description("Lorem ipsum").title("Foo").version(0L)
+				.modificationTime(MODIFICATION_TIME).build();
 
-		when(todoServiceMock.findById(1L)).thenReturn(found);
+		when(todoServiceMock.findDTOById(1L)).thenReturn(found);
 
 		mockMvc.perform(get("/todo/{id}", 1L))
 				.andExpect(status().isOk())
+				.andExpect(header().longValue("Last-Modified", MODIFICATION_TIME.getMillis()))
 				.andExpect(view().name("todo/view"))
 				.andExpect(forwardedUrl("/WEB-INF/views/todo/view.jsp"))
 				.andExpect(model().attribute("todo", hasProperty(WebTestConstants.FORM_FIELD_ID, is(1L))))
 				.andExpect(model().attribute("todo",hasProperty(WebTestConstants.FORM_FIELD_DESCRIPTION, is("Lorem ipsum"))))
 				.andExpect(model().attribute("todo", hasProperty(WebTestConstants.FORM_FIELD_TITLE, is("Foo"))));
 
-		verify(todoServiceMock, times(1)).findById(1L);
+		verify(todoServiceMock, times(1)).findDTOById(1L);
 		verifyNoMoreInteractions(todoServiceMock);
 	}
 
+	@Test
+	public void findById_NotModifiedSince_ShouldReturnHttpStatusCode304WithoutRenderingView() throws Exception {
+		TodoDTO found = new TodoDTOBuilder().id(1L).title("Foo").version(0L).modificationTime(MODIFICATION_TIME).build();
+
+		when(todoServiceMock.findDTOById(1L)).thenReturn(found);
+
+		mockMvc.perform(get("/todo/{id}", 1L).header("If-Modified-Since", MODIFICATION_TIME.toDate()))
+				.andExpect(status().isNotModified())
+				.andExpect(forwardedUrl(null));
+	}
+
+	@Test
+	public void findById_FeedbackMessageShown_ShouldRenderViewEvenIfNotModified() throws Exception {
+		TodoDTO found = new TodoDTOBuilder().id(1L).title("Foo").version(0L).modificationTime(MODIFICATION_TIME).build();
+
+		when(todoServiceMock.findDTOById(1L)).thenReturn(found);
+
+		mockMvc.perform(get("/todo/{id}", 1L)
+				.header("If-Modified-Since", MODIFICATION_TIME.toDate())
+				.flashAttr(TodoController.FLASH_MESSAGE_KEY_FEEDBACK, "Feedback"))
+				.andExpect(status().isOk())
+				.andExpect(view().name(TodoController.VIEW_TODO_VIEW));
+	}
+
 	@Test
 	public void add_DescriptionAndTitleAreTooLong_ShouldRenderFormViewAndReturnValidationErrorForTitleAndDescription()
 			throws Exception {
@@ -24,6 +24,11 @@ public class TodoBuilder {
         return this;
     }
 
+    public TodoBuilder version(long version) {
+        ReflectionTestUtils.setField(model, "version", version);
+        return this;
+    }
+
     public Todo build() {
         return model;
     }
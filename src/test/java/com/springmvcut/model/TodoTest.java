@@ -70,6 +70,18 @@ public class TodoTest {
         assertTrue(todo.getModificationTime().isAfter(todo.getCreationTime()));
     }
 
+    @Test
+    public void toString_ShouldWriteAllFields() {
+        Todo todo = Todo.getBuilder(TITLE)
+                .description(DESCRIPTION)
+                .build();
+        todo.prePersist();
+
+        long millis = todo.getCreationTime().getMillis();
+        assertEquals("Todo[id=null,title=title,description=description,version=0,creationTime=" + millis
+                + ",modificationTime=" + millis + "]", todo.toString());
+    }
+
     private void pause(long timeInMillis) {
         try {
             Thread.currentThread().sleep(timeInMillis);
@@ -1,27 +1,47 @@
 package com.springmvcut.service;
 
 import static junit.framework.Assert.assertNull;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Before;
+import org.joda.time.DateTime;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.data.domain.Pageable;
 
+import com.springmvcut.common.jdbc.RoutingContextHolder;
 import com.springmvcut.dto.TodoDTO;
+import com.springmvcut.dto.TodoDeltaDTO;
 import com.springmvcut.exception.TodoNotFoundException;
+import com.springmvcut.exception.TodoVersionConflictException;
 import com.springmvcut.model.Todo;
 import com.springmvcut.model.TodoBuilder;
+import com.springmvcut.model.TodoTombstone;
 import com.springmvcut.repository.TodoRepository;
+import com.springmvcut.repository.TodoTombstoneRepository;
 import com.springmvcut.service.impl.RepositoryTodoService;
+import com.springmvcut.service.impl.TodoChangeFeed;
+import com.springmvcut.service.impl.TodoSearchIndex;
+import com.springmvcut.service.impl.TodoSnapshotCache;
 import com.springmvcut.todo.TodoDTOBuilder;
 
 public class RepositoryTodoServiceTest {
@@ -31,15 +51,38 @@ public class RepositoryTodoServiceTest {
     public static final String DESCRIPTION_UPDATED = "updatedDescription";
     public static final String TITLE = "title";
     public static final String TITLE_UPDATED = "updatedTitle";
+    public static final long VERSION = 3L;
+    public static final long SNAPSHOT_CACHE_MAXIMUM_WEIGHT = 1024 * 1024;
+    public static final long SNAPSHOT_CACHE_EXPIRE_AFTER_WRITE_MILLIS = 60000;
+    public static final int CHANGE_REPLAY_CAPACITY = 16;
+    public static final int CHANGE_BUFFER_CAPACITY = 16;
+    public static final long CHANGE_HEARTBEAT_MILLIS = 60000;
+    public static final long SYNC_OVERLAP_MILLIS = 5000;
+    public static final long TOMBSTONE_RETENTION_MILLIS = 24 * 60 * 60 * 1000;
 
     private RepositoryTodoService service;
     
     private TodoRepository repositoryMock;
 
+    private TodoSearchIndex searchIndex;
+
+    private TodoChangeFeed changeFeed;
+
+    private TodoTombstoneRepository tombstoneRepositoryMock;
+
     @Before
     public void setUp() {
         repositoryMock = mock(TodoRepository.class);
-        service = new RepositoryTodoService(repositoryMock);
+        searchIndex = new TodoSearchIndex();
+        changeFeed = new TodoChangeFeed(CHANGE_REPLAY_CAPACITY, CHANGE_BUFFER_CAPACITY, 1, CHANGE_HEARTBEAT_MILLIS);
+        tombstoneRepositoryMock = mock(TodoTombstoneRepository.class);
+        service = new RepositoryTodoService(repositoryMock,
+                new TodoSnapshotCache(SNAPSHOT_CACHE_MAXIMUM_WEIGHT, SNAPSHOT_CACHE_EXPIRE_AFTER_WRITE_MILLIS),
+                searchIndex,
+                changeFeed,
+                tombstoneRepositoryMock);
+        service.setSyncOverlapMillis(SYNC_OVERLAP_MILLIS);
+        service.setTombstoneRetentionMillis(TOMBSTONE_RETENTION_MILLIS);
     }
     
     @Test
@@ -49,6 +92,12 @@ public class RepositoryTodoServiceTest {
                 .title(TITLE)
                 .build();
 
+        when(repositoryMock.save(isA(Todo.class))).thenReturn(new TodoBuilder()
+                .id(ID)
+                .description(DESCRIPTION)
+                .title(TITLE)
+                .build());
+
         service.add(dto);
 
         ArgumentCaptor<Todo> toDoArgument = ArgumentCaptor.forClass(Todo.class);
@@ -62,6 +111,33 @@ public class RepositoryTodoServiceTest {
         assertThat(model.getTitle(), is(dto.getTitle()));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void addAll_NewTodoEntries_ShouldSaveTodoEntriesInOrder() {
+        TodoDTO first = new TodoDTOBuilder()
+                .description(DESCRIPTION)
+                .title(TITLE)
+                .build();
+        TodoDTO second = new TodoDTOBuilder()
+                .title(TITLE_UPDATED)
+                .build();
+
+        service.addAll(Arrays.asList(first, second));
+
+        ArgumentCaptor<Iterable<Todo>> toDoArgument = ArgumentCaptor.forClass((Class<Iterable<Todo>>) (Class<?>) Iterable.class);
+        verify(repositoryMock, times(1)).save(toDoArgument.capture());
+        verifyNoMoreInteractions(repositoryMock);
+
+        List<Todo> models = (List<Todo>) toDoArgument.getValue();
+
+        assertThat(models.size(), is(2));
+        assertNull(models.get(0).getId());
+        assertThat(models.get(0).getDescription(), is(DESCRIPTION));
+        assertThat(models.get(0).getTitle(), is(TITLE));
+        assertNull(models.get(1).getDescription());
+        assertThat(models.get(1).getTitle(), is(TITLE_UPDATED));
+    }
+
     @Test
     public void deleteById_TodoEntryFound_ShouldDeleteTodoEntryAndReturnIt() throws TodoNotFoundException {
         Todo model = new TodoBuilder()
@@ -81,6 +157,25 @@ public class RepositoryTodoServiceTest {
         assertThat(actual, is(model));
     }
 
+    @Test
+    public void deleteById_TodoEntryFound_ShouldSaveTombstone() throws TodoNotFoundException {
+        Todo model = new TodoBuilder()
+                .id(ID)
+                .version(VERSION)
+                .build();
+
+        when(repositoryMock.findOne(ID)).thenReturn(model);
+
+        service.deleteById(ID);
+
+        ArgumentCaptor<TodoTombstone> tombstoneArgument = ArgumentCaptor.forClass(TodoTombstone.class);
+        verify(tombstoneRepositoryMock, times(1)).save(tombstoneArgument.capture());
+        verifyNoMoreInteractions(tombstoneRepositoryMock);
+
+        assertThat(tombstoneArgument.getValue().getId(), is(ID));
+        assertThat(tombstoneArgument.getValue().getVersion(), is(VERSION));
+    }
+
     @Test(expected = TodoNotFoundException.class)
     public void deleteById_TodoEntryNotFound_ShouldThrowException() throws TodoNotFoundException {
         when(repositoryMock.findOne(ID)).thenReturn(null);
@@ -104,6 +199,115 @@ public class RepositoryTodoServiceTest {
         assertThat(actual, is(models));
     }
 
+    @Test
+    public void findAfter_ShouldReturnPageOfTodoEntries() {
+        List<TodoDTO> dtos = new ArrayList<TodoDTO>();
+        ArgumentCaptor<Pageable> pageableArgument = ArgumentCaptor.forClass(Pageable.class);
+        when(repositoryMock.findAfter(eq(ID), pageableArgument.capture())).thenReturn(dtos);
+
+        List<TodoDTO> actual = service.findAfter(ID, 10);
+
+        verify(repositoryMock, times(1)).findAfter(eq(ID), isA(Pageable.class));
+        verifyNoMoreInteractions(repositoryMock);
+
+        assertThat(actual, is(dtos));
+        assertThat(pageableArgument.getValue().getPageNumber(), is(0));
+        assertThat(pageableArgument.getValue().getPageSize(), is(10));
+    }
+
+    @Test
+    public void findAfter_FirstPage_ShouldStartFromSmallestId() {
+        List<TodoDTO> dtos = new ArrayList<TodoDTO>();
+        when(repositoryMock.findAfter(eq(Long.MIN_VALUE), isA(Pageable.class))).thenReturn(dtos);
+
+        List<TodoDTO> actual = service.findAfter(null, 10);
+
+        verify(repositoryMock, times(1)).findAfter(eq(Long.MIN_VALUE), isA(Pageable.class));
+        verifyNoMoreInteractions(repositoryMock);
+
+        assertThat(actual, is(dtos));
+    }
+
+    @Test
+    public void findChangedSince_WatermarkWithinRetention_ShouldReturnChangedAndDeletedTodoEntries() {
+        DateTime since = DateTime.now().minusMinutes(1);
+        DateTime from = since.minus(SYNC_OVERLAP_MILLIS);
+        List<TodoDTO> modified = Arrays.asList(new TodoDTOBuilder().id(ID).build());
+        List<Long> deleted = Arrays.asList(2L);
+        when(repositoryMock.findModifiedAfter(from)).thenReturn(modified);
+        when(tombstoneRepositoryMock.findIdsDeletedAfter(from)).thenReturn(deleted);
+
+        long before = DateTime.now().getMillis();
+        TodoDeltaDTO actual = service.findChangedSince(since);
+
+        verify(repositoryMock, times(1)).findModifiedAfter(from);
+        verifyNoMoreInteractions(repositoryMock);
+        verify(tombstoneRepositoryMock, times(1)).findIdsDeletedAfter(from);
+        verifyNoMoreInteractions(tombstoneRepositoryMock);
+
+        assertThat(actual.getTodos(), is(modified));
+        assertThat(actual.getDeleted(), is(deleted));
+        assertThat(actual.getWatermark(), greaterThanOrEqualTo(before));
+        assertThat(actual.isReset(), is(false));
+    }
+
+    @Test
+    public void findChangedSince_WatermarkOlderThanRetention_ShouldReturnAllTodoEntries() {
+        DateTime since = DateTime.now().minus(TOMBSTONE_RETENTION_MILLIS);
+        List<TodoDTO> all = Arrays.asList(new TodoDTOBuilder().id(ID).build());
+        when(repositoryMock.findAllDTOs()).thenReturn(all);
+
+        TodoDeltaDTO actual = service.findChangedSince(since);
+
+        verify(repositoryMock, times(1)).findAllDTOs();
+        verifyNoMoreInteractions(repositoryMock);
+        verifyZeroInteractions(tombstoneRepositoryMock);
+
+        assertThat(actual.getTodos(), is(all));
+        assertThat(actual.getDeleted(), is(empty()));
+        assertThat(actual.isReset(), is(true));
+    }
+
+    @Test
+    public void deleteExpiredTombstones_ShouldDeleteTombstonesOlderThanRetention() {
+        ArgumentCaptor<DateTime> beforeArgument = ArgumentCaptor.forClass(DateTime.class);
+        when(tombstoneRepositoryMock.deleteDeletedBefore(isA(DateTime.class))).thenReturn(3);
+
+        long earliest = DateTime.now().minus(TOMBSTONE_RETENTION_MILLIS).getMillis();
+        service.deleteExpiredTombstones();
+
+        verify(tombstoneRepositoryMock, times(1)).deleteDeletedBefore(beforeArgument.capture());
+        verifyNoMoreInteractions(tombstoneRepositoryMock);
+
+        assertThat(beforeArgument.getValue().getMillis(), greaterThanOrEqualTo(earliest));
+    }
+
+    @Test
+    public void findAllDTOs_ShouldReturnListOfTodoEntries() {
+        List<TodoDTO> dtos = new ArrayList<TodoDTO>();
+        when(repositoryMock.findAllDTOs()).thenReturn(dtos);
+
+        List<TodoDTO> actual = service.findAllDTOs();
+
+        verify(repositoryMock, times(1)).findAllDTOs();
+        verifyNoMoreInteractions(repositoryMock);
+
+        assertThat(actual, is(dtos));
+    }
+
+    @Test
+    public void findAllSummaries_ShouldReturnListOfTodoEntries() {
+        List<TodoDTO> dtos = new ArrayList<TodoDTO>();
+        when(repositoryMock.findAllSummaries()).thenReturn(dtos);
+
+        List<TodoDTO> actual = service.findAllSummaries();
+
+        verify(repositoryMock, times(1)).findAllSummaries();
+        verifyNoMoreInteractions(repositoryMock);
+
+        assertThat(actual, is(dtos));
+    }
+
     @Test
     public void findById_TodoEntryFound_ShouldReturnFoundTodoEntry() throws TodoNotFoundException {
         Todo model = new TodoBuilder()
@@ -132,6 +336,120 @@ public class RepositoryTodoServiceTest {
         verifyNoMoreInteractions(repositoryMock);
     }
 
+    @Test
+    public void findDTOById_TodoEntryFound_ShouldReturnFoundTodoEntry() throws TodoNotFoundException {
+        TodoDTO dto = new TodoDTO(ID, TITLE, DESCRIPTION);
+
+        when(repositoryMock.findDTOById(ID)).thenReturn(dto);
+
+        TodoDTO actual = service.findDTOById(ID);
+
+        verify(repositoryMock, times(1)).findDTOById(ID);
+        verifyNoMoreInteractions(repositoryMock);
+
+        assertThat(actual, is(dto));
+    }
+
+    @Test(expected = TodoNotFoundException.class)
+    public void findDTOById_TodoEntryNotFound_ShouldThrowException() throws TodoNotFoundException {
+        when(repositoryMock.findDTOById(ID)).thenReturn(null);
+
+        service.findDTOById(ID);
+    }
+
+    @Test
+    public void findDTOById_TodoEntryFoundTwice_ShouldReadTodoEntryFromRepositoryOnce() throws TodoNotFoundException {
+        TodoDTO dto = new TodoDTO(ID, TITLE, DESCRIPTION, VERSION);
+
+        when(repositoryMock.findDTOById(ID)).thenReturn(dto);
+
+        service.findDTOById(ID);
+        TodoDTO actual = service.findDTOById(ID);
+
+        verify(repositoryMock, times(1)).findDTOById(ID);
+        verifyNoMoreInteractions(repositoryMock);
+
+        assertThat(actual.getId(), is(ID));
+        assertThat(actual.getTitle(), is(TITLE));
+        assertThat(actual.getDescription(), is(DESCRIPTION));
+        assertThat(actual.getVersion(), is(VERSION));
+    }
+
+    @Test
+    public void findDTOById_TodoEntryNotCached_ShouldReadTodoEntryFromPrimary() throws TodoNotFoundException {
+        final List<Boolean> primaryRequired = new ArrayList<Boolean>();
+        when(repositoryMock.findDTOById(ID)).thenAnswer(new Answer<TodoDTO>() {
+            @Override
+            public TodoDTO answer(InvocationOnMock invocation) {
+                primaryRequired.add(RoutingContextHolder.isPrimaryRequired());
+                return new TodoDTO(ID, TITLE, DESCRIPTION, VERSION);
+            }
+        });
+
+        service.findDTOById(ID);
+
+        assertThat(primaryRequired, is(Arrays.asList(true)));
+        assertThat(RoutingContextHolder.isPrimaryRequired(), is(false));
+    }
+
+    @Test
+    public void findDTOById_TodoEntryUpdatedAfterRead_ShouldReadTodoEntryFromRepositoryAgain() throws Exception {
+        TodoDTO dto = new TodoDTO(ID, TITLE, DESCRIPTION, VERSION);
+        TodoDTO updated = new TodoDTO(ID, TITLE_UPDATED, DESCRIPTION_UPDATED, VERSION + 1);
+
+        when(repositoryMock.findDTOById(ID)).thenReturn(dto).thenReturn(updated);
+        when(repositoryMock.updateIfVersionMatches(eq(ID), eq(VERSION), eq(TITLE_UPDATED), eq(DESCRIPTION_UPDATED), any(DateTime.class))).thenReturn(1);
+
+        service.findDTOById(ID);
+        service.update(updated, VERSION);
+        TodoDTO actual = service.findDTOById(ID);
+
+        verify(repositoryMock, times(2)).findDTOById(ID);
+        assertThat(actual.getTitle(), is(TITLE_UPDATED));
+        assertThat(actual.getVersion(), is(VERSION + 1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void search_TodoEntriesFound_ShouldReturnTodoEntriesInRankedOrder() {
+        searchIndex.index(1L, "Buy milk", "From the corner shop");
+        searchIndex.index(2L, "Milk", null);
+        searchIndex.index(3L, "Walk the dog", "Milk is not needed");
+
+        TodoDTO first = new TodoDTO(1L, "Buy milk", "From the corner shop", VERSION);
+        TodoDTO second = new TodoDTO(2L, "Milk", null, VERSION);
+        when(repositoryMock.findDTOsByIds(any(List.class))).thenReturn(Arrays.asList(first, second));
+
+        List<TodoDTO> actual = service.search("milk", 2);
+
+        verify(repositoryMock, times(1)).findDTOsByIds(Arrays.asList(2L, 1L));
+        verifyNoMoreInteractions(repositoryMock);
+
+        assertThat(actual.size(), is(2));
+        assertThat(actual.get(0), is(second));
+        assertThat(actual.get(1), is(first));
+    }
+
+    @Test
+    public void search_NoTodoEntryFound_ShouldReturnEmptyListWithoutQueryingRepository() {
+        searchIndex.index(1L, "Buy milk", null);
+
+        List<TodoDTO> actual = service.search("bread", 10);
+
+        verifyNoMoreInteractions(repositoryMock);
+        assertThat(actual.isEmpty(), is(true));
+    }
+
+    @Test
+    public void search_TodoEntryDeleted_ShouldNotFindTodoEntry() throws Exception {
+        searchIndex.index(ID, TITLE, DESCRIPTION);
+        when(repositoryMock.deleteIfVersionMatches(ID, VERSION)).thenReturn(1);
+
+        service.deleteById(ID, VERSION);
+
+        assertThat(searchIndex.search(TITLE, 10).length, is(0));
+    }
+
     @Test
     public void update_TodoEntryFound_ShouldUpdateTodoEntry() throws TodoNotFoundException {
         TodoDTO dto = new TodoDTOBuilder()
@@ -173,4 +491,109 @@ public class RepositoryTodoServiceTest {
         verify(repositoryMock, times(1)).findOne(dto.getId());
         verifyNoMoreInteractions(repositoryMock);
     }
+
+    @Test
+    public void update_VersionMatches_ShouldUpdateTodoEntryAndReturnNewVersion() throws Exception {
+        TodoDTO dto = new TodoDTOBuilder()
+                .id(ID)
+                .description(DESCRIPTION_UPDATED)
+                .title(TITLE_UPDATED)
+                .build();
+
+        when(repositoryMock.updateIfVersionMatches(eq(ID), eq(VERSION), eq(TITLE_UPDATED), eq(DESCRIPTION_UPDATED), any(DateTime.class))).thenReturn(1);
+
+        long actual = service.update(dto, VERSION);
+
+        verify(repositoryMock, times(1)).updateIfVersionMatches(eq(ID), eq(VERSION), eq(TITLE_UPDATED), eq(DESCRIPTION_UPDATED), any(DateTime.class));
+        verifyNoMoreInteractions(repositoryMock);
+
+        assertThat(actual, is(VERSION + 1));
+    }
+
+    @Test(expected = TodoVersionConflictException.class)
+    public void update_VersionDoesNotMatch_ShouldThrowException() throws Exception {
+        TodoDTO dto = new TodoDTOBuilder()
+                .id(ID)
+                .description(DESCRIPTION_UPDATED)
+                .title(TITLE_UPDATED)
+                .build();
+
+        when(repositoryMock.updateIfVersionMatches(eq(ID), eq(VERSION), eq(TITLE_UPDATED), eq(DESCRIPTION_UPDATED), any(DateTime.class))).thenReturn(0);
+        when(repositoryMock.exists(ID)).thenReturn(true);
+
+        service.update(dto, VERSION);
+    }
+
+    @Test(expected = TodoNotFoundException.class)
+    public void update_VersionGivenButTodoEntryNotFound_ShouldThrowException() throws Exception {
+        TodoDTO dto = new TodoDTOBuilder()
+                .id(ID)
+                .description(DESCRIPTION_UPDATED)
+                .title(TITLE_UPDATED)
+                .build();
+
+        when(repositoryMock.updateIfVersionMatches(eq(ID), eq(VERSION), eq(TITLE_UPDATED), eq(DESCRIPTION_UPDATED), any(DateTime.class))).thenReturn(0);
+        when(repositoryMock.exists(ID)).thenReturn(false);
+
+        service.update(dto, VERSION);
+    }
+
+    @Test
+    public void deleteById_VersionMatches_ShouldDeleteTodoEntry() throws Exception {
+        when(repositoryMock.deleteIfVersionMatches(ID, VERSION)).thenReturn(1);
+
+        service.deleteById(ID, VERSION);
+
+        verify(repositoryMock, times(1)).deleteIfVersionMatches(ID, VERSION);
+        verifyNoMoreInteractions(repositoryMock);
+    }
+
+    @Test
+    public void deleteById_VersionMatches_ShouldSaveTombstone() throws Exception {
+        when(repositoryMock.deleteIfVersionMatches(ID, VERSION)).thenReturn(1);
+
+        service.deleteById(ID, VERSION);
+
+        ArgumentCaptor<TodoTombstone> tombstoneArgument = ArgumentCaptor.forClass(TodoTombstone.class);
+        verify(tombstoneRepositoryMock, times(1)).save(tombstoneArgument.capture());
+        verifyNoMoreInteractions(tombstoneRepositoryMock);
+
+        assertThat(tombstoneArgument.getValue().getId(), is(ID));
+        assertThat(tombstoneArgument.getValue().getVersion(), is(VERSION));
+    }
+
+    @Test
+    public void deleteById_VersionMatches_ShouldPublishChange() throws Exception {
+        long lastEventId = changeFeed.getLastEventId();
+        when(repositoryMock.deleteIfVersionMatches(ID, VERSION)).thenReturn(1);
+
+        service.deleteById(ID, VERSION);
+
+        assertThat(changeFeed.getLastEventId(), is(lastEventId + 1));
+    }
+
+    @Test
+    public void deleteById_VersionDoesNotMatch_ShouldNotPublishChange() throws Exception {
+        long lastEventId = changeFeed.getLastEventId();
+        when(repositoryMock.deleteIfVersionMatches(ID, VERSION)).thenReturn(0);
+        when(repositoryMock.exists(ID)).thenReturn(true);
+
+        try {
+            service.deleteById(ID, VERSION);
+        }
+        catch (TodoVersionConflictException ex) {
+            assertThat(changeFeed.getLastEventId(), is(lastEventId));
+            verifyZeroInteractions(tombstoneRepositoryMock);
+            return;
+        }
+        fail("A version conflict must be thrown");
+    }
+
+    @Test(expected = TodoVersionConflictException.class)
+    public void deleteById_VersionDoesNotMatch_ShouldThrowException() throws Exception {
+        when(repositoryMock.deleteIfVersionMatches(ID, VERSION)).thenReturn(0);
+        when(repositoryMock.exists(ID)).thenReturn(true);
+
+        service.deleteById(ID, VERSION);
+    }
 }
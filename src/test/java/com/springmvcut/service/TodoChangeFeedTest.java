@@ -0,0 +1,182 @@
+package com.springmvcut.service;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.springmvcut.dto.TodoChangeDTO;
+import com.springmvcut.dto.TodoChangeDTO.Operation;
+import com.springmvcut.service.impl.TodoChangeFeed;
+
+public class TodoChangeFeedTest {
+
+    private static final int REPLAY_CAPACITY = 4;
+    private static final int BUFFER_CAPACITY = 2;
+    private static final long HEARTBEAT_MILLIS = 60000;
+
+    private static final String MISSED_CHANGES = "missed";
+    private static final String HEARTBEAT = "heartbeat";
+    private static final String CLOSED = "closed";
+
+    private TodoChangeFeed feed;
+
+    @Before
+    public void setUp() {
+        feed = new TodoChangeFeed(REPLAY_CAPACITY, BUFFER_CAPACITY, 2, HEARTBEAT_MILLIS);
+        feed.start();
+    }
+
+    @After
+    public void tearDown() {
+        feed.stop();
+    }
+
+    @Test
+    public void publish_Subscribed_ShouldSendChangeToListener() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        feed.subscribe(null, listener);
+
+        feed.publish(1L, 0L, Operation.ADDED);
+
+        TodoChangeDTO change = listener.nextChange();
+        assertThat(change.getId(), is(1L));
+        assertThat(change.getVersion(), is(0L));
+        assertThat(change.getOperation(), is(Operation.ADDED));
+        assertThat(change.getEventId(), is(feed.getLastEventId()));
+    }
+
+    @Test
+    public void subscribe_LastEventIdInReplayLog_ShouldReplayLaterChanges() throws Exception {
+        feed.publish(1L, 0L, Operation.ADDED);
+        long lastSeenEventId = feed.getLastEventId();
+        feed.publish(1L, 1L, Operation.UPDATED);
+        feed.publish(1L, 1L, Operation.DELETED);
+
+        RecordingListener listener = new RecordingListener();
+        feed.subscribe(lastSeenEventId, listener);
+
+        assertThat(listener.nextChange().getOperation(), is(Operation.UPDATED));
+        assertThat(listener.nextChange().getOperation(), is(Operation.DELETED));
+        assertThat(listener.events.poll(100, TimeUnit.MILLISECONDS), nullValue());
+    }
+
+    @Test
+    public void subscribe_LastEventIdOlderThanReplayLog_ShouldReportMissedChanges() throws Exception {
+        long lastSeenEventId = feed.getLastEventId();
+        for (long id = 1; id <= REPLAY_CAPACITY + 1; id++) {
+            feed.publish(id, 0L, Operation.ADDED);
+        }
+
+        RecordingListener listener = new RecordingListener();
+        feed.subscribe(lastSeenEventId, listener);
+
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), is((Object) MISSED_CHANGES));
+        assertThat(feed.getSubscriberCount(), is(1));
+    }
+
+    @Test
+    public void subscribe_UnknownLastEventId_ShouldReportMissedChanges() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        feed.subscribe(feed.getLastEventId() + 1, listener);
+
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), is((Object) MISSED_CHANGES));
+    }
+
+    @Test
+    public void publish_BufferOverflows_ShouldReportMissedChangesAndCloseListener() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        listener.blockChanges = new CountDownLatch(1);
+        feed.subscribe(null, listener);
+
+        for (long id = 1; id <= BUFFER_CAPACITY + 2; id++) {
+            feed.publish(id, 0L, Operation.ADDED);
+        }
+        assertThat(feed.getSubscriberCount(), is(0));
+        listener.blockChanges.countDown();
+
+        Object event;
+        do {
+            event = listener.events.poll(5, TimeUnit.SECONDS);
+        }
+        while (event instanceof TodoChangeDTO);
+        assertThat(event, is((Object) MISSED_CHANGES));
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), is((Object) CLOSED));
+    }
+
+    @Test
+    public void publish_ListenerFails_ShouldUnsubscribeAndCloseListener() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        listener.failChanges = true;
+        feed.subscribe(null, listener);
+
+        feed.publish(1L, 0L, Operation.ADDED);
+
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), is((Object) CLOSED));
+        assertThat(feed.getSubscriberCount(), is(0));
+    }
+
+    @Test
+    public void unsubscribe_ShouldCloseListenerOnce() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        feed.subscribe(null, listener);
+
+        feed.unsubscribe(listener);
+        feed.unsubscribe(listener);
+        feed.publish(1L, 0L, Operation.ADDED);
+
+        assertThat(listener.events.poll(5, TimeUnit.SECONDS), is((Object) CLOSED));
+        assertThat(listener.events.poll(100, TimeUnit.MILLISECONDS), nullValue());
+    }
+
+    private static class RecordingListener implements TodoChangeListener {
+
+        private final BlockingQueue<Object> events = new LinkedBlockingQueue<Object>();
+        private volatile CountDownLatch blockChanges;
+        private volatile boolean failChanges;
+
+        @Override
+        public void onChange(TodoChangeDTO change) throws IOException {
+            if (blockChanges != null) {
+                try {
+                    blockChanges.await();
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failChanges) {
+                throw new IOException("The client has gone away");
+            }
+            events.add(change);
+        }
+
+        @Override
+        public void onMissedChanges() {
+            events.add(MISSED_CHANGES);
+        }
+
+        @Override
+        public void onHeartbeat() {
+            events.add(HEARTBEAT);
+        }
+
+        @Override
+        public void onClose() {
+            events.add(CLOSED);
+        }
+
+        TodoChangeDTO nextChange() throws InterruptedException {
+            return (TodoChangeDTO) events.poll(5, TimeUnit.SECONDS);
+        }
+    }
+}
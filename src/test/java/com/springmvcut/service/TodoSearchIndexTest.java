@@ -0,0 +1,62 @@
+package com.springmvcut.service;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.springmvcut.service.impl.TodoSearchIndex;
+
+public class TodoSearchIndexTest {
+
+    private TodoSearchIndex searchIndex;
+
+    @Before
+    public void setUp() {
+        searchIndex = new TodoSearchIndex();
+    }
+
+    @Test
+    public void indexRebuilt_RemovedDuringRebuild_ShouldNotIndexTodoEntry() {
+        searchIndex.startRebuild();
+        searchIndex.removeAfterCommit(1L);
+        searchIndex.indexRebuilt(1L, "Buy milk", null);
+        searchIndex.indexRebuilt(2L, "Milk", null);
+        searchIndex.endRebuild();
+
+        assertThat(searchIndex.search("milk", 10), is(new long[] {2L}));
+    }
+
+    @Test
+    public void indexRebuilt_UpdatedDuringRebuild_ShouldKeepUpdatedTodoEntry() {
+        searchIndex.startRebuild();
+        searchIndex.indexAfterCommit(1L, "Walk the dog", null);
+        searchIndex.indexRebuilt(1L, "Buy milk", null);
+        searchIndex.endRebuild();
+
+        assertThat(searchIndex.search("milk", 10).length, is(0));
+        assertThat(searchIndex.search("dog", 10), is(new long[] {1L}));
+    }
+
+    @Test
+    public void startRebuild_ShouldClearIndex() {
+        searchIndex.index(1L, "Buy milk", null);
+
+        searchIndex.startRebuild();
+        searchIndex.endRebuild();
+
+        assertThat(searchIndex.size(), is(0));
+    }
+
+    @Test
+    public void endRebuild_RemovedTodoEntryIndexedAgain_ShouldIndexTodoEntry() {
+        searchIndex.startRebuild();
+        searchIndex.removeAfterCommit(1L);
+        searchIndex.endRebuild();
+
+        searchIndex.index(1L, "Buy milk", null);
+
+        assertThat(searchIndex.search("milk", 10), is(new long[] {1L}));
+    }
+}
@@ -1,5 +1,7 @@
 package com.springmvcut.todo;
 
+import org.joda.time.DateTime;
+
 import com.springmvcut.dto.TodoDTO;
 
 public class TodoDTOBuilder {
@@ -24,6 +26,16 @@ public class TodoDTOBuilder {
 	        return this;
 	    }
 
+	    public TodoDTOBuilder version(Long version) {
+	        dto.setVersion(version);
+	        return this;
+	    }
+
+	    public TodoDTOBuilder modificationTime(DateTime modificationTime) {
+	        dto.setModificationTime(modificationTime);
+	        return this;
+	    }
+
 	    public TodoDTO build() {
 	        return dto;
 	    }
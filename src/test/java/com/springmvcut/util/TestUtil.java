@@ -6,7 +6,9 @@ import java.nio.charset.Charset;
 import org.springframework.http.MediaType;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 
 public class TestUtil {
     private static final String CHARACTER = "a";
@@ -36,4 +38,14 @@ public class TestUtil {
     	mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
     	return mapper.writeValueAsBytes(object);
 	}
+
+    public static byte[] convertObjectToSmileBytes(Object object) throws IOException {
+        ObjectMapper mapper = new ObjectMapper(new SmileFactory());
+        mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        return mapper.writeValueAsBytes(object);
+    }
+
+    public static JsonNode convertSmileBytesToTree(byte[] smile) throws IOException {
+        return new ObjectMapper(new SmileFactory()).readTree(smile);
+    }
 }